@@ -2,6 +2,7 @@ plugins {
 	java
 	alias(libs.plugins.spring.boot)
 	alias(libs.plugins.spring.dependency.management)
+	alias(libs.plugins.jmh)
 }
 
 group = "com.neighbor.eventmosaic"
@@ -36,6 +37,13 @@ dependencies {
 	// Kafka
 	implementation(libs.spring.kafka)
 
+	// Jackson
+	implementation(libs.jackson.dataformat.smile)
+
+	// Сжатие
+	implementation(libs.lz4.java)
+	implementation(libs.zstd.jni)
+
 	// Monitoring
 	implementation(libs.micrometer.prometheus)
 	implementation(libs.logstash.logback.encoder)
@@ -56,6 +64,10 @@ dependencies {
 	testImplementation(libs.testcontainers.kafka)
 	testRuntimeOnly(libs.junit.platform.launcher)
 
+	// JMH
+	jmh(libs.jmh.core)
+	jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+
 	// EM Library
 	implementation(libs.em.library.common)
 }
@@ -69,3 +81,35 @@ dependencyManagement {
 tasks.withType<Test> {
 	useJUnitPlatform()
 }
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("load")
+	}
+}
+
+// Нагрузочные тесты (тег load): ./gradlew loadTest -Pload.batches=20 -Pload.events-per-batch=5000
+val loadTest by tasks.registering(Test::class) {
+	description = "Запускает сквозные нагрузочные тесты на контейнерах Kafka и Redis."
+	group = LifecycleBasePlugin.VERIFICATION_GROUP
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("load")
+	}
+	maxHeapSize = "2g"
+	outputs.upToDateWhen { false }
+	providers.gradlePropertiesPrefixedBy("load.").get().forEach { (name, value) -> systemProperty(name, value) }
+	testLogging {
+		showStandardStreams = true
+	}
+}
+
+jmh {
+	jmhVersion = libs.versions.jmh.get()
+	warmupIterations = 2
+	iterations = 5
+	fork = 1
+	resultFormat = "JSON"
+	profilers = listOf("gc")
+}
@@ -0,0 +1,74 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.processor.fixture.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение кодеков хранения записей в Redis: время кодирования/декодирования одного события
+ * и размер закодированного события (выводится при подготовке состояния).
+ * <p>
+ * Запуск: ./gradlew jmh -Pjmh.includes=StagingCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StagingCodecBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    @Param({"json", "binary"})
+    private String codecName;
+
+    private StagingCodec codec;
+    private List<Event> events;
+    private byte[][] encoded;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        codec = switch (codecName) {
+            case "json" -> new JsonStagingCodec(objectMapper);
+            case "binary" -> new BinaryStagingCodec(objectMapper);
+            default -> throw new IllegalArgumentException("Неизвестный кодек: " + codecName);
+        };
+
+        events = BenchmarkFixtures.events(RECORDS);
+        encoded = new byte[RECORDS][];
+        long totalBytes = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            encoded[i] = codec.encode(events.get(i));
+            totalBytes += encoded[i].length;
+        }
+        System.out.printf("%n[%s] байт на событие: %.1f%n", codecName, (double) totalBytes / RECORDS);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return codec.encode(events.get(nextIndex()));
+    }
+
+    @Benchmark
+    public Event decode() throws IOException {
+        return codec.decode(encoded[nextIndex()], Event.class);
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (RECORDS - 1);
+        return index;
+    }
+}
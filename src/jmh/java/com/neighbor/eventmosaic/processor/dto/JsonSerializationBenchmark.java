@@ -0,0 +1,108 @@
+package com.neighbor.eventmosaic.processor.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.fixture.BenchmarkFixtures;
+import com.neighbor.eventmosaic.processor.mapper.EventMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и десериализация Jackson одной записи: входящие Event и Mention
+ * (сообщения Kafka и значения в Redis) и исходящий ElasticEvent (сообщение в топик processor-event).
+ * <p>
+ * Запуск: ./gradlew jmh -Pjmh.includes=JsonSerializationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonSerializationBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    private ObjectWriter writer;
+    private ObjectReader eventReader;
+    private ObjectReader mentionReader;
+    private ObjectReader elasticEventReader;
+
+    private List<Event> events;
+    private List<Mention> mentions;
+    private List<ElasticEvent> elasticEvents;
+    private byte[][] eventsJson;
+    private byte[][] mentionsJson;
+    private byte[][] elasticEventsJson;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        writer = objectMapper.writer();
+        eventReader = objectMapper.readerFor(Event.class);
+        mentionReader = objectMapper.readerFor(Mention.class);
+        elasticEventReader = objectMapper.readerFor(ElasticEvent.class);
+
+        events = BenchmarkFixtures.events(RECORDS);
+        mentions = BenchmarkFixtures.mentions(RECORDS, RECORDS);
+        try (AnnotationConfigApplicationContext context = BenchmarkFixtures.mapperContext()) {
+            elasticEvents = context.getBean(EventMapper.class).toElasticEvents(events);
+        }
+
+        eventsJson = new byte[RECORDS][];
+        mentionsJson = new byte[RECORDS][];
+        elasticEventsJson = new byte[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            eventsJson[i] = writer.writeValueAsBytes(events.get(i));
+            mentionsJson[i] = writer.writeValueAsBytes(mentions.get(i));
+            elasticEventsJson[i] = writer.writeValueAsBytes(elasticEvents.get(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeEvent() throws IOException {
+        return writer.writeValueAsBytes(events.get(nextIndex()));
+    }
+
+    @Benchmark
+    public Event readEvent() throws IOException {
+        return eventReader.readValue(eventsJson[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] writeMention() throws IOException {
+        return writer.writeValueAsBytes(mentions.get(nextIndex()));
+    }
+
+    @Benchmark
+    public Mention readMention() throws IOException {
+        return mentionReader.readValue(mentionsJson[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] writeElasticEvent() throws IOException {
+        return writer.writeValueAsBytes(elasticEvents.get(nextIndex()));
+    }
+
+    @Benchmark
+    public ElasticEvent readElasticEvent() throws IOException {
+        return elasticEventReader.readValue(elasticEventsJson[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (RECORDS - 1);
+        return index;
+    }
+}
@@ -0,0 +1,145 @@
+package com.neighbor.eventmosaic.processor.fixture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.mapper.EventMapperHelper;
+import com.neighbor.eventmosaic.processor.mapper.EventMapperImpl;
+import com.neighbor.eventmosaic.processor.mapper.MentionMapperHelper;
+import com.neighbor.eventmosaic.processor.mapper.MentionMapperImpl;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Тестовые данные для бенчмарков: события и упоминания, по составу полей близкие к записям GDELT.
+ * Генерация детерминирована (фиксированный seed), чтобы результаты запусков были сравнимы.
+ */
+public final class BenchmarkFixtures {
+
+    private static final long SEED = 20250323L;
+
+    private static final String[] COUNTRIES = {"USA", "RUS", "CHN", "GBR", "FRA", "DEU", "IND", "BRA"};
+    private static final String[] EVENT_CODES = {"010", "020", "036", "042", "051", "112", "141", "190"};
+    private static final String[] PLACES = {
+            "Washington, District of Columbia, United States",
+            "Moscow, Moskva, Russia",
+            "Beijing, Beijing, China",
+            "London, London, City of, United Kingdom"
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Создает ObjectMapper с модулями из classpath, как в приложении.
+     */
+    public static ObjectMapper objectMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .build();
+    }
+
+    /**
+     * Создает минимальный контекст Spring с мапперами MapStruct и их помощниками,
+     * чтобы бенчмарки работали с теми же сгенерированными реализациями, что и приложение.
+     * Контекст нужно закрыть по завершении бенчмарка.
+     */
+    public static AnnotationConfigApplicationContext mapperContext() {
+        return new AnnotationConfigApplicationContext(
+                EventMapperHelper.class, EventMapperImpl.class,
+                MentionMapperHelper.class, MentionMapperImpl.class);
+    }
+
+    /**
+     * Создает список событий с заполненными полями акторов, геопривязки и тональности.
+     *
+     * @param count количество событий
+     * @return список событий
+     */
+    public static List<Event> events(int count) {
+        Random random = new Random(SEED);
+        List<Event> events = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            String actor1Country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            String actor2Country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+            String eventCode = EVENT_CODES[random.nextInt(EVENT_CODES.length)];
+            String place = PLACES[random.nextInt(PLACES.length)];
+
+            Event event = new Event();
+            event.setGlobalEventId(1_200_000_000L + i);
+            event.setDay(20250323);
+            event.setActor1Code(actor1Country + "GOV");
+            event.setActor1Name(actor1Country + " GOVERNMENT");
+            event.setActor1CountryCode(actor1Country);
+            event.setActor1Type1Code("GOV");
+            event.setActor2Code(actor2Country);
+            event.setActor2Name(actor2Country);
+            event.setActor2CountryCode(actor2Country);
+            event.setIsRootEvent(random.nextInt(2));
+            event.setEventCode(eventCode);
+            event.setEventBaseCode(eventCode.substring(0, 3));
+            event.setEventRootCode(eventCode.substring(0, 2));
+            event.setQuadClass(1 + random.nextInt(4));
+            event.setGoldsteinScale(Math.round((random.nextDouble() * 20 - 10) * 10) / 10.0);
+            event.setNumMentions(1 + random.nextInt(50));
+            event.setNumSources(1 + random.nextInt(10));
+            event.setNumArticles(1 + random.nextInt(50));
+            event.setAvgTone(random.nextDouble() * 20 - 10);
+            event.setActor1GeoType(4);
+            event.setActor1GeoFullName(place);
+            event.setActor1GeoCountryCode(actor1Country.substring(0, 2));
+            event.setActor1GeoAdm1Code(actor1Country.substring(0, 2) + "01");
+            event.setActor1GeoLat(random.nextDouble() * 180 - 90);
+            event.setActor1GeoLong(random.nextDouble() * 360 - 180);
+            event.setActor1GeoFeatureId(String.valueOf(random.nextInt(3_000_000)));
+            event.setActionGeoType(4);
+            event.setActionGeoFullName(place);
+            event.setActionGeoCountryCode(actor1Country.substring(0, 2));
+            event.setActionGeoAdm1Code(actor1Country.substring(0, 2) + "01");
+            event.setActionGeoLat(random.nextDouble() * 180 - 90);
+            event.setActionGeoLong(random.nextDouble() * 360 - 180);
+            event.setActionGeoFeatureId(String.valueOf(random.nextInt(3_000_000)));
+            event.setDateAdded(20250323151500L);
+            event.setSourceUrl("https://news.example.com/world/2025/03/23/article-" + i + ".html");
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Создает список упоминаний, ссылающихся на события из {@link #events(int)}.
+     *
+     * @param count       количество упоминаний
+     * @param eventsCount количество событий, на которые ссылаются упоминания
+     * @return список упоминаний
+     */
+    public static List<Mention> mentions(int count, int eventsCount) {
+        Random random = new Random(SEED + 1);
+        List<Mention> mentions = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Mention mention = new Mention();
+            mention.setGlobalEventId(1_200_000_000L + random.nextInt(Math.max(eventsCount, 1)));
+            mention.setEventTimeDate(20250323151500L);
+            mention.setMentionTimeDate(20250323151500L);
+            mention.setMentionType(1);
+            mention.setMentionSourceName("news.example.com");
+            mention.setMentionIdentifier("https://news.example.com/world/2025/03/23/mention-" + i + ".html");
+            mention.setSentenceId(1 + random.nextInt(20));
+            mention.setActor1CharOffset(random.nextInt(2000));
+            mention.setActor2CharOffset(random.nextInt(2000));
+            mention.setActionCharOffset(random.nextInt(2000));
+            mention.setInRawText(random.nextInt(2));
+            mention.setConfidence(10 * (1 + random.nextInt(10)));
+            mention.setMentionDocLen(500 + random.nextInt(5000));
+            mention.setMentionDocTone(random.nextDouble() * 20 - 10);
+            mentions.add(mention);
+        }
+        return mentions;
+    }
+}
@@ -0,0 +1,67 @@
+package com.neighbor.eventmosaic.processor.mapper;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.fixture.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг порции записей батча в документы Elasticsearch сгенерированными мапперами MapStruct.
+ * Время указано на порцию целиком; на запись — делением на {@code records}.
+ * Выделение памяти на порцию выводит профилировщик gc (gc.alloc.rate.norm).
+ * <p>
+ * Запуск: ./gradlew jmh -Pjmh.includes=MapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapperBenchmark {
+
+    @Param({"100", "1000"})
+    private int records;
+
+    private AnnotationConfigApplicationContext context;
+    private EventMapper eventMapper;
+    private MentionMapper mentionMapper;
+    private List<Event> events;
+    private List<Mention> mentions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkFixtures.mapperContext();
+        eventMapper = context.getBean(EventMapper.class);
+        mentionMapper = context.getBean(MentionMapper.class);
+        events = BenchmarkFixtures.events(records);
+        mentions = BenchmarkFixtures.mentions(records, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ElasticEvent> toElasticEvents() {
+        return eventMapper.toElasticEvents(events);
+    }
+
+    @Benchmark
+    public List<ElasticMention> toElasticMentionList() {
+        return mentionMapper.toElasticMentionList(mentions);
+    }
+}
@@ -0,0 +1,113 @@
+package com.neighbor.eventmosaic.processor.mapper;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.fixture.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразование дат одной записи в мапперах: прежний разбор через строку и DateTimeFormatter
+ * против арифметического декодирования с кэшем дней.
+ * Для события выполняются три преобразования (дата индекса, дата события, dateAdded),
+ * для упоминания — три (дата индекса и два времени).
+ * <p>
+ * Запуск: ./gradlew jmh -Pjmh.includes=MapperHelperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperHelperBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    private final EventMapperHelper eventHelper = new EventMapperHelper();
+    private final MentionMapperHelper mentionHelper = new MentionMapperHelper();
+
+    private int[] days;
+    private long[] eventDateAdded;
+    private long[] mentionTimes;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Event> events = BenchmarkFixtures.events(RECORDS);
+        List<Mention> mentions = BenchmarkFixtures.mentions(RECORDS, RECORDS);
+        days = new int[RECORDS];
+        eventDateAdded = new long[RECORDS];
+        mentionTimes = new long[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            // Разносим записи по нескольким дням и секундам, как в реальном батче
+            days[i] = events.get(i).getDay() - (i & 3);
+            eventDateAdded[i] = events.get(i).getDateAdded() + (i % 45);
+            mentionTimes[i] = mentions.get(i).getMentionTimeDate() - (i & 3) * 1_000_000L + (i % 45);
+        }
+    }
+
+    @Benchmark
+    public void eventLegacy(Blackhole blackhole) {
+        int i = nextIndex();
+        blackhole.consume(legacyIndexDate(days[i]));
+        blackhole.consume(legacyOffsetDate(days[i]));
+        blackhole.consume(legacyOffsetDateTime(eventDateAdded[i]));
+    }
+
+    @Benchmark
+    public void eventArithmetic(Blackhole blackhole) {
+        int i = nextIndex();
+        blackhole.consume(eventHelper.integerToElasticIndexDateString(days[i]));
+        blackhole.consume(eventHelper.integerToOffsetDate(days[i]));
+        blackhole.consume(eventHelper.longToOffsetDateTime(eventDateAdded[i]));
+    }
+
+    @Benchmark
+    public void mentionLegacy(Blackhole blackhole) {
+        int i = nextIndex();
+        blackhole.consume(legacyIndexDate(mentionTimes[i]));
+        blackhole.consume(legacyOffsetDateTime(mentionTimes[i]));
+        blackhole.consume(legacyOffsetDateTime(mentionTimes[i]));
+    }
+
+    @Benchmark
+    public void mentionArithmetic(Blackhole blackhole) {
+        int i = nextIndex();
+        blackhole.consume(mentionHelper.longToElasticIndexDateString(mentionTimes[i]));
+        blackhole.consume(mentionHelper.longToOffsetDateTime(mentionTimes[i]));
+        blackhole.consume(mentionHelper.longToOffsetDateTime(mentionTimes[i]));
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (RECORDS - 1);
+        return index;
+    }
+
+    private static String legacyIndexDate(long value) {
+        String str = String.valueOf(value);
+        return str.substring(0, 4) + "-" + str.substring(4, 6) + "-" + str.substring(6, 8);
+    }
+
+    private static OffsetDateTime legacyOffsetDate(int day) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        return OffsetDateTime.of(LocalDate.parse(String.valueOf(day), formatter).atStartOfDay(), ZoneOffset.UTC);
+    }
+
+    private static OffsetDateTime legacyOffsetDateTime(long timestamp) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+        return OffsetDateTime.of(LocalDateTime.parse(String.valueOf(timestamp), formatter), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,71 @@
+package com.neighbor.eventmosaic.processor.util;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.fixture.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение ключей Redis для одной записи батча.
+ * <p>
+ * Запуск: ./gradlew jmh -Pjmh.includes=RedisKeysBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RedisKeysBenchmark {
+
+    private static final int RECORDS = 1024;
+    private static final String BATCH_ID = "20250323151500";
+
+    private Long[] eventIds;
+    private String[] mentionIds;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Event> events = BenchmarkFixtures.events(RECORDS);
+        List<Mention> mentions = BenchmarkFixtures.mentions(RECORDS, RECORDS);
+        eventIds = new Long[RECORDS];
+        mentionIds = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            eventIds[i] = events.get(i).getGlobalEventId();
+            mentionIds[i] = mentions.get(i).getGlobalEventId() + "_" + mentions.get(i).getMentionIdentifier();
+        }
+    }
+
+    @Benchmark
+    public String buildEventKey() {
+        return RedisKeysUtil.buildEventKey(BATCH_ID, eventIds[nextIndex()]);
+    }
+
+    @Benchmark
+    public String buildMentionKey() {
+        return RedisKeysUtil.buildMentionKey(BATCH_ID, mentionIds[nextIndex()]);
+    }
+
+    @Benchmark
+    public String buildBatchEventsSetKey() {
+        return RedisKeysUtil.buildBatchEventsSetKey(BATCH_ID);
+    }
+
+    @Benchmark
+    public String buildStartTimeKey() {
+        return RedisKeysUtil.buildStartTimeKey(BATCH_ID);
+    }
+
+    private int nextIndex() {
+        index = (index + 1) & (RECORDS - 1);
+        return index;
+    }
+}
@@ -0,0 +1,56 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Компактный бинарный кодек записей на основе Smile.
+ * <p>
+ * Event и Mention кодируются массивом значений в алфавитном порядке полей, без имен полей;
+ * целые числа записываются как varint, строки — с длиной, без экранирования.
+ * Порядок полей задается классами DTO, поэтому при изменении их набора данные, записанные
+ * предыдущей версией сервиса, не читаются — это допустимо, так как данные живут в Redis
+ * только в пределах окна батча.
+ */
+@Component
+@ConditionalOnProperty(name = "batch.staging.codec", havingValue = "binary")
+public class BinaryStagingCodec implements StagingCodec {
+
+    private static final List<Class<?>> ARRAY_SHAPED_TYPES = List.of(Event.class, Mention.class);
+
+    private final ObjectMapper binaryMapper;
+
+    @SuppressWarnings("deprecation")
+    public BinaryStagingCodec(ObjectMapper objectMapper) {
+        SmileFactory smileFactory = SmileFactory.builder()
+                .disable(SmileGenerator.Feature.WRITE_HEADER)
+                .disable(SmileParser.Feature.REQUIRE_HEADER)
+                .build();
+
+        this.binaryMapper = objectMapper.copyWith(smileFactory)
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        ARRAY_SHAPED_TYPES.forEach(type -> binaryMapper.configOverride(type)
+                .setFormat(JsonFormat.Value.forShape(JsonFormat.Shape.ARRAY)));
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return binaryMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        return binaryMapper.readValue(payload, type);
+    }
+}
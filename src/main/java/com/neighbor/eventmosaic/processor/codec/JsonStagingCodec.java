@@ -0,0 +1,30 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Кодек записей в JSON (UTF-8).
+ * Используется по умолчанию: данные в Redis остаются читаемыми для отладки.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "batch.staging.codec", havingValue = "json", matchIfMissing = true)
+public class JsonStagingCodec implements StagingCodec {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        return objectMapper.readValue(payload, type);
+    }
+}
@@ -0,0 +1,40 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сжатие LZ4: минимальные затраты CPU при умеренной степени сжатия.
+ */
+@Component
+public class Lz4PayloadCompressor implements PayloadCompressor {
+
+    private static final byte ID = 1;
+
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "lz4";
+    }
+
+    @Override
+    public byte[] compress(byte[] source) {
+        return compressor.compress(source);
+    }
+
+    @Override
+    public byte[] decompress(byte[] source, int offset, int length, int originalLength) {
+        byte[] restored = new byte[originalLength];
+        decompressor.decompress(source, offset, restored, 0, originalLength);
+        return restored;
+    }
+}
@@ -0,0 +1,36 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+/**
+ * Алгоритм сжатия закодированных записей перед сохранением в Redis.
+ */
+public interface PayloadCompressor {
+
+    /**
+     * Идентификатор алгоритма, записываемый в заголовок сжатого значения.
+     */
+    byte getId();
+
+    /**
+     * Имя алгоритма, по которому он выбирается в batch.staging.compression.algorithm.
+     */
+    String getName();
+
+    /**
+     * Сжимает массив байт.
+     *
+     * @param source исходные данные
+     * @return сжатые данные
+     */
+    byte[] compress(byte[] source);
+
+    /**
+     * Восстанавливает сжатые данные в заранее выделенный массив.
+     *
+     * @param source         массив со сжатыми данными
+     * @param offset         смещение начала сжатых данных
+     * @param length         длина сжатых данных
+     * @param originalLength размер исходных данных
+     * @return восстановленные данные
+     */
+    byte[] decompress(byte[] source, int offset, int length, int originalLength);
+}
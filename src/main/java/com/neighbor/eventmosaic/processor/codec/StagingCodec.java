@@ -0,0 +1,29 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import java.io.IOException;
+
+/**
+ * Кодек записей, временно хранящихся в Redis до закрытия окна батча.
+ * Реализация выбирается свойством batch.staging.codec.
+ */
+public interface StagingCodec {
+
+    /**
+     * Кодирует объект в массив байт для записи в Redis.
+     *
+     * @param value объект для кодирования
+     * @return закодированное представление
+     * @throws IOException если объект не удалось закодировать
+     */
+    byte[] encode(Object value) throws IOException;
+
+    /**
+     * Декодирует объект из массива байт, прочитанного из Redis.
+     *
+     * @param payload закодированное представление
+     * @param type    класс объекта
+     * @return декодированный объект
+     * @throws IOException если представление не удалось декодировать
+     */
+    <T> T decode(byte[] payload, Class<T> type) throws IOException;
+}
@@ -0,0 +1,139 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Необязательное сжатие закодированных записей перед сохранением в Redis.
+ * <p>
+ * Сжимаются только значения не меньше batch.staging.compression.min-size байт, и только если
+ * результат оказался короче исходного. Сжатое значение начинается с заголовка
+ * [0x00][идентификатор алгоритма][исходный размер, 4 байта]; несжатые значения хранятся как есть.
+ * Ни JSON, ни Smile-представление записи не начинается с 0x00, поэтому чтение не зависит
+ * от текущих настроек: распаковываются любые сжатые значения, в том числе записанные
+ * с другим алгоритмом.
+ */
+@Slf4j
+@Component
+public class StagingCompression {
+
+    private static final byte MAGIC = 0x00;
+    private static final int HEADER_LENGTH = 6;
+    private static final String NONE = "none";
+
+    private final Map<Byte, PayloadCompressor> compressorsById;
+    private final PayloadCompressor compressor;
+    private final int minSize;
+    private final ProcessorMetrics processorMetrics;
+
+    public StagingCompression(List<PayloadCompressor> compressors,
+                              ProcessorMetrics processorMetrics,
+                              @Value("${batch.staging.compression.algorithm:none}") String algorithm,
+                              @Value("${batch.staging.compression.min-size:512}") int minSize) {
+        this.compressorsById = compressors.stream()
+                .collect(Collectors.toUnmodifiableMap(PayloadCompressor::getId, Function.identity()));
+        this.compressor = NONE.equalsIgnoreCase(algorithm)
+                ? null
+                : compressors.stream()
+                .filter(candidate -> candidate.getName().equalsIgnoreCase(algorithm))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестный алгоритм сжатия: " + algorithm));
+        this.minSize = minSize;
+        this.processorMetrics = processorMetrics;
+    }
+
+    /**
+     * Сжимает значения, размер которых не меньше порога. Значения заменяются на месте.
+     *
+     * @param type     тип записей (event, mention)
+     * @param payloads закодированные записи по их идентификаторам
+     */
+    public void compressAll(String type, Map<String, byte[]> payloads) {
+        if (compressor == null) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        long originalBytes = 0;
+        long storedBytes = 0;
+
+        for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+            byte[] original = entry.getValue();
+            byte[] stored = original.length >= minSize ? compress(original) : original;
+            entry.setValue(stored);
+            originalBytes += original.length;
+            storedBytes += stored.length;
+        }
+
+        processorMetrics.recordCompression(compressor.getName(), type, originalBytes, storedBytes,
+                System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Распаковывает сжатые значения. Значения без заголовка сжатия возвращаются как есть,
+     * значения, которые не удалось распаковать, пропускаются.
+     *
+     * @param type     тип записей (event, mention)
+     * @param payloads значения, прочитанные из Redis
+     * @return распакованные значения
+     */
+    public List<byte[]> decompressAll(String type, List<byte[]> payloads) {
+        long startNanos = System.nanoTime();
+        List<byte[]> restored = new ArrayList<>(payloads.size());
+        int compressedCount = 0;
+
+        for (byte[] payload : payloads) {
+            if (!isCompressed(payload)) {
+                restored.add(payload);
+                continue;
+            }
+            try {
+                restored.add(decompress(payload));
+                compressedCount++;
+            } catch (RuntimeException e) {
+                log.error("Ошибка распаковки записи типа {}: {}", type, e.getMessage(), e);
+            }
+        }
+
+        if (compressedCount > 0) {
+            processorMetrics.recordDecompression(type, compressedCount, System.nanoTime() - startNanos);
+        }
+        return restored;
+    }
+
+    private byte[] compress(byte[] original) {
+        byte[] compressed = compressor.compress(original);
+        if (compressed.length + HEADER_LENGTH >= original.length) {
+            return original; // Сжатие не дает выигрыша
+        }
+
+        return ByteBuffer.allocate(HEADER_LENGTH + compressed.length)
+                .put(MAGIC)
+                .put(compressor.getId())
+                .putInt(original.length)
+                .put(compressed)
+                .array();
+    }
+
+    private byte[] decompress(byte[] payload) {
+        PayloadCompressor payloadCompressor = compressorsById.get(payload[1]);
+        if (payloadCompressor == null) {
+            throw new IllegalStateException("Неизвестный идентификатор алгоритма сжатия: " + payload[1]);
+        }
+        int originalLength = ByteBuffer.wrap(payload, 2, 4).getInt();
+        return payloadCompressor.decompress(payload, HEADER_LENGTH, payload.length - HEADER_LENGTH, originalLength);
+    }
+
+    private static boolean isCompressed(byte[] payload) {
+        return payload.length > HEADER_LENGTH && payload[0] == MAGIC;
+    }
+}
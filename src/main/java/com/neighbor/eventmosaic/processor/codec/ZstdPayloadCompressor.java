@@ -0,0 +1,49 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.github.luben.zstd.Zstd;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Сжатие Zstandard: более высокая степень сжатия ценой большего расхода CPU.
+ */
+@Component
+public class ZstdPayloadCompressor implements PayloadCompressor {
+
+    private static final byte ID = 2;
+
+    @Value("${batch.staging.compression.zstd-level:3}")
+    private int level;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "zstd";
+    }
+
+    @Override
+    public byte[] compress(byte[] source) {
+        byte[] target = new byte[(int) Zstd.compressBound(source.length)];
+        long compressedLength = Zstd.compressByteArray(target, 0, target.length, source, 0, source.length, level);
+        if (Zstd.isError(compressedLength)) {
+            throw new IllegalStateException("Ошибка сжатия Zstd: " + Zstd.getErrorName(compressedLength));
+        }
+        return Arrays.copyOf(target, (int) compressedLength);
+    }
+
+    @Override
+    public byte[] decompress(byte[] source, int offset, int length, int originalLength) {
+        byte[] restored = new byte[originalLength];
+        long restoredLength = Zstd.decompressByteArray(restored, 0, originalLength, source, offset, length);
+        if (Zstd.isError(restoredLength) || restoredLength != originalLength) {
+            throw new IllegalStateException("Ошибка распаковки Zstd: " + Zstd.getErrorName(restoredLength));
+        }
+        return restored;
+    }
+}
@@ -1,22 +1,58 @@
 package com.neighbor.eventmosaic.processor.component;
 
 import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.BatchRollup;
 import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
 import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.dto.EventEnrichment;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.util.LongObjectHashMap;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Класс для обработки батча данных.
+ * <p>
+ * Соединяет упоминания с событиями батча: события индексируются по globalEventId
+ * в хеш-таблице с примитивными ключами, после чего каждое упоминание за один проход
+ * обогащается полями своего события ({@link EventEnrichment}).
+ * Если событие упоминания пришло в одном из предыдущих батчей, его поля берутся
+ * из кэша недавних событий ({@link RecentEventCache}).
+ * Упоминания, событие которых не найдено ни в батче, ни в кэше, выносятся в отдельный список.
+ * <p>
+ * Перед отправкой записи, уже отправленные в недавних батчах ({@link PublishedRecordFilter}), отбрасываются.
+ * События-дубликаты при этом остаются в индексе и обогащают свои упоминания.
+ * <p>
+ * Отправляемые события за один проход откладываются в агрегаты батча ({@link BatchRollup}):
+ * количество событий, средние шкалы Голдштейна и тона по странам, корневым кодам CAMEO и классам событий.
+ * После этого события проходят настраиваемые фильтр и проекцию ({@link EventOutputPipeline}).
+ * Отложенное событие учитывается в агрегатах только после подтверждения его отправки,
+ * поэтому события, отброшенные фильтром, в агрегаты не попадают.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class BatchProcessor {
 
+    private final ProcessorMetrics processorMetrics;
+    private final RecentEventCache recentEventCache;
+    private final PublishedRecordFilter publishedRecordFilter;
+    private final EventOutputPipeline eventOutputPipeline;
+
+    @Value("${batch.processing.join.enabled:false}")
+    private boolean joinEnabled;
+
+    @Value("${batch.processing.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
     /**
      * Метод для обработки батча данных.
      * Обрабатывает события и упоминания, которые были собраны в течение временного окна.
@@ -24,22 +60,179 @@ public class BatchProcessor {
      *
      * @param events   список событий
      * @param mentions список упоминаний
-     * @return объект BatchData
+     * @return объект BatchData с агрегатами батча, если они включены
      */
     public BatchData process(List<ElasticEvent> events,
                              List<ElasticMention> mentions) {
+        return process(events, mentions, newEventIndex(events.size()), newRollup());
+    }
 
-        try {
+    /**
+     * Обрабатывает порцию батча с индексом событий, общим для всех порций батча.
+     * События порции добавляются в индекс, поэтому упоминания следующих порций
+     * соединяются со всеми уже обработанными событиями батча.
+     *
+     * @param events     список событий
+     * @param mentions   список упоминаний
+     * @param eventIndex индекс событий батча по globalEventId
+     * @return объект BatchData
+     */
+    public BatchData process(List<ElasticEvent> events,
+                             List<ElasticMention> mentions,
+                             LongObjectHashMap<EventEnrichment> eventIndex) {
+        return process(events, mentions, eventIndex, null);
+    }
+
+    /**
+     * Обрабатывает порцию батча с индексом событий и агрегатами, общими для всех порций батча.
+     *
+     * @param events     список событий
+     * @param mentions   список упоминаний
+     * @param eventIndex индекс событий батча по globalEventId
+     * @param rollup     агрегаты батча, в которые откладываются отправляемые события порции, или null
+     * @return объект BatchData с общими агрегатами батча
+     */
+    public BatchData process(List<ElasticEvent> events,
+                             List<ElasticMention> mentions,
+                             LongObjectHashMap<EventEnrichment> eventIndex,
+                             BatchRollup rollup) {
 
-            // При необходимости добавить логику обработки данных, например, фильтрация, агрегация и тд.
-            // Упоминания могут содержать идентификатор события которого нет в файле событий текущего батча
+        try {
+            BatchData batchData;
+            if (joinEnabled) {
+                indexEvents(events, eventIndex);
+                batchData = joinMentions(events, mentions, eventIndex);
+            } else {
+                batchData = new BatchData(events, mentions);
+            }
 
-            return new BatchData(events, mentions);
+            if (publishedRecordFilter.isEnabled()) {
+                batchData = dropPublished(batchData);
+            }
+            if (rollup != null) {
+                batchData.getEvents().forEach(rollup::stage);
+                batchData.setRollup(rollup);
+            }
+            if (eventOutputPipeline.isEnabled()) {
+                batchData.setEvents(eventOutputPipeline.apply(batchData.getEvents()));
+            }
+            return batchData;
 
         } catch (Exception e) {
             log.error("Ошибка при обработке батча: {}", e.getMessage(), e);
             // Возвращаем исходные данные, если что-то пошло не так
+            if (rollup != null) {
+                events.forEach(rollup::stage);
+            }
+            return new BatchData(events, mentions, Collections.emptyList(), rollup);
+        }
+    }
+
+    /**
+     * Создает пустой индекс событий батча.
+     *
+     * @param expectedEvents ожидаемое количество событий
+     * @return индекс событий по globalEventId
+     */
+    public LongObjectHashMap<EventEnrichment> newEventIndex(int expectedEvents) {
+        return new LongObjectHashMap<>(expectedEvents);
+    }
+
+    /**
+     * Создает пустые агрегаты батча.
+     *
+     * @return агрегаты батча или null, если агрегаты выключены
+     */
+    public BatchRollup newRollup() {
+        return rollupEnabled ? new BatchRollup() : null;
+    }
+
+    private void indexEvents(List<ElasticEvent> events, LongObjectHashMap<EventEnrichment> eventIndex) {
+        for (ElasticEvent event : events) {
+            if (event.getGlobalEventId() != null) {
+                EventEnrichment enrichment = EventEnrichment.from(event);
+                eventIndex.put(event.getGlobalEventId(), enrichment);
+                recentEventCache.put(event.getGlobalEventId(), enrichment);
+            }
+        }
+    }
+
+    /**
+     * Обогащает упоминания полями их событий и отделяет упоминания без события в батче и в кэше.
+     */
+    private BatchData joinMentions(List<ElasticEvent> events,
+                                   List<ElasticMention> mentions,
+                                   LongObjectHashMap<EventEnrichment> eventIndex) {
+        if (mentions.isEmpty()) {
             return new BatchData(events, mentions);
         }
+
+        List<ElasticMention> joined = new ArrayList<>(mentions.size());
+        List<ElasticMention> orphans = new ArrayList<>();
+        int cacheHits = 0;
+        int cacheMisses = 0;
+
+        for (ElasticMention mention : mentions) {
+            Long eventId = mention.getGlobalEventId();
+            EventEnrichment enrichment = eventId == null ? null : eventIndex.get(eventId);
+
+            if (enrichment == null && eventId != null && recentEventCache.isEnabled()) {
+                // Событие могло прийти в одном из предыдущих батчей
+                enrichment = recentEventCache.get(eventId);
+                if (enrichment == null) {
+                    cacheMisses++;
+                } else {
+                    cacheHits++;
+                }
+            }
+
+            if (enrichment == null) {
+                orphans.add(mention);
+            } else {
+                enrichment.applyTo(mention);
+                joined.add(mention);
+            }
+        }
+
+        processorMetrics.recordMentionJoin(joined.size(), orphans.size());
+        if (cacheHits + cacheMisses > 0) {
+            processorMetrics.recordEventCacheLookups(cacheHits, cacheMisses);
+        }
+        if (!orphans.isEmpty()) {
+            log.debug("Упоминаний без события в батче и в кэше: {} из {}", orphans.size(), mentions.size());
+        }
+        return new BatchData(events, joined, orphans);
+    }
+
+    /**
+     * Отбрасывает записи, уже отправленные в недавних батчах, и учитывает их в метриках.
+     */
+    private BatchData dropPublished(BatchData batchData) {
+        List<ElasticEvent> events = retainUnpublished(BatchRecordType.EVENT, batchData.getEvents(),
+                event -> String.valueOf(event.getGlobalEventId()));
+        List<ElasticMention> mentions = retainUnpublished(BatchRecordType.MENTION, batchData.getMentions(),
+                BatchProcessor::mentionKey);
+        List<ElasticMention> orphans = retainUnpublished(BatchRecordType.MENTION, batchData.getOrphanMentions(),
+                BatchProcessor::mentionKey);
+
+        processorMetrics.recordDuplicates(BatchRecordType.EVENT.getCode(), ProcessorMetrics.DEDUP_STAGE_PUBLISHED,
+                batchData.getEvents().size() - events.size());
+        processorMetrics.recordDuplicates(BatchRecordType.MENTION.getCode(), ProcessorMetrics.DEDUP_STAGE_PUBLISHED,
+                batchData.getMentions().size() + batchData.getOrphanMentions().size() - mentions.size() - orphans.size());
+        return new BatchData(events, mentions, orphans);
+    }
+
+    private <T> List<T> retainUnpublished(BatchRecordType type, List<T> records, Function<T, String> keyResolver) {
+        List<T> unpublished = new ArrayList<>(records.size());
+        for (T record : records) {
+            if (!publishedRecordFilter.mightBePublished(type, keyResolver.apply(record))) {
+                unpublished.add(record);
+            }
+        }
+        return unpublished.size() == records.size() ? records : unpublished;
+    }
+
+    private static String mentionKey(ElasticMention mention) {
+        return mention.getGlobalEventId() + "_" + mention.getMentionIdentifier();
     }
 }
@@ -0,0 +1,165 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.storage.BatchDataStorage;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Управление TTL данных и состояния батча в Redis на протяжении его жизненного цикла.
+ * <p>
+ * Пока окно батча открыто, данные хранятся с TTL хранения (длительность окна + staging-margin-ms).
+ * TTL общего ключа батча (множества ID или hash) выставляется один раз при первой записи
+ * батча каждого типа в экземпляре, а не при каждой записи.
+ * Когда батчи переходят в готовые (закрытие окна, возврат аренды, наступление времени повтора),
+ * TTL их ключей пакетно продлевается до processing-ms ({@link #extendForReady}), поэтому ожидание
+ * в очереди готовых дольше staging-margin-ms не приводит к потере данных. При захвате батча на обработку
+ * TTL продлевается еще раз, а ожидание повтора покрывает {@link #retryTtl}.
+ * Если к моменту захвата данные батча уже истекли, это учитывается в метрике processor.batch.expired.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchTtlManager {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final BatchDataStorage batchDataStorage;
+    private final ProcessorMetrics processorMetrics;
+
+    /**
+     * Время, до которого TTL общего ключа батча считается выставленным, по ключу "тип:batchId".
+     */
+    private final Map<String, Long> stagedUntil = new ConcurrentHashMap<>();
+
+    @Value("${batch.processing.window-duration-ms:60000}")
+    private long batchWindowDurationMs;
+
+    @Value("${batch.processing.ttl.staging-margin-ms:60000}")
+    private long stagingMarginMs;
+
+    @Value("${batch.processing.ttl.processing-ms:600000}")
+    private long processingTtlMs;
+
+    /**
+     * Возвращает TTL данных и состояния батча, пока его окно открыто.
+     *
+     * @return длительность окна с запасом staging-margin-ms
+     */
+    public Duration stagingTtl() {
+        return Duration.ofMillis(batchWindowDurationMs + stagingMarginMs);
+    }
+
+    /**
+     * Возвращает TTL данных и состояния батча после перехода в готовые.
+     *
+     * @return время, за которое батч должен быть обработан
+     */
+    public Duration processingTtl() {
+        return Duration.ofMillis(processingTtlMs);
+    }
+
+    /**
+     * Возвращает TTL данных батча, ожидающего повторной обработки.
+     *
+     * @param retryDelayMs задержка до повторной обработки в мс
+     * @return TTL обработки сверх задержки повтора
+     */
+    public Duration retryTtl(long retryDelayMs) {
+        return processingTtl().plusMillis(retryDelayMs);
+    }
+
+    /**
+     * Отмечает запись данных батча указанного типа и определяет, нужно ли выставить TTL общего ключа батча.
+     * Попутно удаляет отметки батчей с истекшим TTL хранения.
+     *
+     * @param batchId идентификатор батча
+     * @param type    тип записей
+     * @return true при первой записи батча этого типа в экземпляре или после истечения TTL хранения
+     */
+    public boolean markStaged(String batchId, BatchRecordType type) {
+        long now = System.currentTimeMillis();
+        String key = type.getCode() + ":" + batchId;
+
+        Long until = stagedUntil.get(key);
+        if (until != null && until > now) {
+            return false;
+        }
+        stagedUntil.values().removeIf(end -> end <= now);
+        stagedUntil.put(key, now + stagingTtl().toMillis());
+        return true;
+    }
+
+    /**
+     * Продлевает TTL данных и времени старта батча до processing-ms.
+     * Вызывается при захвате батча на обработку.
+     *
+     * @param batchId идентификатор батча
+     * @return true, если данные батча еще есть в Redis
+     */
+    public boolean extendForProcessing(String batchId) {
+        Duration ttl = processingTtl();
+        boolean dataPresent = batchDataStorage.expire(batchId, ttl);
+        redisTemplate.expire(RedisKeysUtil.buildStartTimeKey(batchId), ttl);
+
+        if (!dataPresent) {
+            processorMetrics.recordBatchExpired();
+            log.warn("Данные батча {} отсутствуют в Redis к началу обработки: истекли по TTL", batchId);
+        }
+        return dataPresent;
+    }
+
+    /**
+     * Пакетно продлевает TTL данных и времени старта батчей до processing-ms.
+     * Вызывается при переходе батчей в готовые: данные всех батчей продлеваются хранилищем пакетно,
+     * TTL ключей времени старта — одним pipeline-запросом.
+     *
+     * @param batchIds идентификаторы батчей, перенесенных в готовые
+     */
+    public void extendForReady(Collection<String> batchIds) {
+        if (batchIds.isEmpty()) {
+            return;
+        }
+        Duration ttl = processingTtl();
+        batchDataStorage.expireBatches(batchIds, ttl);
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                batchIds.forEach(batchId -> ops.expire(RedisKeysUtil.buildStartTimeKey(batchId), ttl));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Удаляет отметки записи батча: следующая запись батча снова выставит TTL общего ключа.
+     *
+     * @param batchId идентификатор батча
+     */
+    public void forget(String batchId) {
+        for (BatchRecordType type : BatchRecordType.values()) {
+            stagedUntil.remove(type.getCode() + ":" + batchId);
+        }
+    }
+
+    /**
+     * Удаляет все отметки записи батчей.
+     */
+    public void forgetAll() {
+        stagedUntil.clear();
+    }
+}
@@ -0,0 +1,174 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Фильтрация и проекция событий перед отправкой.
+ * <p>
+ * Условия фильтра (batch.processing.output.event-filter.*) и список исключаемых полей
+ * (batch.processing.output.event-excluded-fields) разбираются один раз при старте:
+ * условия собираются в цепочку предикатов над геттерами ElasticEvent, а для каждого исключаемого поля
+ * через LambdaMetafactory создается лямбда, вызывающая его сеттер. Поэтому обработка записи
+ * не использует рефлексию. Исключенные поля обнуляются; если они заданы, KafkaTemplate
+ * не сериализует поля со значением null, поэтому исключенные поля не попадают в сообщения Kafka.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventOutputPipeline {
+
+    private static final String KEY_FIELD = "globalEventId";
+
+    private final ProcessorMetrics processorMetrics;
+
+    @Value("${batch.processing.output.event-filter.root-events-only:false}")
+    private boolean rootEventsOnly;
+
+    @Value("${batch.processing.output.event-filter.min-num-mentions:0}")
+    private int minNumMentions;
+
+    @Value("${batch.processing.output.event-filter.require-action-location:false}")
+    private boolean requireActionLocation;
+
+    @Value("${batch.processing.output.event-excluded-fields:}")
+    private List<String> excludedFields;
+
+    private Predicate<ElasticEvent> filter;
+    private List<BiConsumer<ElasticEvent, Object>> fieldClearers;
+
+    /**
+     * Собирает фильтр и проекцию событий из настроек.
+     *
+     * @throws IllegalArgumentException если исключаемое поле не существует или является ключом события
+     */
+    @PostConstruct
+    void compile() {
+        filter = compileFilter();
+        fieldClearers = compileFieldClearers();
+
+        if (isEnabled()) {
+            log.info("Фильтр событий перед отправкой: только корневые - {}, минимум упоминаний - {}, "
+                            + "только с точкой действия - {}; исключаемые поля: {}",
+                    rootEventsOnly, minNumMentions, requireActionLocation, excludedFields);
+        }
+    }
+
+    /**
+     * @return true, если задан фильтр или исключаемые поля
+     */
+    public boolean isEnabled() {
+        return filter != null || !fieldClearers.isEmpty();
+    }
+
+    /**
+     * @return true, если заданы исключаемые поля
+     */
+    public boolean hasExcludedFields() {
+        return !fieldClearers.isEmpty();
+    }
+
+    /**
+     * Отбрасывает события, не прошедшие фильтр, и обнуляет исключаемые поля оставшихся.
+     * События изменяются на месте.
+     *
+     * @param events события батча
+     * @return события для отправки
+     */
+    public List<ElasticEvent> apply(List<ElasticEvent> events) {
+        if (!isEnabled() || events.isEmpty()) {
+            return events;
+        }
+
+        List<ElasticEvent> output = filter == null ? events : new ArrayList<>(events.size());
+        for (ElasticEvent event : events) {
+            if (filter != null) {
+                if (!filter.test(event)) {
+                    continue;
+                }
+                output.add(event);
+            }
+            for (BiConsumer<ElasticEvent, Object> clearer : fieldClearers) {
+                clearer.accept(event, null);
+            }
+        }
+
+        processorMetrics.recordOutputFiltered(BatchRecordType.EVENT.getCode(), events.size() - output.size());
+        return output;
+    }
+
+    private Predicate<ElasticEvent> compileFilter() {
+        List<Predicate<ElasticEvent>> conditions = new ArrayList<>();
+        if (rootEventsOnly) {
+            conditions.add(event -> event.getIsRootEvent() != null && event.getIsRootEvent() == 1);
+        }
+        if (minNumMentions > 0) {
+            int min = minNumMentions;
+            conditions.add(event -> event.getNumMentions() != null && event.getNumMentions() >= min);
+        }
+        if (requireActionLocation) {
+            conditions.add(event -> event.getActionLocation() != null);
+        }
+        return conditions.stream().reduce(Predicate::and).orElse(null);
+    }
+
+    private List<BiConsumer<ElasticEvent, Object>> compileFieldClearers() {
+        List<BiConsumer<ElasticEvent, Object>> clearers = new ArrayList<>();
+        for (String fieldName : excludedFields) {
+            String name = fieldName.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (KEY_FIELD.equals(name)) {
+                throw new IllegalArgumentException("Поле " + KEY_FIELD + " является ключом события и не может быть исключено");
+            }
+            clearers.add(compileSetter(name));
+        }
+        return List.copyOf(clearers);
+    }
+
+    /**
+     * Создает лямбду, вызывающую сеттер поля ElasticEvent напрямую, без рефлексии при вызове.
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<ElasticEvent, Object> compileSetter(String fieldName) {
+        try {
+            Field field = ElasticEvent.class.getDeclaredField(fieldName);
+            String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle setter = lookup.findVirtual(ElasticEvent.class, setterName,
+                    MethodType.methodType(void.class, field.getType()));
+            CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    setter,
+                    MethodType.methodType(void.class, ElasticEvent.class, field.getType()));
+            return (BiConsumer<ElasticEvent, Object>) callSite.getTarget().invoke();
+
+        } catch (NoSuchFieldException | NoSuchMethodException e) {
+            throw new IllegalArgumentException("Неизвестное поле ElasticEvent: " + fieldName, e);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Не удалось создать сеттер поля ElasticEvent: " + fieldName, e);
+        }
+    }
+}
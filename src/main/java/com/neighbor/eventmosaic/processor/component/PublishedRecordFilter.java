@@ -0,0 +1,201 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Вероятностный фильтр записей, уже отправленных в Kafka в недавних батчах (фильтр Блума).
+ * <p>
+ * Повторная доставка Kafka и повторы адаптера приводят к тому, что одна и та же запись приходит
+ * в разных батчах. Фильтр хранит ключи отправленных записей (ключ сообщения Kafka) в битовом массиве
+ * и никогда не пропускает уже отправленную запись; с вероятностью false-positive-rate он считает
+ * отправленной новую запись.
+ * <p>
+ * Фильтр состоит из двух поколений по expected-records записей: когда в текущее поколение добавлено
+ * expected-records ключей или оно старше window-ms, более старое поколение очищается и становится текущим.
+ * Поэтому память фильтра постоянна, а ключи помнятся от одного до двух поколений.
+ * <p>
+ * Запись проверяется по обоим поколениям, поэтому каждое поколение рассчитано на долю ложных
+ * срабатываний false-positive-rate / 2: суммарная доля по двум заполненным поколениям остается
+ * в пределах false-positive-rate.
+ */
+@Slf4j
+@Component
+public class PublishedRecordFilter {
+
+    private static final int GENERATIONS = 2;
+    private static final double LN2 = Math.log(2);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${batch.processing.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${batch.processing.dedup.expected-records:1000000}")
+    private long expectedRecords;
+
+    @Value("${batch.processing.dedup.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    @Value("${batch.processing.dedup.window-ms:3600000}")
+    private long windowMs;
+
+    private long[][] generations;
+    private long bitCount;
+    private int hashCount;
+    private int current;
+    private long currentSize;
+    private long currentStartedAt;
+
+    /**
+     * Вычисляет размер битового массива и количество хеш-функций поколения под ожидаемое количество
+     * записей и долю ложных срабатываний, разделенную между поколениями.
+     */
+    @PostConstruct
+    void init() {
+        long records = Math.max(expectedRecords, 1);
+        double rate = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        double generationRate = rate / GENERATIONS;
+
+        long bits = (long) Math.ceil(-records * Math.log(generationRate) / (LN2 * LN2));
+        int words = (int) Math.min((bits + 63) / 64, Integer.MAX_VALUE - 8);
+        bitCount = (long) words * 64;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / records * LN2));
+        generations = new long[GENERATIONS][words];
+        currentStartedAt = System.currentTimeMillis();
+
+        if (enabled) {
+            log.info("Фильтр отправленных записей: {} записей на поколение, доля ложных срабатываний {}, {} хеш-функций, ~{} КБ",
+                    records, rate, hashCount, (long) GENERATIONS * words * Long.BYTES / 1024);
+        }
+    }
+
+    /**
+     * @return true, если фильтр включен
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Проверяет, отправлялась ли запись в недавних батчах.
+     *
+     * @param type тип записи
+     * @param key  ключ сообщения Kafka
+     * @return true, если запись, вероятно, уже отправлена; false, если точно не отправлялась
+     */
+    public boolean mightBePublished(BatchRecordType type, String key) {
+        if (!enabled) {
+            return false;
+        }
+        long hash = hash(type, key);
+        lock.readLock().lock();
+        try {
+            for (long[] generation : generations) {
+                if (contains(generation, hash)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Запоминает отправленную запись.
+     *
+     * @param type тип записи
+     * @param key  ключ сообщения Kafka
+     */
+    public void markPublished(BatchRecordType type, String key) {
+        if (!enabled) {
+            return;
+        }
+        long hash = hash(type, key);
+        lock.writeLock().lock();
+        try {
+            rotateIfNeeded();
+            long[] generation = generations[current];
+            long h1 = hash;
+            long h2 = mix(hash) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                generation[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            currentSize++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все запомненные записи.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (long[] generation : generations) {
+                Arrays.fill(generation, 0L);
+            }
+            currentSize = 0;
+            currentStartedAt = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean contains(long[] generation, long hash) {
+        long h1 = hash;
+        long h2 = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((generation[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Делает текущим более старое поколение, если текущее заполнено или его время истекло.
+     */
+    private void rotateIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (currentSize < expectedRecords && now - currentStartedAt < windowMs) {
+            return;
+        }
+        current = (current + 1) % GENERATIONS;
+        Arrays.fill(generations[current], 0L);
+        currentSize = 0;
+        currentStartedAt = now;
+    }
+
+    /**
+     * 64-битный хеш ключа записи (FNV-1a с перемешиванием), тип записи входит в хеш.
+     */
+    private static long hash(BatchRecordType type, String key) {
+        long h = 0xcbf29ce484222325L ^ type.ordinal();
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
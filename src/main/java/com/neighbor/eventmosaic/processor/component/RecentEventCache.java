@@ -0,0 +1,182 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.dto.EventEnrichment;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Кэш недавно обработанных событий для обогащения упоминаний, событие которых пришло в одном из предыдущих батчей.
+ * <p>
+ * Хранит только компактную проекцию события ({@link EventEnrichment}) по globalEventId.
+ * Кэш разбит на сегменты — хеш-таблицы с примитивными ключами ({@link LongObjectHashMap}).
+ * Записи добавляются в текущий сегмент; когда он заполнен или старше ttl-ms / SEGMENTS,
+ * самый старый сегмент очищается и становится текущим. Так размер кэша ограничен бюджетом памяти
+ * max-memory-mb, а записи живут не дольше ttl-ms без удаления отдельных записей.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecentEventCache {
+
+    private static final int SEGMENTS = 4;
+
+    /**
+     * Оценка памяти на запись: ячейки таблицы с запасом заполнения, объект проекции и название места.
+     * Коды CAMEO и стран интернированы и не учитываются.
+     */
+    private static final long ESTIMATED_ENTRY_BYTES = 160;
+
+    private final ProcessorMetrics processorMetrics;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${batch.processing.event-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${batch.processing.event-cache.max-memory-mb:64}")
+    private long maxMemoryMb;
+
+    @Value("${batch.processing.event-cache.ttl-ms:86400000}")
+    private long ttlMs;
+
+    private LongObjectHashMap<EventEnrichment>[] segments;
+    private final long[] segmentCreatedAt = new long[SEGMENTS];
+    private final long[] segmentUpdatedAt = new long[SEGMENTS];
+    private int current;
+    private int segmentCapacity;
+
+    /**
+     * Выделяет сегменты кэша под бюджет памяти.
+     */
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    void init() {
+        long capacity = Math.max(maxMemoryMb, 1) * 1024 * 1024 / ESTIMATED_ENTRY_BYTES;
+        segmentCapacity = (int) Math.min(capacity / SEGMENTS, 1 << 28);
+        segments = new LongObjectHashMap[SEGMENTS];
+        segmentCreatedAt[current] = System.currentTimeMillis();
+        for (int i = 0; i < SEGMENTS; i++) {
+            // Таблицы растут по мере заполнения, память выделяется только под фактические записи
+            segments[i] = new LongObjectHashMap<>();
+        }
+        if (enabled) {
+            log.info("Кэш недавних событий: до {} записей (~{} МБ), время жизни {} мс",
+                    (long) segmentCapacity * SEGMENTS, maxMemoryMb, ttlMs);
+        }
+    }
+
+    /**
+     * Добавляет проекцию события в кэш.
+     *
+     * @param globalEventId идентификатор события
+     * @param enrichment    проекция события
+     */
+    public void put(long globalEventId, EventEnrichment enrichment) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            rotateIfNeeded(now);
+            segments[current].put(globalEventId, enrichment);
+            segmentUpdatedAt[current] = now;
+            processorMetrics.recordEventCacheSize(countEntries());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет проекцию события от нового сегмента к старому.
+     * Сегменты, в которые ничего не добавлялось дольше ttl-ms, пропускаются.
+     *
+     * @param globalEventId идентификатор события
+     * @return проекция события или null, если события нет в кэше
+     */
+    public EventEnrichment get(long globalEventId) {
+        if (!enabled) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            long expiredBefore = System.currentTimeMillis() - ttlMs;
+            for (int age = 0; age < SEGMENTS; age++) {
+                int index = Math.floorMod(current - age, SEGMENTS);
+                if (segmentUpdatedAt[index] < expiredBefore) {
+                    break; // Более старые сегменты обновлялись еще раньше
+                }
+                EventEnrichment enrichment = segments[index].get(globalEventId);
+                if (enrichment != null) {
+                    return enrichment;
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true, если кэш включен
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return количество записей во всех сегментах
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return countEntries();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все записи кэша.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (LongObjectHashMap<EventEnrichment> segment : segments) {
+                segment.clear();
+            }
+            processorMetrics.recordEventCacheSize(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Делает текущим самый старый сегмент, если текущий заполнен или его время истекло.
+     */
+    private void rotateIfNeeded(long now) {
+        boolean full = segments[current].size() >= segmentCapacity;
+        boolean aged = now - segmentCreatedAt[current] >= ttlMs / SEGMENTS;
+        if (full || aged) {
+            current = (current + 1) % SEGMENTS;
+            segments[current].clear();
+            segmentCreatedAt[current] = now;
+        }
+    }
+
+    private long countEntries() {
+        long size = 0;
+        for (LongObjectHashMap<EventEnrichment> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+}
@@ -1,19 +1,30 @@
 package com.neighbor.eventmosaic.processor.component;
 
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
+import com.neighbor.eventmosaic.processor.storage.BatchDataStorage;
 import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.Set;
-import java.util.function.UnaryOperator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Класс для очистки Redis для указанного батча.
  * Выполняет полную очистку данных и состояния для указанного батча в Redis.
  * Удаляет данные по событиям, упоминаниям и состоянию.
+ * <p>
+ * Очистка после отправки выполняется асинхронно ({@link #cleanupBatchAsync}) в отдельном пуле,
+ * чтобы не занимать потоки завершения отправки Kafka producer.
  */
 @Slf4j
 @Component
@@ -21,53 +32,85 @@ import java.util.function.UnaryOperator;
 public class RedisBatchCleaner {
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final BatchDataStorage batchDataStorage;
+    private final RegisteredBatchCache registeredBatchCache;
+    private final ProcessorMetrics processorMetrics;
+    private final BatchTtlManager batchTtlManager;
+    private final BatchStateService batchStateService;
+
+    @Value("${batch.cleanup.threads:2}")
+    private int cleanupThreads;
+
+    private ExecutorService cleanupExecutor;
+
+    /**
+     * Создает пул потоков очистки батчей.
+     */
+    @PostConstruct
+    void initExecutor() {
+        cleanupExecutor = Executors.newFixedThreadPool(
+                Math.max(cleanupThreads, 1), new CustomizableThreadFactory("batch-cleaner-"));
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        cleanupExecutor.shutdown();
+    }
+
+    /**
+     * Запускает полную очистку данных и состояния батча в пуле потоков очистки.
+     * Если пул остановлен, очистка выполняется в вызывающем потоке.
+     *
+     * @param batchId идентификатор батча
+     * @return CompletableFuture, который завершится после очистки батча
+     */
+    public CompletableFuture<Void> cleanupBatchAsync(String batchId) {
+        try {
+            return CompletableFuture.runAsync(() -> cleanupBatch(batchId), cleanupExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Пул очистки остановлен, очистка батча {} выполняется синхронно", batchId);
+            cleanupBatch(batchId);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
 
     /**
      * Выполняет полную очистку данных и состояния для указанного батча в Redis.
+     * Сначала снимается аренда батча с проверкой владельца ({@link BatchStateService#releaseLease}):
+     * если батч уже арендован другим экземпляром, очистка пропускается, и батч очистит его новый владелец.
      *
      * @param batchId идентификатор батча
      */
     public void cleanupBatch(String batchId) {
         log.info("Запуск полной очистки Redis для батча {}", batchId);
+        long startNanos = System.nanoTime();
         try {
-            // Удаление данных по событиям
-            cleanupDataSet(RedisKeysUtil.buildBatchEventsSetKey(batchId),
-                    id -> RedisKeysUtil.buildEventKey(batchId, Long.valueOf(id)));
+            if (!batchStateService.releaseLease(batchId)) {
+                log.warn("Батч {} арендован другим экземпляром, очистка пропущена", batchId);
+                return;
+            }
 
-            // Удаление данных по упоминаниям
-            cleanupDataSet(RedisKeysUtil.buildBatchMentionsSetKey(batchId),
-                    id -> RedisKeysUtil.buildMentionKey(batchId, id));
+            // Удаление данных по событиям и упоминаниям
+            long deletedKeys = batchDataStorage.delete(batchId);
 
             // Удаление состояния
-            redisTemplate.opsForSet().remove(RedisKeysUtil.readyBatchesSetKey(), batchId);  // Из готовых
-            redisTemplate.opsForSet().remove(RedisKeysUtil.activeBatchesSetKey(), batchId); // Из активных (на всякий случай)
-            redisTemplate.delete(RedisKeysUtil.buildStartTimeKey(batchId));                 // Время старта
+            redisTemplate.opsForSet().remove(RedisKeysUtil.readyBatchesSetKey(), batchId);     // Из готовых
+            redisTemplate.opsForZSet().remove(RedisKeysUtil.activeBatchWindowsKey(), batchId); // Из активных (на всякий случай)
+            redisTemplate.opsForZSet().remove(RedisKeysUtil.retryBatchesKey(), batchId);       // Из ожидающих повтора
+            redisTemplate.opsForHash().delete(RedisKeysUtil.retryAttemptsKey(), batchId);      // Счетчик попыток
+            redisTemplate.unlink(RedisKeysUtil.buildStartTimeKey(batchId));                    // Время старта
+            registeredBatchCache.invalidate(batchId);                                          // Локальный кэш регистрации
+            batchTtlManager.forget(batchId);                                                   // Отметки TTL батча
 
-            log.info("Полная очистка Redis для батча {} успешно завершена", batchId);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            processorMetrics.recordCleanup(ProcessorMetrics.OUTCOME_SUCCESS, elapsedNanos);
+            processorMetrics.recordCleanupKeys(deletedKeys, elapsedNanos);
+            log.info("Полная очистка Redis для батча {} успешно завершена, удалено ключей данных - {}",
+                    batchId, deletedKeys);
 
         } catch (Exception e) {
+            processorMetrics.recordCleanup(ProcessorMetrics.OUTCOME_FAILURE, System.nanoTime() - startNanos);
             log.error("Ошибка во время полной очистки Redis для батча {}: {}", batchId, e.getMessage(), e);
         }
     }
-
-    /**
-     * Метод для удаления множества ключей данных.
-     * Сначала получает все ID из множества, затем удаляет ключи данных и само множество.
-     */
-    private void cleanupDataSet(String setKey,
-                                UnaryOperator<String> keyResolver) {
-
-        Set<String> ids = redisTemplate.opsForSet().members(setKey);
-
-        if (ids != null && !ids.isEmpty()) {
-            List<String> dataKeys = ids.stream()
-                    .map(keyResolver)
-                    .toList();
-
-            Long deletedCount = redisTemplate.delete(dataKeys);
-            log.debug("Удалено {} ключей данных для множества {}", deletedCount, setKey);
-        }
-        redisTemplate.delete(setKey);
-        log.debug("Удалено множество ключей {}", setKey);
-    }
 }
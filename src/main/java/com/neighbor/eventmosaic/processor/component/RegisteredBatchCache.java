@@ -0,0 +1,68 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Локальный кэш батчей, уже зарегистрированных в Redis.
+ * Позволяет не обращаться к Redis при регистрации для последующих записей того же батча.
+ * Запись действительна до окончания временного окна батча: после этого регистрация
+ * снова выполняется через Redis.
+ */
+@Component
+public class RegisteredBatchCache {
+
+    private final Map<String, Long> windowEndByBatchId = new ConcurrentHashMap<>();
+
+    /**
+     * Проверяет, зарегистрирован ли батч и не закончилось ли его временное окно.
+     *
+     * @param batchId идентификатор батча
+     * @param now     текущее время в мс
+     * @return true, если батч зарегистрирован и окно еще открыто
+     */
+    public boolean isRegistered(String batchId, long now) {
+        Long windowEnd = windowEndByBatchId.get(batchId);
+        if (windowEnd == null) {
+            return false;
+        }
+        if (now >= windowEnd) {
+            windowEndByBatchId.remove(batchId, windowEnd);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Запоминает зарегистрированный батч до окончания его временного окна.
+     * Попутно удаляет записи батчей с уже закрытыми окнами.
+     *
+     * @param batchId   идентификатор батча
+     * @param windowEnd время окончания окна в мс
+     * @param now       текущее время в мс
+     */
+    public void put(String batchId, long windowEnd, long now) {
+        windowEndByBatchId.values().removeIf(end -> end <= now);
+        if (windowEnd > now) {
+            windowEndByBatchId.put(batchId, windowEnd);
+        }
+    }
+
+    /**
+     * Удаляет батч из кэша.
+     *
+     * @param batchId идентификатор батча
+     */
+    public void invalidate(String batchId) {
+        windowEndByBatchId.remove(batchId);
+    }
+
+    /**
+     * Очищает кэш.
+     */
+    public void invalidateAll() {
+        windowEndByBatchId.clear();
+    }
+}
@@ -1,7 +1,11 @@
 package com.neighbor.eventmosaic.processor.config;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.processor.component.EventOutputPipeline;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,20 +27,52 @@ public class AppConfig {
      * Создает и настраивает KafkaTemplate для отправки сообщений в Kafka.
      * Использует JsonSerializer для сериализации объектов в JSON, в частности для понятного отображения даты в топике.
      *
-     * @param kafkaProperties свойства Kafka, автоматически настроенные Spring Boot
-     * @param objectMapper    ObjectMapper для сериализации объектов в JSON
+     * @param kafkaProperties     свойства Kafka, автоматически настроенные Spring Boot
+     * @param objectMapper        ObjectMapper для сериализации объектов в JSON
+     * @param eventOutputPipeline фильтр и проекция событий перед отправкой
+     * @param omitNullFields      не сериализовать поля со значением null
      * @return настроенный KafkaTemplate
      */
     @Bean
     @Primary
     public KafkaTemplate<String, Object> kafkaTemplate(KafkaProperties kafkaProperties,
-                                                       ObjectMapper objectMapper) {
+                                                       ObjectMapper objectMapper,
+                                                       EventOutputPipeline eventOutputPipeline,
+                                                       @Value("${kafka.publisher.omit-null-fields:false}") boolean omitNullFields) {
         Map<String, Object> props = kafkaProperties.buildProducerProperties();
         ProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(
                 props,
                 new StringSerializer(),
-                new JsonSerializer<>(objectMapper)
+                new JsonSerializer<>(producerObjectMapper(objectMapper, omitNullFields,
+                        eventOutputPipeline.hasExcludedFields()))
         );
         return new KafkaTemplate<>(factory);
     }
+
+    /**
+     * Создает ObjectMapper продюсера.
+     * С kafka.publisher.omit-null-fields поля со значением null не сериализуются во всех сообщениях.
+     * Если заданы исключаемые поля событий, null не сериализуются только в событиях ({@link ElasticEvent}):
+     * иначе исключенные поля передавались бы как null и не уменьшали размер сообщений,
+     * а состав упоминаний и агрегатов не меняется.
+     *
+     * @param objectMapper        ObjectMapper приложения
+     * @param omitNullFields      не сериализовать поля со значением null во всех сообщениях
+     * @param eventExcludedFields заданы исключаемые поля событий
+     * @return ObjectMapper приложения или его копия с измененными правилами включения полей
+     */
+    static ObjectMapper producerObjectMapper(ObjectMapper objectMapper,
+                                             boolean omitNullFields,
+                                             boolean eventExcludedFields) {
+        if (omitNullFields) {
+            return objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        }
+        if (eventExcludedFields) {
+            ObjectMapper producerMapper = objectMapper.copy();
+            producerMapper.configOverride(ElasticEvent.class)
+                    .setInclude(JsonInclude.Value.empty().withValueInclusion(JsonInclude.Include.NON_NULL));
+            return producerMapper;
+        }
+        return objectMapper;
+    }
 }
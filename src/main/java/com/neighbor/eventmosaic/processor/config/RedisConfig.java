@@ -0,0 +1,33 @@
+package com.neighbor.eventmosaic.processor.config;
+
+import com.neighbor.eventmosaic.processor.codec.StagingCodec;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Конфигурация шаблонов Redis.
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * Создает RedisTemplate для данных батчей: ключи и поля hash — строки,
+     * значения — массивы байт, сформированные {@link StagingCodec}.
+     *
+     * @param connectionFactory фабрика подключений к Redis
+     * @return RedisTemplate с бинарными значениями
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> stagingRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
+}
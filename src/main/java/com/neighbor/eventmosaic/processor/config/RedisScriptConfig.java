@@ -0,0 +1,101 @@
+package com.neighbor.eventmosaic.processor.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Конфигурация Lua-скриптов Redis.
+ * Скрипты выполняются на стороне Redis атомарно и за одно сетевое обращение.
+ */
+@Configuration
+public class RedisScriptConfig {
+
+    /**
+     * Скрипт атомарной регистрации батча: SET NX PX времени старта и ZADD дедлайна окна в активные.
+     *
+     * @return скрипт, возвращающий признак нового батча и время его старта
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> registerBatchScript() {
+        return RedisScript.of(new ClassPathResource("redis/register-batch.lua"), List.class);
+    }
+
+    /**
+     * Скрипт атомарного переноса батчей с истекшим окном в готовые: ZRANGEBYSCORE + ZREM + SADD.
+     *
+     * @return скрипт, возвращающий список перенесенных батчей
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> promoteExpiredBatchesScript() {
+        return RedisScript.of(new ClassPathResource("redis/promote-expired-batches.lua"), List.class);
+    }
+
+    /**
+     * Скрипт атомарного захвата готового батча с арендой: SPOP из готовых + ZADD срока аренды + HSET владельца.
+     *
+     * @return скрипт, возвращающий захваченный батч или null
+     */
+    @Bean
+    public RedisScript<String> claimReadyBatchScript() {
+        return RedisScript.of(new ClassPathResource("redis/claim-ready-batch.lua"), String.class);
+    }
+
+    /**
+     * Скрипт продления аренд батчей экземпляра: ZADD XX нового срока для батчей, которыми он владеет.
+     *
+     * @return скрипт, возвращающий список батчей, аренда которых экземпляру больше не принадлежит
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> renewBatchLeasesScript() {
+        return RedisScript.of(new ClassPathResource("redis/renew-batch-leases.lua"), List.class);
+    }
+
+    /**
+     * Скрипт атомарного возврата батчей с истекшей арендой в готовые: ZRANGEBYSCORE + ZREM + HDEL + SADD.
+     *
+     * @return скрипт, возвращающий список возвращенных батчей
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> reclaimExpiredLeasesScript() {
+        return RedisScript.of(new ClassPathResource("redis/reclaim-expired-leases.lua"), List.class);
+    }
+
+    /**
+     * Скрипт планирования повторной обработки батча: проверка владельца и снятие аренды, HINCRBY попыток и ZADD времени повтора.
+     *
+     * @return скрипт, возвращающий номер попытки и задержку до повтора
+     */
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> scheduleBatchRetryScript() {
+        return RedisScript.of(new ClassPathResource("redis/schedule-batch-retry.lua"), List.class);
+    }
+
+    /**
+     * Скрипт снятия аренды батча с проверкой владельца: HGET владельца + ZREM срока аренды + HDEL владельца.
+     *
+     * @return скрипт, возвращающий 1, если аренда снята или отсутствовала, и 0, если батч арендован другим экземпляром
+     */
+    @Bean
+    public RedisScript<Long> releaseBatchLeaseScript() {
+        return RedisScript.of(new ClassPathResource("redis/release-batch-lease.lua"), Long.class);
+    }
+
+    /**
+     * Скрипт переноса батчей из множества активных прежнего формата в sorted set окон: SREM + GET + ZADD NX.
+     *
+     * @return скрипт, возвращающий количество перенесенных батчей
+     */
+    @Bean
+    public RedisScript<Long> migrateLegacyActiveBatchesScript() {
+        return RedisScript.of(new ClassPathResource("redis/migrate-legacy-active-batches.lua"), Long.class);
+    }
+}
@@ -3,15 +3,28 @@ package com.neighbor.eventmosaic.processor.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Класс для хранения данных батча.
  * Содержит список обработанных событий и упоминаний, готовых для Elasticsearch.
+ * Упоминания, событие которых не найдено, вынесены в отдельный список orphanMentions.
+ * Агрегаты событий батча (rollup) общие для всех порций батча; null, если агрегаты выключены.
  */
 @Data
 @AllArgsConstructor
 public class BatchData {
     private List<ElasticEvent> events;
     private List<ElasticMention> mentions;
+    private List<ElasticMention> orphanMentions;
+    private BatchRollup rollup;
+
+    public BatchData(List<ElasticEvent> events, List<ElasticMention> mentions) {
+        this(events, mentions, Collections.emptyList());
+    }
+
+    public BatchData(List<ElasticEvent> events, List<ElasticMention> mentions, List<ElasticMention> orphanMentions) {
+        this(events, mentions, orphanMentions, null);
+    }
 }
@@ -0,0 +1,267 @@
+package com.neighbor.eventmosaic.processor.dto;
+
+import com.neighbor.eventmosaic.processor.util.LongObjectHashMap;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Агрегаты событий батча по странам действия, корневым кодам CAMEO и классам событий.
+ * <p>
+ * Значения измерений малы и известны заранее, поэтому вместо хеш-таблиц используются массивы
+ * примитивных счетчиков с индексом, вычисляемым из значения: код страны FIPS из двух латинских букв,
+ * корневой код CAMEO из одной-двух цифр, класс события 1-4. Значения вне этих диапазонов
+ * и отсутствующие значения в агрегат измерения не попадают.
+ * <p>
+ * Агрегаты учитывают только события, отправка которых подтверждена Kafka: при обработке событие
+ * откладывается ({@link #stage}), а учитывается после подтверждения отправки по ключу сообщения ({@link #commit}).
+ * Поэтому события, не прошедшие фильтр или не отправленные из-за ошибки, в агрегаты не попадают,
+ * а неотправленные события учитываются агрегатами повторной попытки.
+ * Методы синхронизированы: события откладываются потоком обработки батча, а подтверждаются
+ * потоками завершения отправки.
+ */
+public final class BatchRollup {
+
+    public static final String DIMENSION_COUNTRY = "country";
+    public static final String DIMENSION_EVENT_ROOT_CODE = "eventRootCode";
+    public static final String DIMENSION_QUAD_CLASS = "quadClass";
+
+    private static final int LETTERS = 26;
+    private static final int ROOT_CODES = 100;
+    private static final int QUAD_CLASSES = 5;
+
+    private final Counters countries = new Counters(LETTERS * LETTERS);
+    private final Counters rootCodes = new Counters(ROOT_CODES);
+    private final Counters quadClasses = new Counters(QUAD_CLASSES);
+
+    /**
+     * Отложенные события по globalEventId, ожидающие подтверждения отправки.
+     */
+    private final LongObjectHashMap<StagedEvent> staged = new LongObjectHashMap<>();
+
+    /**
+     * Учитывает событие во всех измерениях.
+     *
+     * @param event событие
+     */
+    public synchronized void add(ElasticEvent event) {
+        add(StagedEvent.from(event));
+    }
+
+    /**
+     * Откладывает событие до подтверждения его отправки. Из события сохраняются только индексы измерений
+     * и значения шкал, поэтому проекция полей события после вызова на агрегаты не влияет.
+     * События без globalEventId не откладываются: ключ их сообщения не совпадает с идентификатором.
+     * Повторно встреченное событие не откладывается: сообщения с одним ключом дают один документ.
+     *
+     * @param event событие
+     */
+    public synchronized void stage(ElasticEvent event) {
+        if (event.getGlobalEventId() != null && !staged.containsKey(event.getGlobalEventId())) {
+            staged.put(event.getGlobalEventId(), StagedEvent.from(event));
+        }
+    }
+
+    /**
+     * Учитывает отложенное событие, отправка которого подтверждена Kafka. Каждое событие учитывается один раз.
+     *
+     * @param key ключ сообщения события (globalEventId)
+     */
+    public synchronized void commit(String key) {
+        long globalEventId;
+        try {
+            globalEventId = Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        StagedEvent event = staged.get(globalEventId);
+        if (event != null && !event.committed) {
+            event.committed = true;
+            add(event);
+        }
+    }
+
+    /**
+     * @return true, если не учтено ни одного события
+     */
+    public synchronized boolean isEmpty() {
+        return countries.isEmpty() && rootCodes.isEmpty() && quadClasses.isEmpty();
+    }
+
+    /**
+     * Формирует документы агрегатов для всех встреченных значений измерений.
+     *
+     * @param batchId     идентификатор батча
+     * @param processedAt время обработки батча в мс
+     * @return документы агрегатов
+     */
+    public synchronized List<BatchSummary> toSummaries(String batchId, long processedAt) {
+        OffsetDateTime processedAtTime = OffsetDateTime.ofInstant(Instant.ofEpochMilli(processedAt), ZoneOffset.UTC);
+        List<BatchSummary> summaries = new ArrayList<>();
+
+        for (int i = 0; i < countries.size(); i++) {
+            if (countries.count[i] > 0) {
+                String country = new String(new char[]{(char) ('A' + i / LETTERS), (char) ('A' + i % LETTERS)});
+                summaries.add(countries.toSummary(i, batchId, processedAt, processedAtTime, DIMENSION_COUNTRY, country));
+            }
+        }
+        for (int i = 0; i < rootCodes.size(); i++) {
+            if (rootCodes.count[i] > 0) {
+                String rootCode = i < 10 ? "0" + i : String.valueOf(i);
+                summaries.add(rootCodes.toSummary(i, batchId, processedAt, processedAtTime, DIMENSION_EVENT_ROOT_CODE, rootCode));
+            }
+        }
+        for (int i = 0; i < quadClasses.size(); i++) {
+            if (quadClasses.count[i] > 0) {
+                summaries.add(quadClasses.toSummary(i, batchId, processedAt, processedAtTime, DIMENSION_QUAD_CLASS, String.valueOf(i)));
+            }
+        }
+        return summaries;
+    }
+
+    private void add(StagedEvent event) {
+        countries.add(event.countryIndex, event.goldsteinScale, event.avgTone);
+        rootCodes.add(event.rootCodeIndex, event.goldsteinScale, event.avgTone);
+        quadClasses.add(event.quadClassIndex, event.goldsteinScale, event.avgTone);
+    }
+
+    private static int countryIndex(String countryCode) {
+        if (countryCode == null || countryCode.length() != 2) {
+            return -1;
+        }
+        int first = Character.toUpperCase(countryCode.charAt(0)) - 'A';
+        int second = Character.toUpperCase(countryCode.charAt(1)) - 'A';
+        if (first < 0 || first >= LETTERS || second < 0 || second >= LETTERS) {
+            return -1;
+        }
+        return first * LETTERS + second;
+    }
+
+    private static int rootCodeIndex(String rootCode) {
+        if (rootCode == null || rootCode.isEmpty() || rootCode.length() > 2) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < rootCode.length(); i++) {
+            int digit = rootCode.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            index = index * 10 + digit;
+        }
+        return index;
+    }
+
+    private static int quadClassIndex(Integer quadClass) {
+        return quadClass == null || quadClass < 1 || quadClass >= QUAD_CLASSES ? -1 : quadClass;
+    }
+
+    private static double toPrimitive(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    /**
+     * Вклад события в агрегаты: индексы значений измерений и значения шкал.
+     */
+    private static final class StagedEvent {
+
+        private final int countryIndex;
+        private final int rootCodeIndex;
+        private final int quadClassIndex;
+        private final double goldsteinScale;
+        private final double avgTone;
+        private boolean committed;
+
+        private StagedEvent(int countryIndex, int rootCodeIndex, int quadClassIndex, double goldsteinScale, double avgTone) {
+            this.countryIndex = countryIndex;
+            this.rootCodeIndex = rootCodeIndex;
+            this.quadClassIndex = quadClassIndex;
+            this.goldsteinScale = goldsteinScale;
+            this.avgTone = avgTone;
+        }
+
+        private static StagedEvent from(ElasticEvent event) {
+            return new StagedEvent(
+                    countryIndex(event.getActionGeoCountryCode()),
+                    rootCodeIndex(event.getEventRootCode()),
+                    quadClassIndex(event.getQuadClass()),
+                    toPrimitive(event.getGoldsteinScale()),
+                    toPrimitive(event.getAvgTone()));
+        }
+    }
+
+    /**
+     * Счетчики одного измерения: параллельные массивы по индексу значения.
+     */
+    private static final class Counters {
+
+        private final long[] count;
+        private final double[] goldsteinScaleSum;
+        private final long[] goldsteinScaleCount;
+        private final double[] avgToneSum;
+        private final long[] avgToneCount;
+        private long total;
+
+        private Counters(int size) {
+            count = new long[size];
+            goldsteinScaleSum = new double[size];
+            goldsteinScaleCount = new long[size];
+            avgToneSum = new double[size];
+            avgToneCount = new long[size];
+        }
+
+        private void add(int index, double goldsteinScale, double avgTone) {
+            if (index < 0) {
+                return;
+            }
+            count[index]++;
+            total++;
+            if (!Double.isNaN(goldsteinScale)) {
+                goldsteinScaleSum[index] += goldsteinScale;
+                goldsteinScaleCount[index]++;
+            }
+            if (!Double.isNaN(avgTone)) {
+                avgToneSum[index] += avgTone;
+                avgToneCount[index]++;
+            }
+        }
+
+        private int size() {
+            return count.length;
+        }
+
+        private boolean isEmpty() {
+            return total == 0;
+        }
+
+        private BatchSummary toSummary(int index,
+                                       String batchId,
+                                       long processedAt,
+                                       OffsetDateTime processedAtTime,
+                                       String dimension,
+                                       String value) {
+            BatchSummary summary = new BatchSummary();
+            summary.setId(batchId + "_" + dimension + "_" + value + "_" + processedAt);
+            summary.setBatchId(batchId);
+            summary.setProcessedAt(processedAtTime);
+            summary.setDimension(dimension);
+            summary.setValue(value);
+            summary.setEventCount(count[index]);
+            summary.setGoldsteinScaleSum(goldsteinScaleSum[index]);
+            summary.setGoldsteinScaleCount(goldsteinScaleCount[index]);
+            summary.setGoldsteinScaleAvg(average(goldsteinScaleSum[index], goldsteinScaleCount[index]));
+            summary.setAvgToneSum(avgToneSum[index]);
+            summary.setAvgToneCount(avgToneCount[index]);
+            summary.setAvgToneAvg(average(avgToneSum[index], avgToneCount[index]));
+            return summary;
+        }
+
+        private static Double average(double sum, long count) {
+            return count == 0 ? null : sum / count;
+        }
+    }
+}
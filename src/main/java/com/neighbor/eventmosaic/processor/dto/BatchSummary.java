@@ -0,0 +1,77 @@
+package com.neighbor.eventmosaic.processor.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+/**
+ * DTO агрегата событий батча для Elasticsearch.
+ * Один документ описывает одно значение измерения (страну, корневой код CAMEO или класс события)
+ * в одном батче. Суммы и количества аддитивны, поэтому агрегаты нескольких попыток отправки батча
+ * и нескольких батчей складываются.
+ */
+@Data
+@NoArgsConstructor
+public class BatchSummary {
+
+    /**
+     * Идентификатор документа: batchId_измерение_значение_время обработки
+     */
+    private String id;
+
+    /**
+     * Идентификатор батча
+     */
+    private String batchId;
+
+    /**
+     * Время обработки батча
+     */
+    private OffsetDateTime processedAt;
+
+    /**
+     * Измерение агрегата (country, eventRootCode, quadClass)
+     */
+    private String dimension;
+
+    /**
+     * Значение измерения
+     */
+    private String value;
+
+    /**
+     * Количество событий
+     */
+    private long eventCount;
+
+    /**
+     * Сумма значений шкалы Голдштейна
+     */
+    private double goldsteinScaleSum;
+
+    /**
+     * Количество событий со значением шкалы Голдштейна
+     */
+    private long goldsteinScaleCount;
+
+    /**
+     * Среднее значение шкалы Голдштейна или null, если значений нет
+     */
+    private Double goldsteinScaleAvg;
+
+    /**
+     * Сумма среднего тона событий
+     */
+    private double avgToneSum;
+
+    /**
+     * Количество событий со значением тона
+     */
+    private long avgToneCount;
+
+    /**
+     * Средний тон событий или null, если значений нет
+     */
+    private Double avgToneAvg;
+}
@@ -93,4 +93,34 @@ public class ElasticMention {
      * Информация о переводе документа
      */
     private String mentionDocTranslationInfo;
+
+    /**
+     * Необработанный код действия CAMEO упомянутого события.
+     * Заполняется при обогащении, если событие найдено
+     */
+    private String eventCode;
+
+    /**
+     * Классификация упомянутого события (1-4).
+     * Заполняется при обогащении, если событие найдено
+     */
+    private Integer quadClass;
+
+    /**
+     * Полное имя географического объекта действия упомянутого события.
+     * Заполняется при обогащении, если событие найдено
+     */
+    private String actionGeoFullName;
+
+    /**
+     * Код страны географического объекта действия упомянутого события.
+     * Заполняется при обогащении, если событие найдено
+     */
+    private String actionGeoCountryCode;
+
+    /**
+     * Географическая точка действия упомянутого события.
+     * Заполняется при обогащении, если событие найдено
+     */
+    private GeoPoint actionLocation;
 }
@@ -0,0 +1,91 @@
+package com.neighbor.eventmosaic.processor.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Поля события, которыми обогащаются его упоминания.
+ * Компактная проекция {@link ElasticEvent}: индекс событий батча и кэш недавних событий хранят только ее,
+ * а не событие целиком. Координаты хранятся примитивами (NaN - значение отсутствует),
+ * коды CAMEO и стран с небольшим числом значений интернируются.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class EventEnrichment {
+
+    /**
+     * Необработанный код действия CAMEO
+     */
+    private final String eventCode;
+
+    /**
+     * Классификация события (1-4)
+     */
+    private final Integer quadClass;
+
+    /**
+     * Полное имя географического объекта действия
+     */
+    private final String actionGeoFullName;
+
+    /**
+     * Код страны географического объекта действия
+     */
+    private final String actionGeoCountryCode;
+
+    /**
+     * Широта точки действия или NaN
+     */
+    private final double actionLat;
+
+    /**
+     * Долгота точки действия или NaN
+     */
+    private final double actionLon;
+
+    /**
+     * Создает проекцию события.
+     *
+     * @param event событие
+     * @return поля события для обогащения упоминаний
+     */
+    public static EventEnrichment from(ElasticEvent event) {
+        GeoPoint location = event.getActionLocation();
+        return new EventEnrichment(
+                intern(event.getEventCode()),
+                event.getQuadClass(),
+                event.getActionGeoFullName(),
+                intern(event.getActionGeoCountryCode()),
+                location == null ? Double.NaN : toPrimitive(location.getLat()),
+                location == null ? Double.NaN : toPrimitive(location.getLon()));
+    }
+
+    /**
+     * Копирует поля события в упоминание.
+     *
+     * @param mention упоминание события
+     */
+    public void applyTo(ElasticMention mention) {
+        mention.setEventCode(eventCode);
+        mention.setQuadClass(quadClass);
+        mention.setActionGeoFullName(actionGeoFullName);
+        mention.setActionGeoCountryCode(actionGeoCountryCode);
+        mention.setActionLocation(Double.isNaN(actionLat) && Double.isNaN(actionLon)
+                ? null
+                : new GeoPoint(toObject(actionLat), toObject(actionLon)));
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    private static double toPrimitive(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    private static Double toObject(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
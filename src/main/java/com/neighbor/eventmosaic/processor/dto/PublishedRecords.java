@@ -0,0 +1,41 @@
+package com.neighbor.eventmosaic.processor.dto;
+
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ключи записей батча, отправка которых подтверждена Kafka.
+ * Ключ сообщения совпадает с идентификатором записи в хранилище батча, поэтому перед повторной
+ * отправкой уже отправленные записи удаляются из хранилища, и повторяются только неотправленные.
+ * Заполняется из callback'ов продюсера, поэтому потокобезопасен.
+ */
+public class PublishedRecords {
+
+    private final Set<String> eventKeys = ConcurrentHashMap.newKeySet();
+    private final Set<String> mentionKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Отмечает запись как отправленную.
+     *
+     * @param type тип записи
+     * @param key  ключ сообщения (идентификатор записи)
+     */
+    public void add(BatchRecordType type, String key) {
+        keys(type).add(key);
+    }
+
+    /**
+     * Возвращает ключи отправленных записей указанного типа.
+     *
+     * @param type тип записей
+     * @return множество ключей
+     */
+    public Set<String> keys(BatchRecordType type) {
+        return switch (type) {
+            case EVENT -> eventKeys;
+            case MENTION -> mentionKeys;
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.neighbor.eventmosaic.processor.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Событие приложения: экземпляр сервиса узнал об открытом временном окне батча.
+ * Публикуется при регистрации батча, если окно еще не истекло.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class BatchWindowOpenedEvent {
+
+    /**
+     * Идентификатор батча.
+     */
+    private final String batchId;
+
+    /**
+     * Время закрытия окна батча в мс.
+     */
+    private final long windowEnd;
+}
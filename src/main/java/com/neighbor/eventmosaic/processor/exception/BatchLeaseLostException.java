@@ -0,0 +1,8 @@
+package com.neighbor.eventmosaic.processor.exception;
+
+public class BatchLeaseLostException extends EmProcessorException {
+
+    public BatchLeaseLostException(String message) {
+        super(message);
+    }
+}
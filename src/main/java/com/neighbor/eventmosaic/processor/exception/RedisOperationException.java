@@ -2,6 +2,10 @@ package com.neighbor.eventmosaic.processor.exception;
 
 public class RedisOperationException extends EmProcessorException {
 
+    public RedisOperationException(String message) {
+        super(message);
+    }
+
     public RedisOperationException(String message, Throwable cause) {
         super(message, cause);
     }
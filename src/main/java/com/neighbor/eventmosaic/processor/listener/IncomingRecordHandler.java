@@ -0,0 +1,51 @@
+package com.neighbor.eventmosaic.processor.listener;
+
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Общая логика приема сообщений для поштучного ({@link KafkaMessageListener})
+ * и пакетного ({@link KafkaBatchMessageListener}) режимов: регистрация батча
+ * и учет принятых записей в метриках.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IncomingRecordHandler {
+
+    private final BatchStateService batchStateService;
+    private final ProcessorMetrics processorMetrics;
+
+    /**
+     * Общая логика регистрации батча и логгирования начала временного окна.
+     *
+     * @param batchId идентификатор батча
+     */
+    public void handleBatchRegistration(String batchId) {
+        boolean isNewBatch = batchStateService.registerBatch(batchId);
+        if (isNewBatch) {
+            log.info("Начато временное окно для нового батча: {}", batchId);
+        }
+    }
+
+    /**
+     * Выполняет сохранение записей и учитывает принятые записи в метриках с результатом сохранения.
+     *
+     * @param type    тип записей
+     * @param records количество записей
+     * @param store   сохранение записей
+     */
+    public void storeWithMetrics(BatchRecordType type, int records, Runnable store) {
+        try {
+            store.run();
+            processorMetrics.recordConsumed(type.getCode(), ProcessorMetrics.OUTCOME_SUCCESS, records);
+        } catch (RuntimeException e) {
+            processorMetrics.recordConsumed(type.getCode(), ProcessorMetrics.OUTCOME_FAILURE, records);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.neighbor.eventmosaic.processor.listener;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.neighbor.eventmosaic.processor.listener.KafkaMessageListener.BATCH_HEADER;
+
+/**
+ * Сервис для пакетного приема сообщений из Kafka.
+ * Получает записи целым poll'ом, группирует их по заголовку X-Batch-ID,
+ * регистрирует каждый батч один раз и сохраняет группу одной пакетной операцией Redis.
+ * <p>
+ * Запись без заголовка X-Batch-ID или без значения (например, не десериализованная) передается
+ * обработчику ошибок контейнера: записи до нее сохраняются, а для нее выбрасывается
+ * {@link BatchListenerFailedException} с ее индексом, как при ошибке привязки заголовка
+ * в {@link KafkaMessageListener}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.listener.batch.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaBatchMessageListener {
+
+    private final IncomingRecordHandler incomingRecordHandler;
+    private final EventProcessingService eventProcessingService;
+
+    /**
+     * Обрабатывает пачку сообщений с событиями из входного топика.
+     *
+     * @param records записи, полученные за один poll
+     */
+    @KafkaListener(
+            topics = "${kafka.topic.consumer.adapter-event}",
+            batch = "true",
+            properties = "max.poll.records=${kafka.listener.batch.max-poll-records:500}")
+    public void consumeEvents(List<ConsumerRecord<String, Event>> records) {
+        log.debug("Получено {} сообщений с событиями", records.size());
+
+        int invalidIndex = findInvalidRecord(records);
+        groupByBatch(records.subList(0, invalidIndex)).forEach((batchId, events) ->
+                incomingRecordHandler.storeWithMetrics(BatchRecordType.EVENT, events.size(), () -> {
+                    incomingRecordHandler.handleBatchRegistration(batchId);
+                    eventProcessingService.storeEvents(batchId, events);
+                }));
+        failOnInvalidRecord(records, invalidIndex);
+    }
+
+    /**
+     * Обрабатывает пачку сообщений с упоминаниями из входного топика.
+     *
+     * @param records записи, полученные за один poll
+     */
+    @KafkaListener(
+            topics = "${kafka.topic.consumer.adapter-mention}",
+            batch = "true",
+            properties = "max.poll.records=${kafka.listener.batch.max-poll-records:500}")
+    public void consumeMentions(List<ConsumerRecord<String, Mention>> records) {
+        log.debug("Получено {} сообщений с упоминаниями", records.size());
+
+        int invalidIndex = findInvalidRecord(records);
+        groupByBatch(records.subList(0, invalidIndex)).forEach((batchId, mentions) ->
+                incomingRecordHandler.storeWithMetrics(BatchRecordType.MENTION, mentions.size(), () -> {
+                    incomingRecordHandler.handleBatchRegistration(batchId);
+                    eventProcessingService.storeMentions(batchId, mentions);
+                }));
+        failOnInvalidRecord(records, invalidIndex);
+    }
+
+    /**
+     * Группирует значения записей по идентификатору батча из заголовка с сохранением порядка.
+     * Все записи должны содержать заголовок и значение ({@link #findInvalidRecord}).
+     *
+     * @param records записи Kafka
+     * @return значения записей, сгруппированные по batchId
+     */
+    private <T> Map<String, List<T>> groupByBatch(List<ConsumerRecord<String, T>> records) {
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+
+        for (ConsumerRecord<String, T> consumerRecord : records) {
+            Header header = consumerRecord.headers().lastHeader(BATCH_HEADER);
+            String batchId = new String(header.value(), StandardCharsets.UTF_8);
+            groups.computeIfAbsent(batchId, id -> new ArrayList<>()).add(consumerRecord.value());
+        }
+        return groups;
+    }
+
+    /**
+     * Ищет первую запись без заголовка X-Batch-ID или без значения.
+     *
+     * @param records записи Kafka
+     * @return индекс первой некорректной записи или размер списка, если все записи корректны
+     */
+    private <T> int findInvalidRecord(List<ConsumerRecord<String, T>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, T> consumerRecord = records.get(i);
+            if (consumerRecord.headers().lastHeader(BATCH_HEADER) == null || consumerRecord.value() == null) {
+                return i;
+            }
+        }
+        return records.size();
+    }
+
+    /**
+     * Передает некорректную запись обработчику ошибок контейнера.
+     * Смещения записей до нее фиксируются, сама запись после попыток передается recoverer'у,
+     * а записи после нее будут получены повторно.
+     * Причина — {@link MessageConversionException}, которую DefaultErrorHandler не повторяет.
+     *
+     * @param records      записи Kafka
+     * @param invalidIndex индекс первой некорректной записи
+     * @throws BatchListenerFailedException если некорректная запись найдена
+     */
+    private <T> void failOnInvalidRecord(List<ConsumerRecord<String, T>> records, int invalidIndex) {
+        if (invalidIndex == records.size()) {
+            return;
+        }
+        ConsumerRecord<String, T> consumerRecord = records.get(invalidIndex);
+        log.warn("Сообщение без заголовка {} или без значения передано обработчику ошибок: топик {}, партиция {}, смещение {}",
+                BATCH_HEADER, consumerRecord.topic(), consumerRecord.partition(), consumerRecord.offset());
+        throw new BatchListenerFailedException(
+                "Сообщение без заголовка " + BATCH_HEADER + " или без значения",
+                new MessageConversionException("Сообщение без заголовка " + BATCH_HEADER + " или без значения"),
+                invalidIndex);
+    }
+}
@@ -2,10 +2,11 @@ package com.neighbor.eventmosaic.processor.listener;
 
 import com.neighbor.eventmosaic.library.common.dto.Event;
 import com.neighbor.eventmosaic.library.common.dto.Mention;
-import com.neighbor.eventmosaic.processor.service.BatchStateService;
 import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
@@ -14,15 +15,18 @@ import org.springframework.stereotype.Component;
 /**
  * Сервис для приема и обработки сообщений из Kafka.
  * Сохраняет события и упоминания в Redis в рамках временного окна.
+ * Обрабатывает сообщения по одному; используется, если пакетный режим
+ * ({@link KafkaBatchMessageListener}) отключен.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.listener.batch.enabled", havingValue = "false")
 public class KafkaMessageListener {
 
-    private static final String BATCH_HEADER = "X-Batch-ID";
+    static final String BATCH_HEADER = "X-Batch-ID";
 
-    private final BatchStateService batchStateService;
+    private final IncomingRecordHandler incomingRecordHandler;
     private final EventProcessingService eventProcessingService;
 
     /**
@@ -37,9 +41,11 @@ public class KafkaMessageListener {
     public void consumeEvent(@Payload Event event,
                              @Header(value = BATCH_HEADER) String batchId) {
 
-        handleBatchRegistration(batchId);
-        log.debug("Получено событие с ID {} из батча {}", event.getGlobalEventId(), batchId);
-        eventProcessingService.storeEvent(batchId, event);
+        incomingRecordHandler.storeWithMetrics(BatchRecordType.EVENT, 1, () -> {
+            incomingRecordHandler.handleBatchRegistration(batchId);
+            log.debug("Получено событие с ID {} из батча {}", event.getGlobalEventId(), batchId);
+            eventProcessingService.storeEvent(batchId, event);
+        });
     }
 
     /**
@@ -54,21 +60,11 @@ public class KafkaMessageListener {
     public void consumeMention(@Payload Mention mention,
                                @Header(value = BATCH_HEADER) String batchId) {
 
-        handleBatchRegistration(batchId);
-        log.debug("Получено упоминание для события с ID {} из батча {}",
-                mention.getGlobalEventId(), batchId);
-        eventProcessingService.storeMention(batchId, mention);
-    }
-
-    /**
-     * Общая логика регистрации батча и логгирования начала временного окна.
-     *
-     * @param batchId идентификатор батча
-     */
-    private void handleBatchRegistration(String batchId) {
-        boolean isNewBatch = batchStateService.registerBatch(batchId);
-        if (isNewBatch) {
-            log.info("Начато временное окно для нового батча: {}", batchId);
-        }
+        incomingRecordHandler.storeWithMetrics(BatchRecordType.MENTION, 1, () -> {
+            incomingRecordHandler.handleBatchRegistration(batchId);
+            log.debug("Получено упоминание для события с ID {} из батча {}",
+                    mention.getGlobalEventId(), batchId);
+            eventProcessingService.storeMention(batchId, mention);
+        });
     }
 }
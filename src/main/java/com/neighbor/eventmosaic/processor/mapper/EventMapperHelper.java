@@ -6,12 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.Named;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 @Slf4j
 @Component
@@ -74,9 +69,8 @@ public class EventMapperHelper {
         if (day == null) {
             return null;
         }
-        String dayStr = String.valueOf(day);
-        if (dayStr.length() == 8) {
-            return dayStr.substring(0, 4) + "-" + dayStr.substring(4, 6) + "-" + dayStr.substring(6, 8);
+        if (GdeltDateDecoder.isDay(day)) {
+            return GdeltDateDecoder.indexDate(day);
         }
         log.warn("Некорректный формат поля 'day' для ElasticEvent.elasticIndexDate: {}", day);
         return null;
@@ -94,18 +88,15 @@ public class EventMapperHelper {
         if (day == null) {
             return null;
         }
-        String dayStr = String.valueOf(day);
-        try {
-            if (dayStr.length() == 8) {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-                LocalDate localDate = LocalDate.parse(dayStr, formatter);
-                return OffsetDateTime.of(localDate.atStartOfDay(), ZoneOffset.UTC);
-            }
+        if (!GdeltDateDecoder.isDay(day)) {
             log.warn("Некорректная длина поля 'day' для ElasticEvent.eventDate: {}", day);
-        } catch (DateTimeParseException e) {
-            log.warn("Некорректный формат поля 'day' для ElasticEvent.eventDate: {}. Ошибка: {}", day, e.getMessage());
+            return null;
         }
-        return null;
+        OffsetDateTime startOfDay = GdeltDateDecoder.startOfDay(day);
+        if (startOfDay == null) {
+            log.warn("Некорректный формат поля 'day' для ElasticEvent.eventDate: {}", day);
+        }
+        return startOfDay;
     }
 
     /**
@@ -120,17 +111,14 @@ public class EventMapperHelper {
         if (timestamp == null) {
             return null;
         }
-        String tsStr = String.valueOf(timestamp);
-        try {
-            if (tsStr.length() == 14) {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-                LocalDateTime ldt = LocalDateTime.parse(tsStr, formatter);
-                return OffsetDateTime.of(ldt, ZoneOffset.UTC);
-            }
+        if (!GdeltDateDecoder.isTimestamp(timestamp)) {
             log.warn("Некорректная длина поля timestamp (Long) для OffsetDateTime: {}", timestamp);
-        } catch (DateTimeParseException e) {
-            log.warn("Некорректный формат поля timestamp (Long) для OffsetDateTime: {}. Ошибка: {}", timestamp, e.getMessage());
+            return null;
         }
-        return null;
+        OffsetDateTime dateTime = GdeltDateDecoder.dateTime(timestamp);
+        if (dateTime == null) {
+            log.warn("Некорректный формат поля timestamp (Long) для OffsetDateTime: {}", timestamp);
+        }
+        return dateTime;
     }
 }
@@ -0,0 +1,145 @@
+package com.neighbor.eventmosaic.processor.mapper;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+
+/**
+ * Декодирование числовых дат GDELT (YYYYMMDD и YYYYMMDDHHMMSS) арифметикой над цифрами,
+ * без промежуточных строк и DateTimeFormatter.
+ * <p>
+ * Записи одного батча относятся к нескольким соседним дням, поэтому начало дня и строка даты индекса
+ * кэшируются по ключу YYYYMMDD в небольшой таблице прямого отображения: повторное обращение к тому же
+ * дню не создает новых объектов, кроме итогового OffsetDateTime со временем суток.
+ */
+final class GdeltDateDecoder {
+
+    private static final int MIN_DAY = 10_000_000;
+    private static final int MAX_DAY = 99_999_999;
+    private static final long MIN_TIMESTAMP = 10_000_000_000_000L;
+    private static final long MAX_TIMESTAMP = 99_999_999_999_999L;
+
+    private static final int CACHE_SIZE = 64;
+    private static final DayEntry[] CACHE = new DayEntry[CACHE_SIZE];
+
+    private GdeltDateDecoder() {
+    }
+
+    /**
+     * Проверяет, что число записано ровно восемью цифрами (YYYYMMDD).
+     */
+    static boolean isDay(long value) {
+        return value >= MIN_DAY && value <= MAX_DAY;
+    }
+
+    /**
+     * Проверяет, что число записано не менее чем восемью цифрами, то есть начинается с YYYYMMDD.
+     */
+    static boolean hasDay(long value) {
+        return value >= MIN_DAY;
+    }
+
+    /**
+     * Проверяет, что число записано ровно четырнадцатью цифрами (YYYYMMDDHHMMSS).
+     */
+    static boolean isTimestamp(long value) {
+        return value >= MIN_TIMESTAMP && value <= MAX_TIMESTAMP;
+    }
+
+    /**
+     * Возвращает начало дня в UTC для даты YYYYMMDD.
+     *
+     * @param day дата из восьми цифр
+     * @return начало дня или null, если месяц или день месяца некорректны
+     */
+    static OffsetDateTime startOfDay(int day) {
+        return entry(day).startOfDay();
+    }
+
+    /**
+     * Возвращает дату и время в UTC для значения YYYYMMDDHHMMSS.
+     *
+     * @param timestamp дата и время из четырнадцати цифр
+     * @return дата и время или null, если какая-либо из частей некорректна
+     */
+    static OffsetDateTime dateTime(long timestamp) {
+        OffsetDateTime startOfDay = startOfDay((int) (timestamp / 1_000_000));
+        if (startOfDay == null) {
+            return null;
+        }
+        int time = (int) (timestamp % 1_000_000);
+        int hours = time / 10_000;
+        int minutes = time / 100 % 100;
+        int seconds = time % 100;
+        if (hours > 23 || minutes > 59 || seconds > 59) {
+            return null;
+        }
+        return time == 0 ? startOfDay : startOfDay.plusSeconds(hours * 3600L + minutes * 60L + seconds);
+    }
+
+    /**
+     * Возвращает строку даты индекса "YYYY-MM-DD" для даты YYYYMMDD.
+     * Цифры переносятся как есть, без проверки календарной корректности.
+     *
+     * @param day дата из восьми цифр
+     * @return строка в формате "YYYY-MM-DD"
+     */
+    static String indexDate(int day) {
+        return entry(day).indexDate();
+    }
+
+    /**
+     * Приводит число из восьми и более цифр к первым восьми цифрам (YYYYMMDD).
+     */
+    static int leadingDay(long value) {
+        long day = value;
+        while (day > MAX_DAY) {
+            day /= 10;
+        }
+        return (int) day;
+    }
+
+    private static DayEntry entry(int day) {
+        int slot = (day ^ (day >>> 7)) & (CACHE_SIZE - 1);
+        DayEntry entry = CACHE[slot];
+        if (entry == null || entry.day() != day) {
+            entry = new DayEntry(day, decodeStartOfDay(day), formatIndexDate(day));
+            CACHE[slot] = entry;
+        }
+        return entry;
+    }
+
+    private static OffsetDateTime decodeStartOfDay(int day) {
+        int year = day / 10_000;
+        int month = day / 100 % 100;
+        int dayOfMonth = day % 100;
+        if (month < 1 || month > 12 || dayOfMonth < 1
+                || dayOfMonth > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return OffsetDateTime.of(LocalDate.of(year, month, dayOfMonth).atStartOfDay(), ZoneOffset.UTC);
+    }
+
+    private static String formatIndexDate(int day) {
+        char[] chars = new char[10];
+        int rest = day;
+        for (int i = 9; i >= 0; i--) {
+            if (i == 4 || i == 7) {
+                chars[i] = '-';
+                continue;
+            }
+            chars[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Закэшированное представление одного дня. Неизменяемо, поэтому таблица кэша
+     * может без синхронизации читаться и перезаписываться из нескольких потоков.
+     */
+    private record DayEntry(int day, OffsetDateTime startOfDay, String indexDate) {
+    }
+}
@@ -13,6 +13,11 @@ public interface MentionMapper {
     @Mapping(target = "elasticIndexDate", source = "mentionTimeDate", qualifiedByName = "longToElasticIndexDateString")
     @Mapping(target = "eventTimeDate", source = "eventTimeDate", qualifiedByName = "longToOffsetDateTime")
     @Mapping(target = "mentionTimeDate", source = "mentionTimeDate", qualifiedByName = "longToOffsetDateTime")
+    @Mapping(target = "eventCode", ignore = true)
+    @Mapping(target = "quadClass", ignore = true)
+    @Mapping(target = "actionGeoFullName", ignore = true)
+    @Mapping(target = "actionGeoCountryCode", ignore = true)
+    @Mapping(target = "actionLocation", ignore = true)
     ElasticMention toElasticMention(Mention mention);
 
     List<ElasticMention> toElasticMentionList(List<Mention> mentions);
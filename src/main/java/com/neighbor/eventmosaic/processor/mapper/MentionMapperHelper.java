@@ -4,11 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.mapstruct.Named;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 @Slf4j
 @Component
@@ -27,16 +23,12 @@ public class MentionMapperHelper {
             return null;
         }
 
-        String tsStr = String.valueOf(timestamp);
-        if (tsStr.length() == 14) { // YYYYMMDDHHMMSS
-            try {
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-                LocalDateTime ldt = LocalDateTime.parse(tsStr, formatter);
-                return OffsetDateTime.of(ldt, ZoneOffset.UTC);
-            } catch (DateTimeParseException e) {
-                log.warn("Некорректный формат поля timestamp (Long) для OffsetDateTime: {}. Ошибка: {}", timestamp, e.getMessage());
-                return null;
+        if (GdeltDateDecoder.isTimestamp(timestamp)) { // YYYYMMDDHHMMSS
+            OffsetDateTime dateTime = GdeltDateDecoder.dateTime(timestamp);
+            if (dateTime == null) {
+                log.warn("Некорректный формат поля timestamp (Long) для OffsetDateTime: {}", timestamp);
             }
+            return dateTime;
         }
 
         log.warn("Некорректная длина поля timestamp (Long) для OffsetDateTime: {}", timestamp);
@@ -53,10 +45,9 @@ public class MentionMapperHelper {
     @Named("longToElasticIndexDateString")
     public String longToElasticIndexDateString(Long timestamp) {
         if (timestamp == null) return null;
-        String tsStr = String.valueOf(timestamp);
-        if (tsStr.length() >= 8) { // Убедимся, что есть хотя бы YYYYMMDD
+        if (GdeltDateDecoder.hasDay(timestamp)) { // Убедимся, что есть хотя бы YYYYMMDD
             // Берем только дату YYYY-MM-DD
-            return tsStr.substring(0, 4) + "-" + tsStr.substring(4, 6) + "-" + tsStr.substring(6, 8);
+            return GdeltDateDecoder.indexDate(GdeltDateDecoder.leadingDay(timestamp));
         }
         log.warn("Некорректная длина поля timestamp (Long) для ElasticMention.elasticIndexDate: {}", timestamp);
         return null;
@@ -0,0 +1,535 @@
+package com.neighbor.eventmosaic.processor.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Компонент для регистрации метрик сервиса обработки.
+ * Метрики публикуются в общий MeterRegistry и экспортируются через Prometheus.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProcessorMetrics {
+
+    private static final String REDIS_ROUND_TRIPS = "processor.redis.round.trips";
+    private static final String REDIS_RECORDS = "processor.redis.records";
+    private static final String REDIS_ROUND_TRIPS_PER_RECORD = "processor.redis.round.trips.per.record";
+
+    private static final String BATCH_READ = "processor.batch.read";
+    private static final String BATCH_READ_RECORDS = "processor.batch.read.records";
+    private static final String BATCH_READ_THROUGHPUT = "processor.batch.read.throughput";
+
+    private static final String STAGING_BYTES = "processor.staging.bytes";
+    private static final String STAGING_RECORD_SIZE = "processor.staging.record.size";
+
+    private static final String STAGING_COMPRESSION = "processor.staging.compression";
+    private static final String STAGING_COMPRESSION_RATIO = "processor.staging.compression.ratio";
+    private static final String STAGING_DECOMPRESSION = "processor.staging.decompression";
+
+    private static final String READY_QUEUE_DEPTH = "processor.batch.ready.queue.depth";
+    private static final String ACTIVE_BATCH_WINDOWS = "processor.batch.active.windows";
+    private static final String BATCH_AGE = "processor.batch.age";
+    private static final String BATCH_END_TO_END = "processor.batch.end.to.end";
+    private static final String BATCH_REGISTERED = "processor.batch.registered";
+    private static final String BATCH_PROMOTED = "processor.batch.promoted";
+    private static final String LEASES_RECLAIMED = "processor.batch.leases.reclaimed";
+    private static final String LEASES_LOST = "processor.batch.leases.lost";
+    private static final String RETRY_SCHEDULED = "processor.batch.retry.scheduled";
+    private static final String RETRY_EXHAUSTED = "processor.batch.retry.exhausted";
+    private static final String BATCH_EXPIRED = "processor.batch.expired";
+    private static final String BATCH_EXPIRED_RECORDS = "processor.batch.expired.records";
+    private static final String BATCH_RECORDS = "processor.batch.records";
+    private static final String BATCH_PROCESS = "processor.batch.process";
+    private static final String BATCH_MAPPING = "processor.batch.mapping";
+    private static final String MENTIONS_JOINED = "processor.batch.mentions.joined";
+    private static final String MENTIONS_ORPHAN = "processor.batch.mentions.orphan";
+    private static final String EVENT_CACHE_HITS = "processor.event.cache.hits";
+    private static final String EVENT_CACHE_MISSES = "processor.event.cache.misses";
+    private static final String EVENT_CACHE_SIZE = "processor.event.cache.size";
+    private static final String DEDUP_DUPLICATES = "processor.dedup.duplicates";
+    private static final String OUTPUT_FILTERED = "processor.output.filtered";
+    private static final String BATCH_CLEANUP = "processor.batch.cleanup";
+    private static final String BATCH_CLEANUP_KEYS = "processor.batch.cleanup.keys";
+    private static final String BATCH_CLEANUP_THROUGHPUT = "processor.batch.cleanup.throughput";
+
+    private static final String LISTENER_RECORDS = "processor.listener.records";
+
+    private static final String KAFKA_PUBLISHED_RECORDS = "processor.kafka.published.records";
+    private static final String KAFKA_PUBLISHED_BYTES = "processor.kafka.published.bytes";
+    private static final String KAFKA_PUBLISH_CHUNK = "processor.kafka.publish.chunk";
+    private static final String KAFKA_SEND = "processor.kafka.send";
+    private static final String KAFKA_FAILED_RECORDS = "processor.kafka.failed.records";
+
+    private static final String TAG_OPERATION = "operation";
+    private static final String TAG_TYPE = "type";
+    private static final String TAG_TOPIC = "topic";
+    private static final String TAG_ALGORITHM = "algorithm";
+    private static final String TAG_OUTCOME = "outcome";
+    private static final String TAG_STAGE = "stage";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+
+    public static final String DEDUP_STAGE_BATCH = "batch";
+    public static final String DEDUP_STAGE_PUBLISHED = "published";
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong readyQueueDepth = new AtomicLong();
+    private final AtomicLong activeBatchWindows = new AtomicLong();
+    private final AtomicLong eventCacheSize = new AtomicLong();
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder(READY_QUEUE_DEPTH, readyQueueDepth, AtomicLong::get)
+                .description("Количество батчей, ожидающих обработки")
+                .register(meterRegistry);
+        Gauge.builder(ACTIVE_BATCH_WINDOWS, activeBatchWindows, AtomicLong::get)
+                .description("Количество батчей с открытым окном")
+                .register(meterRegistry);
+        Gauge.builder(EVENT_CACHE_SIZE, eventCacheSize, AtomicLong::get)
+                .description("Количество событий в кэше недавних событий")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Учитывает записи, принятые слушателем из входного топика.
+     *
+     * @param type    тип записей (event, mention)
+     * @param outcome результат сохранения (success, failure)
+     * @param records количество принятых записей
+     */
+    public void recordConsumed(String type, String outcome, int records) {
+        meterRegistry.counter(LISTENER_RECORDS, TAG_TYPE, type, TAG_OUTCOME, outcome).increment(records);
+    }
+
+    /**
+     * Учитывает количество сетевых обращений к Redis, затраченных на обработку записей.
+     * Отношение processor.redis.round.trips к processor.redis.records дает среднее
+     * количество обращений на одну запись.
+     *
+     * @param operation  операция (например, store-event, register-batch)
+     * @param records    количество записей, обработанных за вызов
+     * @param roundTrips количество сетевых обращений к Redis
+     */
+    public void recordRedisRoundTrips(String operation, int records, int roundTrips) {
+        if (records <= 0) {
+            return;
+        }
+        meterRegistry.counter(REDIS_ROUND_TRIPS, TAG_OPERATION, operation).increment(roundTrips);
+        meterRegistry.counter(REDIS_RECORDS, TAG_OPERATION, operation).increment(records);
+        DistributionSummary.builder(REDIS_ROUND_TRIPS_PER_RECORD)
+                .description("Количество обращений к Redis на одну запись")
+                .tag(TAG_OPERATION, operation)
+                .register(meterRegistry)
+                .record((double) roundTrips / records);
+    }
+
+    /**
+     * Учитывает чтение данных батча из Redis: время чтения с десериализацией,
+     * количество прочитанных записей и скорость чтения (записей в секунду).
+     *
+     * @param type         тип записей (event, mention)
+     * @param records      количество прочитанных записей
+     * @param elapsedNanos длительность чтения в наносекундах
+     */
+    public void recordBatchRead(String type, int records, long elapsedNanos) {
+        Timer.builder(BATCH_READ)
+                .description("Время чтения данных батча из Redis")
+                .tag(TAG_TYPE, type)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter(BATCH_READ_RECORDS, TAG_TYPE, type).increment(records);
+
+        if (records > 0 && elapsedNanos > 0) {
+            DistributionSummary.builder(BATCH_READ_THROUGHPUT)
+                    .description("Скорость чтения данных батча из Redis, записей в секунду")
+                    .tag(TAG_TYPE, type)
+                    .register(meterRegistry)
+                    .record(records * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        }
+    }
+
+    /**
+     * Обновляет глубину очереди готовых к обработке батчей.
+     *
+     * @param depth количество батчей в множестве готовых
+     */
+    public void recordReadyQueueDepth(long depth) {
+        readyQueueDepth.set(depth);
+    }
+
+    /**
+     * Обновляет количество батчей с открытым окном.
+     *
+     * @param count количество батчей в sorted set окон активных батчей
+     */
+    public void recordActiveBatchWindows(long count) {
+        activeBatchWindows.set(count);
+    }
+
+    /**
+     * Учитывает регистрацию нового батча (открытие окна).
+     */
+    public void recordBatchRegistered() {
+        meterRegistry.counter(BATCH_REGISTERED).increment();
+    }
+
+    /**
+     * Учитывает батчи, перенесенные в готовые после закрытия окна.
+     *
+     * @param count количество перенесенных батчей
+     */
+    public void recordBatchesPromoted(int count) {
+        if (count > 0) {
+            meterRegistry.counter(BATCH_PROMOTED).increment(count);
+        }
+    }
+
+    /**
+     * Учитывает батчи, возвращенные в готовые после истечения аренды.
+     *
+     * @param count количество возвращенных батчей
+     */
+    public void recordLeasesReclaimed(int count) {
+        if (count > 0) {
+            meterRegistry.counter(LEASES_RECLAIMED).increment(count);
+        }
+    }
+
+    /**
+     * Учитывает аренды, утраченные экземпляром во время обработки батча (истекли до продления).
+     *
+     * @param count количество утраченных аренд
+     */
+    public void recordLeasesLost(int count) {
+        if (count > 0) {
+            meterRegistry.counter(LEASES_LOST).increment(count);
+        }
+    }
+
+    /**
+     * Учитывает батч, повторная обработка которого запланирована после ошибки отправки.
+     */
+    public void recordRetryScheduled() {
+        meterRegistry.counter(RETRY_SCHEDULED).increment();
+    }
+
+    /**
+     * Учитывает батч, который не удалось отправить за максимальное количество попыток.
+     */
+    public void recordRetryExhausted() {
+        meterRegistry.counter(RETRY_EXHAUSTED).increment();
+    }
+
+    /**
+     * Учитывает батч, данные которого истекли по TTL до начала обработки.
+     */
+    public void recordBatchExpired() {
+        meterRegistry.counter(BATCH_EXPIRED).increment();
+    }
+
+    /**
+     * Учитывает записи батча, которые истекли по TTL до чтения.
+     *
+     * @param type    тип записей (event или mention)
+     * @param records количество истекших записей
+     */
+    public void recordExpiredRecords(String type, int records) {
+        if (records > 0) {
+            meterRegistry.counter(BATCH_EXPIRED_RECORDS, TAG_TYPE, type).increment(records);
+        }
+    }
+
+    /**
+     * Учитывает количество записей одного типа, накопленных в батче за время окна.
+     *
+     * @param type    тип записей (event, mention)
+     * @param records количество записей батча
+     */
+    public void recordBatchRecords(String type, int records) {
+        DistributionSummary.builder(BATCH_RECORDS)
+                .description("Количество записей в батче")
+                .tag(TAG_TYPE, type)
+                .register(meterRegistry)
+                .record(records);
+    }
+
+    /**
+     * Учитывает время обработки батча сервисом: чтение из Redis, десериализацию, маппинг
+     * и предварительную обработку (в потоковом режиме — вместе с передачей порций на отправку).
+     *
+     * @param outcome      результат (success, failure)
+     * @param elapsedNanos длительность обработки в наносекундах
+     */
+    public void recordBatchProcessing(String outcome, long elapsedNanos) {
+        Timer.builder(BATCH_PROCESS)
+                .description("Время обработки данных батча")
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает время маппинга записей в документы Elasticsearch.
+     *
+     * @param type         тип записей (event, mention)
+     * @param elapsedNanos длительность маппинга в наносекундах
+     */
+    public void recordMapping(String type, long elapsedNanos) {
+        Timer.builder(BATCH_MAPPING)
+                .description("Время маппинга записей батча")
+                .tag(TAG_TYPE, type)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает результат соединения упоминаний с событиями батча.
+     *
+     * @param joined  количество упоминаний, обогащенных полями события
+     * @param orphans количество упоминаний, событие которых не найдено
+     */
+    public void recordMentionJoin(int joined, int orphans) {
+        meterRegistry.counter(MENTIONS_JOINED).increment(joined);
+        meterRegistry.counter(MENTIONS_ORPHAN).increment(orphans);
+    }
+
+    /**
+     * Учитывает поиск событий упоминаний в кэше недавних событий.
+     * Доля попаданий: hits / (hits + misses).
+     *
+     * @param hits   количество упоминаний, событие которых найдено в кэше
+     * @param misses количество упоминаний, событие которых не найдено в кэше
+     */
+    public void recordEventCacheLookups(int hits, int misses) {
+        meterRegistry.counter(EVENT_CACHE_HITS).increment(hits);
+        meterRegistry.counter(EVENT_CACHE_MISSES).increment(misses);
+    }
+
+    /**
+     * Учитывает дубликаты записей, которые не будут отправлены повторно.
+     *
+     * @param type       тип записей (event, mention)
+     * @param stage      этап: batch — повтор записи внутри батча, схлопнутый при сохранении в Redis,
+     *                   published — запись, уже отправленная в одном из недавних батчей
+     * @param duplicates количество дубликатов
+     */
+    public void recordDuplicates(String type, String stage, long duplicates) {
+        if (duplicates > 0) {
+            meterRegistry.counter(DEDUP_DUPLICATES, TAG_TYPE, type, TAG_STAGE, stage).increment(duplicates);
+        }
+    }
+
+    /**
+     * Учитывает записи, отброшенные фильтром перед отправкой.
+     *
+     * @param type     тип записей (event, mention)
+     * @param filtered количество отброшенных записей
+     */
+    public void recordOutputFiltered(String type, long filtered) {
+        if (filtered > 0) {
+            meterRegistry.counter(OUTPUT_FILTERED, TAG_TYPE, type).increment(filtered);
+        }
+    }
+
+    /**
+     * Обновляет количество событий в кэше недавних событий.
+     *
+     * @param size количество записей кэша
+     */
+    public void recordEventCacheSize(long size) {
+        eventCacheSize.set(size);
+    }
+
+    /**
+     * Учитывает время очистки данных и состояния батча в Redis.
+     *
+     * @param outcome      результат (success, failure)
+     * @param elapsedNanos длительность очистки в наносекундах
+     */
+    public void recordCleanup(String outcome, long elapsedNanos) {
+        Timer.builder(BATCH_CLEANUP)
+                .description("Время очистки батча в Redis")
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает ключи Redis, удаленные при очистке батча, и скорость их удаления (ключей в секунду).
+     *
+     * @param keys         количество удаленных ключей
+     * @param elapsedNanos длительность очистки в наносекундах
+     */
+    public void recordCleanupKeys(long keys, long elapsedNanos) {
+        meterRegistry.counter(BATCH_CLEANUP_KEYS).increment(keys);
+
+        if (keys > 0 && elapsedNanos > 0) {
+            DistributionSummary.builder(BATCH_CLEANUP_THROUGHPUT)
+                    .description("Скорость очистки батча в Redis, ключей в секунду")
+                    .register(meterRegistry)
+                    .record(keys * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        }
+    }
+
+    /**
+     * Учитывает сквозную задержку батча: время от старта окна до завершения отправки и очистки.
+     * Публикуется гистограммой, чтобы перцентили можно было агрегировать по экземплярам в Prometheus.
+     *
+     * @param outcome   результат (success, failure)
+     * @param ageMillis время от старта окна батча в миллисекундах
+     */
+    public void recordBatchEndToEnd(String outcome, long ageMillis) {
+        Timer.builder(BATCH_END_TO_END)
+                .description("Время от старта окна батча до завершения его отправки")
+                .tag(TAG_OUTCOME, outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(ageMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Учитывает возраст батча на момент начала обработки: время от старта окна
+     * до взятия батча в работу. Рост значения сверх длительности окна означает отставание обработки.
+     *
+     * @param ageMillis возраст батча в миллисекундах
+     */
+    public void recordBatchAge(long ageMillis) {
+        Timer.builder(BATCH_AGE)
+                .description("Возраст батча на момент начала обработки")
+                .register(meterRegistry)
+                .record(ageMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Учитывает записи, успешно отправленные в топик Kafka.
+     * Скорость отправки (записей и байт в секунду) получается функцией rate() над счетчиками.
+     *
+     * @param topic   топик назначения
+     * @param records количество отправленных записей
+     * @param bytes   сериализованный размер ключей и значений отправленных записей
+     */
+    public void recordKafkaPublished(String topic, int records, long bytes) {
+        if (records <= 0) {
+            return;
+        }
+        meterRegistry.counter(KAFKA_PUBLISHED_RECORDS, TAG_TOPIC, topic).increment(records);
+        meterRegistry.counter(KAFKA_PUBLISHED_BYTES, TAG_TOPIC, topic).increment(bytes);
+    }
+
+    /**
+     * Учитывает время пакетной отправки порции записей от передачи продюсеру до подтверждения последней записи.
+     *
+     * @param topic        топик назначения
+     * @param outcome      результат (success, failure — хотя бы одна запись не отправлена)
+     * @param elapsedNanos длительность отправки в наносекундах
+     */
+    public void recordKafkaPublishChunk(String topic, String outcome, long elapsedNanos) {
+        Timer.builder(KAFKA_PUBLISH_CHUNK)
+                .description("Время пакетной отправки порции записей в Kafka")
+                .tag(TAG_TOPIC, topic)
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает время поштучной отправки записи от передачи KafkaTemplate до подтверждения брокером.
+     *
+     * @param topic        топик назначения
+     * @param outcome      результат (success, failure)
+     * @param elapsedNanos длительность отправки в наносекундах
+     */
+    public void recordKafkaSend(String topic, String outcome, long elapsedNanos) {
+        Timer.builder(KAFKA_SEND)
+                .description("Время отправки записи в Kafka")
+                .tag(TAG_TOPIC, topic)
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Учитывает записи, которые не удалось отправить в топик Kafka.
+     *
+     * @param topic   топик назначения
+     * @param records количество неотправленных записей
+     */
+    public void recordKafkaFailed(String topic, int records) {
+        if (records > 0) {
+            meterRegistry.counter(KAFKA_FAILED_RECORDS, TAG_TOPIC, topic).increment(records);
+        }
+    }
+
+    /**
+     * Учитывает объем записей, сохраненных в Redis до закрытия окна батча.
+     *
+     * @param type    тип записей (event, mention)
+     * @param records количество сохраненных записей
+     * @param bytes   суммарный размер закодированных записей в байтах
+     */
+    public void recordStagedBytes(String type, int records, long bytes) {
+        if (records <= 0) {
+            return;
+        }
+        meterRegistry.counter(STAGING_BYTES, TAG_TYPE, type).increment(bytes);
+        DistributionSummary.builder(STAGING_RECORD_SIZE)
+                .description("Средний размер закодированной записи в Redis")
+                .baseUnit("bytes")
+                .tag(TAG_TYPE, type)
+                .register(meterRegistry)
+                .record((double) bytes / records);
+    }
+
+    /**
+     * Учитывает сжатие порции записей перед сохранением в Redis: время сжатия
+     * и степень сжатия (отношение исходного размера к сохраненному).
+     *
+     * @param algorithm     алгоритм сжатия
+     * @param type          тип записей (event, mention)
+     * @param originalBytes размер записей до сжатия
+     * @param storedBytes   размер записей после сжатия
+     * @param elapsedNanos  длительность сжатия в наносекундах
+     */
+    public void recordCompression(String algorithm, String type, long originalBytes, long storedBytes, long elapsedNanos) {
+        Timer.builder(STAGING_COMPRESSION)
+                .description("Время сжатия порции записей перед сохранением в Redis")
+                .tag(TAG_ALGORITHM, algorithm)
+                .tag(TAG_TYPE, type)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (storedBytes > 0) {
+            DistributionSummary.builder(STAGING_COMPRESSION_RATIO)
+                    .description("Степень сжатия записей в Redis (исходный размер / сохраненный)")
+                    .tag(TAG_ALGORITHM, algorithm)
+                    .tag(TAG_TYPE, type)
+                    .register(meterRegistry)
+                    .record((double) originalBytes / storedBytes);
+        }
+    }
+
+    /**
+     * Учитывает распаковку записей, прочитанных из Redis.
+     *
+     * @param type         тип записей (event, mention)
+     * @param records      количество распакованных записей
+     * @param elapsedNanos длительность распаковки в наносекундах
+     */
+    public void recordDecompression(String type, int records, long elapsedNanos) {
+        Timer.builder(STAGING_DECOMPRESSION)
+                .description("Время распаковки записей, прочитанных из Redis")
+                .tag(TAG_TYPE, type)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -2,19 +2,34 @@ package com.neighbor.eventmosaic.processor.publisher;
 
 import com.neighbor.eventmosaic.library.common.dto.Event;
 import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.dto.BatchSummary;
 import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
 import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Компонент для отправки обработанных событий и упоминаний в топики Kafka.
+ * <p>
+ * Поддерживает поштучную отправку (future на каждую запись) и пакетную отправку
+ * ({@link #sendEvents(List)}, {@link #sendMentions(List)}), при которой записи передаются продюсеру
+ * напрямую, а на всю порцию приходится одна агрегированная CompletableFuture.
  */
 @Slf4j
 @Component
@@ -22,6 +37,7 @@ import java.util.concurrent.CompletableFuture;
 public class KafkaMessagePublisher {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ProcessorMetrics processorMetrics;
 
     @Value("${kafka.topic.producer.processor-event}")
     private String eventTopic;
@@ -29,6 +45,12 @@ public class KafkaMessagePublisher {
     @Value("${kafka.topic.producer.processor-mention}")
     private String mentionTopic;
 
+    @Value("${kafka.topic.producer.processor-mention-orphan}")
+    private String orphanMentionTopic;
+
+    @Value("${kafka.topic.producer.processor-batch-summary}")
+    private String summaryTopic;
+
     /**
      * Отправляет обработанное событие в соответствующий топик Kafka.
      * После отправки проверяется, была ли отправка успешной.
@@ -41,9 +63,12 @@ public class KafkaMessagePublisher {
                                                                    String key) {
         log.debug("Отправка ElasticEvent с ID {} в топик {}", event.getGlobalEventId(), eventTopic);
 
+        long startNanos = System.nanoTime();
         return kafkaTemplate.send(eventTopic, key, event)
                 .whenComplete((result, ex) -> {
+                    recordSend(eventTopic, ex, startNanos);
                     if (ex == null) {
+                        recordPublished(eventTopic, result.getRecordMetadata());
                         log.debug("ElasticEvent с ID {} успешно отправлен, смещение: {}",
                                 event.getGlobalEventId(),
                                 result.getRecordMetadata().offset());
@@ -65,12 +90,33 @@ public class KafkaMessagePublisher {
      */
     public CompletableFuture<SendResult<String, Object>> sendMention(ElasticMention mention,
                                                                      String key) {
+        return sendMention(mentionTopic, mention, key);
+    }
+
+    /**
+     * Отправляет упоминание, событие которого не найдено в батче, в топик упоминаний без события.
+     *
+     * @param mention объект упоминания для отправки
+     * @param key     ключ сообщения (комбинация идентификаторов события и упоминания)
+     * @return CompletableFuture с результатом отправки
+     */
+    public CompletableFuture<SendResult<String, Object>> sendOrphanMention(ElasticMention mention,
+                                                                           String key) {
+        return sendMention(orphanMentionTopic, mention, key);
+    }
+
+    private CompletableFuture<SendResult<String, Object>> sendMention(String topic,
+                                                                      ElasticMention mention,
+                                                                      String key) {
         log.debug("Отправка ElasticMention для события с ID {} (Упоминание ID: {}) в топик {}",
-                mention.getGlobalEventId(), mention.getMentionIdentifier(), mentionTopic);
+                mention.getGlobalEventId(), mention.getMentionIdentifier(), topic);
 
-        return kafkaTemplate.send(mentionTopic, key, mention)
+        long startNanos = System.nanoTime();
+        return kafkaTemplate.send(topic, key, mention)
                 .whenComplete((result, ex) -> {
+                    recordSend(topic, ex, startNanos);
                     if (ex == null) {
+                        recordPublished(topic, result.getRecordMetadata());
                         log.debug("ElasticMention для события с ID {} (Упоминание ID: {}) успешно отправлено, смещение: {}",
                                 mention.getGlobalEventId(), mention.getMentionIdentifier(),
                                 result.getRecordMetadata().offset());
@@ -81,4 +127,219 @@ public class KafkaMessagePublisher {
                     }
                 });
     }
-}
\ No newline at end of file
+
+    /**
+     * Отправляет порцию событий в топик Kafka одной пакетной операцией.
+     * Вид ключа: globalEventId
+     *
+     * @param events события для отправки
+     * @return CompletableFuture, который завершится после подтверждения всех записей порции
+     */
+    public CompletableFuture<Void> sendEvents(List<ElasticEvent> events) {
+        return sendEvents(events, null);
+    }
+
+    /**
+     * Отправляет порцию событий в топик Kafka одной пакетной операцией
+     * и сообщает ключ каждого подтвержденного события.
+     *
+     * @param events      события для отправки
+     * @param onPublished получатель ключей подтвержденных записей или null
+     * @return CompletableFuture, который завершится после подтверждения всех записей порции
+     */
+    public CompletableFuture<Void> sendEvents(List<ElasticEvent> events, Consumer<String> onPublished) {
+        return sendAll(eventTopic, events, event -> String.valueOf(event.getGlobalEventId()), onPublished);
+    }
+
+    /**
+     * Отправляет порцию упоминаний в топик Kafka одной пакетной операцией.
+     * Вид ключа: globalEventId_mentionIdentifier
+     *
+     * @param mentions упоминания для отправки
+     * @return CompletableFuture, который завершится после подтверждения всех записей порции
+     */
+    public CompletableFuture<Void> sendMentions(List<ElasticMention> mentions) {
+        return sendMentions(mentions, null);
+    }
+
+    /**
+     * Отправляет порцию упоминаний в топик Kafka одной пакетной операцией
+     * и сообщает ключ каждого подтвержденного упоминания.
+     *
+     * @param mentions    упоминания для отправки
+     * @param onPublished получатель ключей подтвержденных записей или null
+     * @return CompletableFuture, который завершится после подтверждения всех записей порции
+     */
+    public CompletableFuture<Void> sendMentions(List<ElasticMention> mentions, Consumer<String> onPublished) {
+        return sendAll(mentionTopic, mentions, KafkaMessagePublisher::mentionKey, onPublished);
+    }
+
+    /**
+     * Отправляет порцию упоминаний, событие которых не найдено в батче, в топик упоминаний без события
+     * одной пакетной операцией и сообщает ключ каждого подтвержденного упоминания.
+     *
+     * @param mentions    упоминания для отправки
+     * @param onPublished получатель ключей подтвержденных записей или null
+     * @return CompletableFuture, который завершится после подтверждения всех записей порции
+     */
+    public CompletableFuture<Void> sendOrphanMentions(List<ElasticMention> mentions, Consumer<String> onPublished) {
+        return sendAll(orphanMentionTopic, mentions, KafkaMessagePublisher::mentionKey, onPublished);
+    }
+
+    /**
+     * Отправляет агрегаты батча в топик агрегатов одной пакетной операцией.
+     * Вид ключа: идентификатор документа агрегата
+     *
+     * @param summaries агрегаты батча
+     * @return CompletableFuture, который завершится после подтверждения всех агрегатов
+     */
+    public CompletableFuture<Void> sendSummaries(List<BatchSummary> summaries) {
+        return sendAll(summaryTopic, summaries, BatchSummary::getId, null);
+    }
+
+    private static String mentionKey(ElasticMention mention) {
+        return mention.getGlobalEventId() + "_" + mention.getMentionIdentifier();
+    }
+
+    /**
+     * Передает записи продюсеру с общим callback'ом, без future и логирования на каждую запись.
+     * Группировка записей в пакеты и их сжатие выполняются продюсером
+     * (spring.kafka.producer.batch-size, linger.ms, compression-type).
+     * Если передача прервалась исключением, записи, еще не переданные продюсеру, учитываются
+     * как неотправленные, а future завершается после подтверждения уже переданных записей.
+     *
+     * @param topic        топик назначения
+     * @param records      записи для отправки
+     * @param keyExtractor функция получения ключа сообщения
+     * @param onPublished  получатель ключей подтвержденных записей или null
+     * @return CompletableFuture, который завершится после подтверждения всех записей
+     *         или исключением, если хотя бы одна запись не была отправлена
+     */
+    private <T> CompletableFuture<Void> sendAll(String topic,
+                                                List<T> records,
+                                                Function<T, String> keyExtractor,
+                                                Consumer<String> onPublished) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ChunkCompletion completion = new ChunkCompletion(topic, records.size());
+        AtomicInteger handed = new AtomicInteger();
+        try {
+            kafkaTemplate.execute(producer -> {
+                for (T record : records) {
+                    String key = keyExtractor.apply(record);
+                    producer.send(new ProducerRecord<>(topic, key, record),
+                            onPublished == null ? completion : completion.reporting(key, onPublished));
+                    handed.incrementAndGet();
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            int unsent = records.size() - handed.get();
+            log.error("Ошибка при передаче порции продюсеру для топика {}: не передано {} из {} записей: {}",
+                    topic, unsent, records.size(), e.getMessage(), e);
+            completion.failUnsent(unsent, e);
+        }
+        return completion.future;
+    }
+
+    private void recordSend(String topic, Throwable ex, long startNanos) {
+        processorMetrics.recordKafkaSend(topic,
+                ex == null ? ProcessorMetrics.OUTCOME_SUCCESS : ProcessorMetrics.OUTCOME_FAILURE,
+                System.nanoTime() - startNanos);
+        if (ex != null) {
+            processorMetrics.recordKafkaFailed(topic, 1);
+        }
+    }
+
+    private void recordPublished(String topic, RecordMetadata metadata) {
+        processorMetrics.recordKafkaPublished(topic, 1, serializedSize(metadata));
+    }
+
+    private static long serializedSize(RecordMetadata metadata) {
+        return Math.max(metadata.serializedKeySize(), 0) + Math.max(metadata.serializedValueSize(), 0);
+    }
+
+    /**
+     * Агрегированное завершение пакетной отправки: считает подтвержденные записи
+     * и завершает future, когда подтверждены все записи порции.
+     */
+    private final class ChunkCompletion implements Callback {
+
+        private final String topic;
+        private final int total;
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger pending;
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicReference<Exception> firstError = new AtomicReference<>();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private ChunkCompletion(String topic, int total) {
+            this.topic = topic;
+            this.total = total;
+            this.pending = new AtomicInteger(total);
+        }
+
+        @Override
+        public void onCompletion(RecordMetadata metadata, Exception exception) {
+            if (exception == null) {
+                bytes.addAndGet(serializedSize(metadata));
+            } else {
+                failed.incrementAndGet();
+                firstError.compareAndSet(null, exception);
+            }
+
+            if (pending.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+
+        /**
+         * Callback записи, который до учета в порции сообщает ключ записи при ее подтверждении.
+         */
+        private Callback reporting(String key, Consumer<String> onPublished) {
+            return (metadata, exception) -> {
+                if (exception == null) {
+                    onPublished.accept(key);
+                }
+                onCompletion(metadata, exception);
+            };
+        }
+
+        /**
+         * Учитывает как неотправленные записи, которые не были переданы продюсеру и не получат callback.
+         */
+        private void failUnsent(int unsent, Exception exception) {
+            if (unsent == 0) {
+                return;
+            }
+            failed.addAndGet(unsent);
+            firstError.compareAndSet(null, exception);
+
+            if (pending.addAndGet(-unsent) == 0) {
+                complete();
+            }
+        }
+
+        private void complete() {
+            int sent = total - failed.get();
+            Exception error = firstError.get();
+            processorMetrics.recordKafkaPublished(topic, sent, bytes.get());
+            processorMetrics.recordKafkaFailed(topic, failed.get());
+            processorMetrics.recordKafkaPublishChunk(topic,
+                    error == null ? ProcessorMetrics.OUTCOME_SUCCESS : ProcessorMetrics.OUTCOME_FAILURE,
+                    System.nanoTime() - startNanos);
+
+            if (error == null) {
+                log.debug("Порция из {} записей успешно отправлена в топик {}", total, topic);
+                future.complete(null);
+            } else {
+                log.error("Ошибка при отправке {} из {} записей в топик {}: {}",
+                        failed.get(), total, topic, error.getMessage(), error);
+                future.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -1,26 +1,85 @@
 package com.neighbor.eventmosaic.processor.scheduler;
 
 import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.BatchRollup;
+import com.neighbor.eventmosaic.processor.dto.BatchSummary;
+import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.dto.PublishedRecords;
+import com.neighbor.eventmosaic.processor.exception.BatchLeaseLostException;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
 import com.neighbor.eventmosaic.processor.service.BatchStateService;
 import com.neighbor.eventmosaic.processor.service.EventProcessingService;
 import com.neighbor.eventmosaic.processor.publisher.KafkaMessagePublisher;
+import com.neighbor.eventmosaic.processor.component.PublishedRecordFilter;
 import com.neighbor.eventmosaic.processor.component.RedisBatchCleaner;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Планировщик для периодической проверки и обработки батчей.
  * <p>
+ * Готовность батчей отслеживается таймерами закрытия окон ({@link BatchWindowTimer}),
+ * а периодический опрос служит страховкой для батчей, о которых таймеры экземпляра не знают.
+ * <p>
  * Основные задачи:
  * 1. Проверяет, истекло ли окно ожидания у активных батчей.
  * 2. Если батч готов — извлекает его, обрабатывает события и упоминания.
  * 3. Отправляет данные в Kafka и после успешной отправки очищает состояние.
  * <p>
- * Сейчас считаем, что в каждый момент времени активен только один батч.
+ * В потоковом режиме (batch.processing.streaming.enabled) батч читается и отправляется
+ * порциями, что ограничивает потребление памяти размером нескольких порций.
+ * <p>
+ * По умолчанию за один запуск обрабатывается один батч. При batch.processing.workers.parallelism > 1
+ * готовые батчи разбираются пулом обработчиков: одновременно обрабатывается не более parallelism батчей,
+ * еще не более queue-capacity ожидают свободного обработчика, остальные остаются в Redis.
+ * В однопоточном режиме обработка, запущенная опросом и таймером закрытия окна ({@link #triggerProcessing}),
+ * выполняется по очереди.
+ * <p>
+ * Батч захватывается с арендой (batch.processing.lease.*): пока батч обрабатывается, экземпляр
+ * периодически продлевает аренду в отдельном потоке, который не занят обработкой батчей.
+ * Если экземпляр остановился или отправка батча завершилась ошибкой, аренда истекает и батч
+ * возвращается в готовые для обработки любым экземпляром. Если аренда утрачена, экземпляр
+ * не очищает батч и не планирует его повтор: батч уже принадлежит другому экземпляру.
+ * <p>
+ * Если отправка батча завершилась ошибкой, батч планируется на повторную обработку с экспоненциальной
+ * задержкой (batch.processing.retry.*). Уже отправленные записи удаляются из Redis, поэтому
+ * повторно отправляются только неотправленные. После исчерпания попыток данные батча удаляются.
+ * <p>
+ * После отправки событий батча в топик агрегатов отправляются агрегаты ({@link BatchRollup}) событий,
+ * отправка которых подтверждена Kafka. Ошибка отправки агрегатов не приводит к повтору батча:
+ * агрегаты повторно отправляются отдельно, с той же задержкой (batch.processing.retry.*).
+ * <p>
+ * Ключи отправленных записей запоминаются в {@link PublishedRecordFilter}, поэтому дубликаты
+ * этих записей в следующих батчах не отправляются.
  */
 @Slf4j
 @Component
@@ -31,89 +90,585 @@ public class BatchProcessingScheduler {
     private final EventProcessingService eventProcessingService;
     private final KafkaMessagePublisher kafkaMessagePublisher;
     private final RedisBatchCleaner redisBatchCleaner;
+    private final ProcessorMetrics processorMetrics;
+    private final PublishedRecordFilter publishedRecordFilter;
+
+    @Value("${batch.processing.streaming.enabled:false}")
+    private boolean streamingEnabled;
+
+    @Value("${batch.processing.streaming.max-in-flight-chunks:4}")
+    private int maxInFlightChunks;
+
+    @Value("${kafka.publisher.bulk.enabled:false}")
+    private boolean bulkPublishing;
+
+    @Value("${batch.processing.workers.parallelism:1}")
+    private int parallelism;
+
+    @Value("${batch.processing.workers.queue-capacity:0}")
+    private int queueCapacity;
+
+    @Value("${batch.processing.lease.heartbeat-interval-ms:10000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${batch.processing.retry.max-attempts:5}")
+    private int retryMaxAttempts;
+
+    @Value("${batch.processing.retry.initial-backoff-ms:5000}")
+    private long retryInitialBackoffMs;
+
+    @Value("${batch.processing.retry.max-backoff-ms:300000}")
+    private long retryMaxBackoffMs;
+
+    private ExecutorService batchWorkers;
+    private Semaphore workerPermits;
+    private ExecutorService triggerExecutor;
+    private ScheduledExecutorService retryExecutor;
+    private final ThreadPoolTaskScheduler leaseHeartbeatScheduler = new ThreadPoolTaskScheduler();
+
+    /**
+     * Однопоточный режим: не более одного батча обрабатывается одновременно опросом и таймером закрытия окна.
+     */
+    private final ReentrantLock singleWorkerLock = new ReentrantLock();
+
+    /**
+     * Батчи, захваченные экземпляром и еще не обработанные (аренды, которые нужно продлевать).
+     */
+    private final Set<String> leasedBatches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Создает поток продления аренд, поток запуска обработки по таймеру, поток планирования повторов
+     * и отправки агрегатов и пул обработчиков батчей, если включена параллельная обработка.
+     * Аренды продлеваются в собственном потоке, а не в потоке планировщика Spring: обработка батча
+     * занимает поток планировщика, и продление не должно ждать ее завершения.
+     * Размер очереди пула ограничен семафором: батч извлекается из Redis,
+     * только если для него есть свободный обработчик или место в очереди.
+     */
+    @PostConstruct
+    void initWorkers() {
+        leaseHeartbeatScheduler.setPoolSize(1);
+        leaseHeartbeatScheduler.setThreadNamePrefix("batch-lease-heartbeat-");
+        leaseHeartbeatScheduler.initialize();
+        leaseHeartbeatScheduler.scheduleWithFixedDelay(this::renewLeases,
+                Instant.now().plusMillis(heartbeatIntervalMs), Duration.ofMillis(heartbeatIntervalMs));
+
+        triggerExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("batch-trigger-"));
+        retryExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("batch-retry-"));
+        if (parallelism > 1) {
+            batchWorkers = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("batch-worker-"));
+            workerPermits = new Semaphore(parallelism + Math.max(queueCapacity, 0));
+            log.info("Включена параллельная обработка батчей: обработчиков - {}, размер очереди - {}",
+                    parallelism, queueCapacity);
+        }
+    }
+
+    @PreDestroy
+    void shutdownWorkers() {
+        leaseHeartbeatScheduler.shutdown();
+        triggerExecutor.shutdown();
+        retryExecutor.shutdown();
+        if (batchWorkers != null) {
+            batchWorkers.shutdown();
+        }
+    }
+
+    /**
+     * Переносит при старте экземпляра активные батчи, зарегистрированные в формате предыдущей версии
+     * (множество active:batches), в sorted set окон, чтобы их окна закрывались и батчи обрабатывались.
+     * Ошибка переноса не препятствует старту: перенос повторяется при следующем запуске.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyActiveBatches() {
+        try {
+            int migratedBatchCount = batchStateService.migrateLegacyActiveBatches();
+            if (migratedBatchCount > 0) {
+                log.info("Перенесено активных батчей прежнего формата - {}", migratedBatchCount);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка переноса активных батчей прежнего формата: {}", e.getMessage(), e);
+        }
+    }
 
     /**
      * Проверяет, истекло ли время окна ожидания у активных батчей.
      * Если да — помечает такие батчи как готовые к обработке.
-     * Запускается каждые 5 секунд.
+     * Запускается каждые batch.processing.polling.window-check-interval-ms (по умолчанию 5 секунд).
      */
-    @Scheduled(fixedDelayString = "5000")
+    @Scheduled(fixedDelayString = "${batch.processing.polling.window-check-interval-ms:5000}")
     public void checkBatchWindows() {
         int expiredBatchCount = batchStateService.checkExpiredBatchWindows();
+        processorMetrics.recordActiveBatchWindows(batchStateService.getActiveBatchCount());
         if (expiredBatchCount > 0) {
             log.info("Обнаружено батчей с истекшим временем окна - {}", expiredBatchCount);
         }
+
+        int reclaimedBatchCount = batchStateService.reclaimExpiredLeases();
+        if (reclaimedBatchCount > 0) {
+            log.warn("Возвращено в готовые батчей с истекшей арендой - {}", reclaimedBatchCount);
+        }
+
+        int retriedBatchCount = batchStateService.promoteDueRetries();
+        if (retriedBatchCount > 0) {
+            log.info("Возвращено в готовые батчей для повторной отправки - {}", retriedBatchCount);
+        }
     }
 
     /**
-     * Обрабатывает один готовый к отправке батч.
+     * Продлевает аренды батчей, которые обрабатывает экземпляр.
+     * Батчи, аренда которых утрачена (истекла и передана другому экземпляру), перестают продлеваться,
+     * и после отправки они не очищаются и не планируются на повтор.
+     * Запускается потоком продления аренд каждые batch.processing.lease.heartbeat-interval-ms (по умолчанию 10 секунд).
+     */
+    public void renewLeases() {
+        if (leasedBatches.isEmpty()) {
+            return;
+        }
+
+        List<String> lostBatches = batchStateService.renewLeases(List.copyOf(leasedBatches));
+        if (!lostBatches.isEmpty()) {
+            lostBatches.forEach(leasedBatches::remove);
+            log.warn("Утрачена аренда батчей {}: обработка могла затянуться дольше срока аренды", lostBatches);
+        }
+    }
+
+    /**
+     * Обрабатывает готовые к отправке батчи.
      * Получает данные, отправляет их в Kafka, очищает состояние после успешной отправки.
-     * Запускается каждые 3 секунды.
+     * В однопоточном режиме обрабатывает один батч, в параллельном — передает пулу
+     * обработчиков столько батчей, сколько он может принять.
+     * Запускается каждые batch.processing.polling.ready-check-interval-ms (по умолчанию 3 секунды),
+     * а также таймером закрытия окна батча.
      */
-    @Scheduled(fixedDelayString = "3000")
+    @Scheduled(fixedDelayString = "${batch.processing.polling.ready-check-interval-ms:3000}")
     public void processBatchIfReady() {
-        String batchId = batchStateService.getNextReadyBatch();
+        processorMetrics.recordReadyQueueDepth(batchStateService.getReadyBatchCount());
 
-        if (batchId == null) {
-            log.debug("Нет готовых батчей для обработки");
-            return; // Нет батчей для обработки
+        if (batchWorkers != null) {
+            dispatchReadyBatches();
+            return;
         }
 
+        singleWorkerLock.lock();
         try {
-            log.info("Начало обработки батча: {}", batchId);
+            String batchId = claimNextReadyBatch();
 
-            BatchData batchData = eventProcessingService.processBatch(batchId);
+            if (batchId == null) {
+                log.debug("Нет готовых батчей для обработки");
+                return; // Нет батчей для обработки
+            }
+
+            processBatch(batchId);
+        } finally {
+            singleWorkerLock.unlock();
+        }
+    }
+
+    /**
+     * Запускает обработку готовых батчей в отдельном потоке, не занимая вызывающий поток.
+     * Используется таймером закрытия окна: его поток должен оставаться свободным для других окон.
+     *
+     * @param batchCount количество батчей, ставших готовыми
+     */
+    public void triggerProcessing(int batchCount) {
+        try {
+            for (int i = 0; i < batchCount; i++) {
+                triggerExecutor.execute(this::processBatchIfReady);
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Поток запуска обработки остановлен, батчи будут обработаны периодическим опросом");
+        }
+    }
+
+    /**
+     * Извлекает готовые батчи и передает их пулу обработчиков, пока есть свободные места.
+     * Разрешение освобождается после завершения отправки и очистки батча.
+     */
+    private void dispatchReadyBatches() {
+        int dispatched = 0;
+
+        while (workerPermits.tryAcquire()) {
+            String batchId = claimNextReadyBatch();
+            if (batchId == null) {
+                workerPermits.release();
+                break;
+            }
+
+            try {
+                batchWorkers.execute(() -> processBatch(batchId)
+                        .whenComplete((ignored, ex) -> workerPermits.release()));
+                dispatched++;
+            } catch (RuntimeException e) {
+                workerPermits.release();
+                leasedBatches.remove(batchId); // Аренда истечет, и батч вернется в готовые
+                log.error("Не удалось передать батч {} в обработку: {}", batchId, e.getMessage(), e);
+            }
+        }
+
+        if (dispatched > 0) {
+            log.info("Передано в обработку батчей - {}", dispatched);
+        }
+    }
+
+    /**
+     * Захватывает готовый батч с арендой и начинает продлевать ее до завершения обработки.
+     *
+     * @return идентификатор батча или null, если готовых батчей нет
+     */
+    private String claimNextReadyBatch() {
+        String batchId = batchStateService.getNextReadyBatch();
+        if (batchId != null) {
+            leasedBatches.add(batchId);
+        }
+        return batchId;
+    }
+
+    /**
+     * Обрабатывает один батч: получает данные, отправляет их в Kafka
+     * и очищает состояние после успешной отправки, а при ошибке планирует повторную отправку.
+     * Очистка и планирование повтора выполняются в отдельных потоках, а не в потоке завершения
+     * отправки Kafka producer: обращения к Redis в нем задержали бы все остальные отправки продюсера.
+     *
+     * @param batchId идентификатор батча
+     * @return CompletableFuture, который завершится после отправки и очистки батча
+     */
+    private CompletableFuture<Void> processBatch(String batchId) {
+        Long startTime = null;
+        PublishedRecords published = new PublishedRecords();
+        try {
+            log.info("Начало обработки батча: {}", batchId);
+            startTime = recordBatchAge(batchId);
+            Long windowStart = startTime;
 
-            CompletableFuture<Void> sendEventsFuture = sendEvents(batchData);
-            CompletableFuture<Void> sendMentionsFuture = sendMentions(batchData);
+            CompletableFuture<Void> sendFuture = streamingEnabled
+                    ? processAndSendInChunks(batchId, published)
+                    : processAndSend(batchId, published);
 
             // Ждём завершения всех отправок и обрабатываем результат
-            CompletableFuture.allOf(sendEventsFuture, sendMentionsFuture)
-                    .whenComplete((ignored, ex) -> {
-                        if (ex == null) {
-                            log.info("Батч {} успешно обработан и отправлен", batchId);
-                            redisBatchCleaner.cleanupBatch(batchId);
-                        } else {
-                            log.error("Ошибка при отправке данных для батча {}: {}", batchId, ex.getMessage(), ex);
-                        }
-                    });
+            return sendFuture.handle((ignored, ex) -> {
+                // Аренда больше не продлевается: при успехе ее снимает очистка, при ошибке - планирование повтора
+                if (!releaseLease(batchId)) {
+                    return ex == null ? CompletableFuture.<Void>completedFuture(null) : CompletableFuture.<Void>failedFuture(ex);
+                }
+                if (ex == null) {
+                    log.info("Батч {} успешно обработан и отправлен", batchId);
+                    return redisBatchCleaner.cleanupBatchAsync(batchId)
+                            .whenComplete((cleaned, cleanupEx) ->
+                                    recordBatchEndToEnd(windowStart, ProcessorMetrics.OUTCOME_SUCCESS));
+                }
+                log.error("Ошибка при отправке данных для батча {}: {}", batchId, ex.getMessage(), ex);
+                recordBatchEndToEnd(windowStart, ProcessorMetrics.OUTCOME_FAILURE);
+                return retryBatchAsync(batchId, published)
+                        .thenCompose(retried -> CompletableFuture.<Void>failedFuture(ex));
+            }).thenCompose(Function.identity());
 
         } catch (Exception e) {
             log.error("Ошибка при обработке батча {}: {}", batchId, e.getMessage(), e);
+            if (releaseLease(batchId)) {
+                retryBatch(batchId, published);
+            }
+            recordBatchEndToEnd(startTime, ProcessorMetrics.OUTCOME_FAILURE);
             // cleanupBatch не вызываем, если была ошибка обработки
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Перестает продлевать аренду батча после завершения его отправки.
+     *
+     * @param batchId идентификатор батча
+     * @return true, если аренда по-прежнему принадлежала экземпляру; false, если она утрачена
+     *         и батч обрабатывается другим экземпляром, поэтому очищать его или планировать повтор нельзя
+     */
+    private boolean releaseLease(String batchId) {
+        if (leasedBatches.remove(batchId)) {
+            return true;
+        }
+        log.warn("Аренда батча {} утрачена до завершения отправки: очистка и повтор пропущены, батч обработает другой экземпляр",
+                batchId);
+        return false;
+    }
+
+    /**
+     * Планирует повторную отправку батча ({@link #retryBatch}) в потоке планирования повторов.
+     * Если поток остановлен, повтор планируется в вызывающем потоке.
+     *
+     * @param batchId   идентификатор батча
+     * @param published записи батча, отправка которых подтверждена Kafka
+     * @return CompletableFuture, который завершится после планирования повтора
+     */
+    private CompletableFuture<Void> retryBatchAsync(String batchId, PublishedRecords published) {
+        try {
+            return CompletableFuture.runAsync(() -> retryBatch(batchId, published), retryExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Поток планирования повторов остановлен, повтор батча {} планируется синхронно", batchId);
+            retryBatch(batchId, published);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Планирует повторную отправку батча, из которого удалены уже отправленные записи.
+     * Если попытки исчерпаны или все записи батча уже отправлены, удаляет батч: повторно
+     * отправлять нечего, а захват пустого батча учитывался бы как истечение его данных.
+     * Если запланировать повтор не удалось, батч вернется в готовые после истечения аренды;
+     * если аренда уже утрачена, батч не очищается и не планируется на повтор.
+     *
+     * @param batchId   идентификатор батча
+     * @param published записи батча, отправка которых подтверждена Kafka
+     */
+    private void retryBatch(String batchId, PublishedRecords published) {
+        try {
+            Long retryDelayMs = batchStateService.scheduleRetry(batchId);
+            if (retryDelayMs == null) {
+                redisBatchCleaner.cleanupBatchAsync(batchId);
+                return;
+            }
+            if (!eventProcessingService.retainForRetry(batchId, published, retryDelayMs)) {
+                log.info("Все записи батча {} уже отправлены, повторная обработка не требуется", batchId);
+                redisBatchCleaner.cleanupBatchAsync(batchId);
+            }
+        } catch (BatchLeaseLostException e) {
+            log.warn("Аренда батча {} утрачена до планирования повтора: батч обработает другой экземпляр", batchId);
+        } catch (Exception e) {
+            log.error("Не удалось запланировать повторную отправку батча {}: {}", batchId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Учитывает возраст батча на момент начала обработки.
+     *
+     * @param batchId идентификатор батча
+     * @return время старта окна батча в мс или null, если оно неизвестно
+     */
+    private Long recordBatchAge(String batchId) {
+        Long startTime = batchStateService.getBatchStartTime(batchId);
+        if (startTime != null) {
+            processorMetrics.recordBatchAge(System.currentTimeMillis() - startTime);
+        }
+        return startTime;
+    }
+
+    /**
+     * Учитывает сквозную задержку батча от старта окна до завершения обработки.
+     *
+     * @param startTime время старта окна батча в мс или null, если оно неизвестно
+     * @param outcome   результат обработки
+     */
+    private void recordBatchEndToEnd(Long startTime, String outcome) {
+        if (startTime != null) {
+            processorMetrics.recordBatchEndToEnd(outcome, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Загружает батч целиком, обрабатывает и отправляет все данные в Kafka.
+     *
+     * @param batchId   идентификатор батча
+     * @param published получатель ключей отправленных записей
+     * @return CompletableFuture, который завершится после отправки всех данных батча
+     */
+    private CompletableFuture<Void> processAndSend(String batchId, PublishedRecords published) {
+        BatchData batchData = eventProcessingService.processBatch(batchId);
+
+        CompletableFuture<Void> eventsSent = sendEvents(batchData, published);
+        sendSummariesAfter(batchId, batchData.getRollup(), eventsSent);
+        return CompletableFuture.allOf(eventsSent, sendMentions(batchData, published));
+    }
 
+    /**
+     * Потоково обрабатывает батч порциями и отправляет каждую порцию в Kafka сразу после маппинга.
+     * Количество одновременно отправляемых порций ограничено, чтение следующей порции
+     * ожидает завершения отправки одной из предыдущих.
+     * Если чтение или обработка порции завершились ошибкой, возвращаемый CompletableFuture завершается
+     * этой ошибкой только после завершения уже отправляемых порций: иначе записи, отправка которых
+     * подтверждена позже, не попали бы в published и были бы отправлены повторно.
+     *
+     * @param batchId   идентификатор батча
+     * @param published получатель ключей отправленных записей
+     * @return CompletableFuture, который завершится после отправки всех порций батча
+     */
+    private CompletableFuture<Void> processAndSendInChunks(String batchId, PublishedRecords published) {
+        Semaphore inFlightChunks = new Semaphore(maxInFlightChunks);
+        List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
+        AtomicReference<BatchRollup> rollup = new AtomicReference<>();
+
+        try {
+            eventProcessingService.processBatchInChunks(batchId, chunk -> {
+                inFlightChunks.acquireUninterruptibly();
+                if (chunk.getRollup() != null) {
+                    rollup.set(chunk.getRollup());
+                }
+
+                CompletableFuture<Void> chunkFuture = CompletableFuture.allOf(sendEvents(chunk, published), sendMentions(chunk, published))
+                        .whenComplete((ignored, ex) -> inFlightChunks.release());
+                chunkFutures.add(chunkFuture);
+            });
+        } catch (RuntimeException e) {
+            CompletableFuture<Void> inFlight = CompletableFuture.allOf(chunkFutures.toArray(CompletableFuture[]::new));
+            sendSummariesAfter(batchId, rollup.get(), inFlight);
+            return inFlight
+                    .handle((ignored, sendEx) -> (Void) null)
+                    .thenCompose(ignored -> CompletableFuture.<Void>failedFuture(e));
+        }
+
+        CompletableFuture<Void> chunksSent = CompletableFuture.allOf(chunkFutures.toArray(CompletableFuture[]::new));
+        sendSummariesAfter(batchId, rollup.get(), chunksSent);
+        return chunksSent;
+    }
+
+    /**
+     * После завершения отправки событий батча отправляет агрегаты событий, отправка которых подтверждена Kafka.
+     * Агрегаты отправляются и при ошибке отправки батча: неотправленные события в них не учтены
+     * и попадут в агрегаты повторной попытки. Поэтому агрегаты разных попыток не пересекаются,
+     * а идентификатор документа включает время обработки, чтобы агрегаты попыток не перезаписывали друг друга.
+     * Агрегаты формируются и отправляются в потоке планирования повторов, а не в потоке завершения
+     * отправки Kafka producer.
+     *
+     * @param batchId    идентификатор батча
+     * @param rollup     агрегаты батча или null, если они выключены
+     * @param eventsSent CompletableFuture отправки событий батча
+     */
+    private void sendSummariesAfter(String batchId, BatchRollup rollup, CompletableFuture<Void> eventsSent) {
+        if (rollup == null) {
+            return;
+        }
+        eventsSent.whenComplete((ignored, ex) -> scheduleSummaries(batchId, () -> {
+            if (!rollup.isEmpty()) {
+                sendSummaries(batchId, rollup.toSummaries(batchId, System.currentTimeMillis()), 1);
+            }
+        }, 0));
+    }
+
+    /**
+     * Отправляет агрегаты батча в топик агрегатов. При ошибке повторяет отправку тех же документов
+     * с экспоненциальной задержкой, не более batch.processing.retry.max-attempts попыток:
+     * идентификаторы документов не меняются, поэтому повторно отправленные агрегаты перезаписывают,
+     * а не дублируют уже доставленные.
+     *
+     * @param batchId   идентификатор батча
+     * @param summaries документы агрегатов
+     * @param attempt   номер попытки, начиная с 1
+     */
+    private void sendSummaries(String batchId, List<BatchSummary> summaries, int attempt) {
+        kafkaMessagePublisher.sendSummaries(summaries).whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                return;
+            }
+            if (attempt >= retryMaxAttempts) {
+                log.error("Агрегаты батча {} не удалось отправить за {} попыток: {}",
+                        batchId, attempt, ex.getMessage(), ex);
+                return;
+            }
+
+            long delay = Math.min(retryInitialBackoffMs << Math.min(attempt - 1, 30), retryMaxBackoffMs);
+            log.warn("Ошибка отправки агрегатов батча {}, повтор (попытка {} из {}) через {} мс: {}",
+                    batchId, attempt + 1, retryMaxAttempts, delay, ex.getMessage());
+            scheduleSummaries(batchId, () -> sendSummaries(batchId, summaries, attempt + 1), delay);
+        });
+    }
+
+    /**
+     * Выполняет отправку агрегатов в потоке планирования повторов через указанную задержку.
+     *
+     * @param batchId идентификатор батча
+     * @param task    отправка агрегатов
+     * @param delayMs задержка в мс
+     */
+    private void scheduleSummaries(String batchId, Runnable task, long delayMs) {
+        try {
+            retryExecutor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Поток планирования повторов остановлен, агрегаты батча {} не отправлены", batchId);
         }
     }
 
     /**
      * Отправляет все события батча в Kafka.
      * Вид ключа: globalEventId
+     * В режиме пакетной отправки (kafka.publisher.bulk.enabled) на все события приходится одна future.
+     *
+     * Отправленные события учитываются в агрегатах батча.
      *
      * @param batchData объект с событиями и упоминаниями
+     * @param published получатель ключей отправленных событий
      * @return CompletableFuture, который завершится после отправки всех событий
      */
-    private CompletableFuture<Void> sendEvents(BatchData batchData) {
+    private CompletableFuture<Void> sendEvents(BatchData batchData, PublishedRecords published) {
+        BatchRollup rollup = batchData.getRollup();
+        Consumer<String> onPublished = key -> {
+            markPublished(published, BatchRecordType.EVENT, key);
+            if (rollup != null) {
+                rollup.commit(key);
+            }
+        };
+
+        if (bulkPublishing) {
+            return kafkaMessagePublisher.sendEvents(batchData.getEvents(), onPublished);
+        }
 
         return CompletableFuture.allOf(batchData.getEvents().stream()
-                .map(elasticEvent -> kafkaMessagePublisher.sendEvent(
-                        elasticEvent,
-                        String.valueOf(elasticEvent.getGlobalEventId())))
+                .map(elasticEvent -> {
+                    String key = String.valueOf(elasticEvent.getGlobalEventId());
+                    return kafkaMessagePublisher.sendEvent(elasticEvent, key)
+                            .thenRun(() -> onPublished.accept(key));
+                })
                 .toArray(CompletableFuture[]::new));
     }
 
     /**
      * Отправляет все упоминания батча в Kafka.
+     * Упоминания, событие которых не найдено в батче, отправляются в топик упоминаний без события.
      * Вид ключа: globalEventId_mentionIdentifier
+     * В режиме пакетной отправки (kafka.publisher.bulk.enabled) на каждый топик приходится одна future.
      *
      * @param batchData объект с событиями и упоминаниями
+     * @param published получатель ключей отправленных упоминаний
      * @return CompletableFuture, который завершится после отправки всех упоминаний
      */
-    private CompletableFuture<Void> sendMentions(BatchData batchData) {
+    private CompletableFuture<Void> sendMentions(BatchData batchData, PublishedRecords published) {
+        Consumer<String> onPublished = key -> markPublished(published, BatchRecordType.MENTION, key);
+
+        if (bulkPublishing) {
+            return CompletableFuture.allOf(
+                    kafkaMessagePublisher.sendMentions(batchData.getMentions(), onPublished),
+                    kafkaMessagePublisher.sendOrphanMentions(batchData.getOrphanMentions(), onPublished));
+        }
 
-        return CompletableFuture.allOf(batchData.getMentions().stream()
-                .map(elasticMention -> kafkaMessagePublisher.sendMention(
-                        elasticMention,
-                        elasticMention.getGlobalEventId() + "_" + elasticMention.getMentionIdentifier()))
+        return CompletableFuture.allOf(Stream.concat(
+                        batchData.getMentions().stream()
+                                .map(elasticMention -> sendMention(elasticMention, false, onPublished)),
+                        batchData.getOrphanMentions().stream()
+                                .map(elasticMention -> sendMention(elasticMention, true, onPublished)))
                 .toArray(CompletableFuture[]::new));
     }
+
+    /**
+     * Отправляет одно упоминание в топик упоминаний или в топик упоминаний без события.
+     *
+     * @param elasticMention упоминание
+     * @param orphan         событие упоминания не найдено в батче
+     * @param onPublished    получатель ключа отправленного упоминания
+     * @return CompletableFuture, который завершится после отправки упоминания
+     */
+    private CompletableFuture<Void> sendMention(ElasticMention elasticMention,
+                                                boolean orphan,
+                                                Consumer<String> onPublished) {
+        String key = elasticMention.getGlobalEventId() + "_" + elasticMention.getMentionIdentifier();
+        CompletableFuture<?> sendFuture = orphan
+                ? kafkaMessagePublisher.sendOrphanMention(elasticMention, key)
+                : kafkaMessagePublisher.sendMention(elasticMention, key);
+        return sendFuture.thenRun(() -> onPublished.accept(key));
+    }
+
+    /**
+     * Отмечает запись как отправленную: для повторной отправки батча и для отбрасывания дубликатов в следующих батчах.
+     *
+     * @param published записи батча, отправка которых подтверждена Kafka
+     * @param type      тип записи
+     * @param key       ключ сообщения
+     */
+    private void markPublished(PublishedRecords published, BatchRecordType type, String key) {
+        published.add(type, key);
+        publishedRecordFilter.markPublished(type, key);
+    }
 }
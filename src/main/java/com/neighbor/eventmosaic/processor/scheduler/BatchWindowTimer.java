@@ -0,0 +1,80 @@
+package com.neighbor.eventmosaic.processor.scheduler;
+
+import com.neighbor.eventmosaic.processor.event.BatchWindowOpenedEvent;
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Локальные таймеры закрытия временных окон батчей.
+ * <p>
+ * При регистрации батча планирует задачу точно на момент закрытия его окна: задача переносит
+ * истекшие батчи в готовые и сразу запускает их обработку, не дожидаясь очередного опроса планировщика.
+ * Сама обработка выполняется потоками {@link BatchProcessingScheduler}, поэтому поток таймера
+ * не задерживает закрытие других окон.
+ * Таймеры живут только в памяти экземпляра, поэтому периодический опрос
+ * в {@link BatchProcessingScheduler} остается страховкой (перезапуск, батчи других экземпляров).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "batch.processing.window-timer.enabled", havingValue = "true", matchIfMissing = true)
+public class BatchWindowTimer {
+
+    private final BatchStateService batchStateService;
+    private final BatchProcessingScheduler batchProcessingScheduler;
+
+    private final ThreadPoolTaskScheduler windowTimerScheduler = new ThreadPoolTaskScheduler();
+
+    @PostConstruct
+    void initTimer() {
+        windowTimerScheduler.setPoolSize(1);
+        windowTimerScheduler.setThreadNamePrefix("batch-window-timer-");
+        windowTimerScheduler.initialize();
+    }
+
+    @PreDestroy
+    void shutdownTimer() {
+        windowTimerScheduler.shutdown();
+    }
+
+    /**
+     * Планирует проверку батча на момент закрытия его временного окна.
+     *
+     * @param event событие открытия окна батча
+     */
+    @EventListener
+    public void onBatchWindowOpened(BatchWindowOpenedEvent event) {
+        windowTimerScheduler.schedule(
+                () -> onBatchWindowClosed(event.getBatchId()),
+                Instant.ofEpochMilli(event.getWindowEnd()));
+        log.debug("Запланировано закрытие окна батча {} на {}", event.getBatchId(), event.getWindowEnd());
+    }
+
+    /**
+     * Переносит истекшие батчи в готовые и передает их обработку планировщику.
+     *
+     * @param batchId идентификатор батча, окно которого закрылось
+     */
+    private void onBatchWindowClosed(String batchId) {
+        try {
+            int expiredBatchCount = batchStateService.checkExpiredBatchWindows();
+            if (expiredBatchCount == 0) {
+                return; // Батч уже перенесен другим экземпляром или очередным опросом
+            }
+
+            log.info("Окно батча {} закрыто, батчей готово к обработке - {}", batchId, expiredBatchCount);
+            batchProcessingScheduler.triggerProcessing(expiredBatchCount);
+        } catch (Exception e) {
+            log.error("Ошибка при обработке закрытия окна батча {}: {}", batchId, e.getMessage(), e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.neighbor.eventmosaic.processor.service;
 
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Интерфейс сервиса для управления состоянием обработки батчей (пакетов) данных.
@@ -17,7 +19,54 @@ public interface BatchStateService {
     int checkExpiredBatchWindows();
 
     /**
-     * Получает и удаляет один готовый для обработки батч из списка.
+     * Переносит батчи из множества активных прежнего формата (active:batches) в sorted set окон.
+     */
+    int migrateLegacyActiveBatches();
+
+    /**
+     * Захватывает один готовый для обработки батч: удаляет его из готовых и выдает экземпляру аренду.
      */
     String getNextReadyBatch();
+
+    /**
+     * Продлевает аренды батчей, обрабатываемых экземпляром, и возвращает батчи, аренда которых утрачена.
+     */
+    List<String> renewLeases(Collection<String> batchIds);
+
+    /**
+     * Возвращает в готовые батчи, аренда которых истекла без продления.
+     */
+    int reclaimExpiredLeases();
+
+    /**
+     * Снимает аренду батча, если она не принадлежит другому экземпляру.
+     */
+    boolean releaseLease(String batchId);
+
+    /**
+     * Планирует повторную обработку батча с экспоненциальной задержкой и возвращает задержку
+     * или null, если попытки исчерпаны. Если аренда батча экземпляру больше не принадлежит,
+     * бросает {@link com.neighbor.eventmosaic.processor.exception.BatchLeaseLostException}.
+     */
+    Long scheduleRetry(String batchId);
+
+    /**
+     * Переносит в готовые батчи, время повторной обработки которых наступило.
+     */
+    int promoteDueRetries();
+
+    /**
+     * Возвращает количество батчей, ожидающих обработки.
+     */
+    long getReadyBatchCount();
+
+    /**
+     * Возвращает количество батчей с открытым окном.
+     */
+    long getActiveBatchCount();
+
+    /**
+     * Возвращает время старта окна батча или null, если батч не зарегистрирован.
+     */
+    Long getBatchStartTime(String batchId);
 }
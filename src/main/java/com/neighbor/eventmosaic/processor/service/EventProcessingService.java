@@ -3,6 +3,10 @@ package com.neighbor.eventmosaic.processor.service;
 import com.neighbor.eventmosaic.library.common.dto.Event;
 import com.neighbor.eventmosaic.library.common.dto.Mention;
 import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.PublishedRecords;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервиса для хранения и предварительной обработки событий и упоминаний.
@@ -21,6 +25,16 @@ public interface EventProcessingService {
      */
     void storeMention(String batchId, Mention mention);
 
+    /**
+     * Сохраняет группу событий одного батча в Redis за минимальное число обращений.
+     */
+    void storeEvents(String batchId, List<Event> events);
+
+    /**
+     * Сохраняет группу упоминаний одного батча в Redis за минимальное число обращений.
+     */
+    void storeMentions(String batchId, List<Mention> mentions);
+
     /**
      * Обрабатывает данные конкретного батча, извлекает их из Redis,
      * маппит в ElasticEvent/ElasticMention и передает на дальнейшую обработку.
@@ -29,4 +43,26 @@ public interface EventProcessingService {
      * @return объект BatchData, содержащий списки ElasticEvent и ElasticMention
      */
     BatchData processBatch(String batchId);
+
+    /**
+     * Потоково обрабатывает данные батча порциями фиксированного размера.
+     * Каждая порция извлекается из Redis, маппится и передается обработчику сразу,
+     * без загрузки всего батча в память. Сначала передаются события, затем упоминания.
+     * Все порции содержат общие агрегаты событий батча.
+     *
+     * @param batchId       идентификатор батча
+     * @param chunkConsumer обработчик порции обработанных данных
+     */
+    void processBatchInChunks(String batchId, Consumer<BatchData> chunkConsumer);
+
+    /**
+     * Подготавливает батч к повторной отправке: удаляет из Redis уже отправленные записи
+     * и продлевает TTL оставшихся на время ожидания повтора.
+     *
+     * @param batchId      идентификатор батча
+     * @param published    записи, отправка которых подтверждена Kafka
+     * @param retryDelayMs задержка до повторной обработки в мс
+     * @return true, если в батче остались неотправленные записи
+     */
+    boolean retainForRetry(String batchId, PublishedRecords published, long retryDelayMs);
 }
@@ -1,14 +1,24 @@
 package com.neighbor.eventmosaic.processor.service.impl;
 
+import com.neighbor.eventmosaic.processor.component.BatchTtlManager;
+import com.neighbor.eventmosaic.processor.component.RegisteredBatchCache;
+import com.neighbor.eventmosaic.processor.event.BatchWindowOpenedEvent;
+import com.neighbor.eventmosaic.processor.exception.BatchLeaseLostException;
+import com.neighbor.eventmosaic.processor.exception.RedisOperationException;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
 import com.neighbor.eventmosaic.processor.service.BatchStateService;
 import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -20,93 +30,420 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class BatchStateServiceImpl implements BatchStateService {
 
-    private static final long EXTRA_TTL_MILLIS = 10_000;
+    private static final String REGISTER_BATCH_OPERATION = "register-batch";
+    private static final int PROMOTE_LIMIT = 1000;
+    private static final long LEASE_LOST = -2;
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final ProcessorMetrics processorMetrics;
+    private final RegisteredBatchCache registeredBatchCache;
+    private final BatchTtlManager batchTtlManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> registerBatchScript;
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> promoteExpiredBatchesScript;
+
+    private final RedisScript<String> claimReadyBatchScript;
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> renewBatchLeasesScript;
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> reclaimExpiredLeasesScript;
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> scheduleBatchRetryScript;
+
+    private final RedisScript<Long> releaseBatchLeaseScript;
+
+    private final RedisScript<Long> migrateLegacyActiveBatchesScript;
 
     @Value("${batch.processing.window-duration-ms:60000}")
     private long batchWindowDurationMs;
 
+    @Value("${batch.processing.lease.duration-ms:60000}")
+    private long leaseDurationMs;
+
+    @Value("${batch.processing.lease.owner-id:${spring.application.name}-${random.uuid}}")
+    private String leaseOwnerId;
+
+    @Value("${batch.processing.retry.max-attempts:5}")
+    private int retryMaxAttempts;
+
+    @Value("${batch.processing.retry.initial-backoff-ms:5000}")
+    private long retryInitialBackoffMs;
+
+    @Value("${batch.processing.retry.max-backoff-ms:300000}")
+    private long retryMaxBackoffMs;
+
     /**
      * Регистрирует новый батч или обновляет существующий.
      * Если это первый раз, когда встречается батч, начинает отсчет времени окна.
+     * <p>
+     * Регистрация выполняется Lua-скриптом (SET NX PX времени старта + ZADD дедлайна окна в активные)
+     * атомарно и за одно обращение к Redis, без гонки между экземплярами.
+     * Пока окно батча открыто, повторные регистрации обслуживаются локальным кэшем без обращений к Redis.
+     * При первой регистрации батча в экземпляре публикуется {@link BatchWindowOpenedEvent}
+     * для планирования обработки точно на момент закрытия окна.
      *
      * @param batchId идентификатор батча
      * @return true если это новый батч, false если обновление существующего
      */
     @Override
     public boolean registerBatch(String batchId) {
-        String startTimeKey = RedisKeysUtil.buildStartTimeKey(batchId);
-        boolean isNewBatch = !redisTemplate.hasKey(startTimeKey);
+        long currentTime = System.currentTimeMillis();
 
-        if (isNewBatch) {
-            long currentTime = System.currentTimeMillis();
-            redisTemplate.opsForValue().set(startTimeKey, String.valueOf(currentTime));
-            redisTemplate.expire(startTimeKey, getEffectiveTtl());
+        if (registeredBatchCache.isRegistered(batchId, currentTime)) {
+            processorMetrics.recordRedisRoundTrips(REGISTER_BATCH_OPERATION, 1, 0);
+            return false;
+        }
 
-            redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), batchId);
+        List<?> result = redisTemplate.execute(
+                registerBatchScript,
+                List.of(RedisKeysUtil.buildStartTimeKey(batchId), RedisKeysUtil.activeBatchWindowsKey()),
+                String.valueOf(currentTime),
+                String.valueOf(batchTtlManager.stagingTtl().toMillis()),
+                batchId,
+                String.valueOf(batchWindowDurationMs));
 
+        if (result == null || result.size() < 2) {
+            throw new RedisOperationException("Некорректный ответ скрипта регистрации батча " + batchId);
+        }
+        boolean isNewBatch = ((Number) result.get(0)).longValue() == 1;
+        long startTime = ((Number) result.get(1)).longValue();
+
+        long windowEnd = startTime + batchWindowDurationMs;
+
+        registeredBatchCache.put(batchId, windowEnd, currentTime);
+        processorMetrics.recordRedisRoundTrips(REGISTER_BATCH_OPERATION, 1, 1);
+
+        if (windowEnd > currentTime) {
+            eventPublisher.publishEvent(new BatchWindowOpenedEvent(batchId, windowEnd));
+        }
+
+        if (isNewBatch) {
+            batchTtlManager.forget(batchId); // Батч с тем же ID мог быть обработан ранее: TTL выставляется заново
+            processorMetrics.recordBatchRegistered();
             log.info("Зарегистрирован новый батч: {}. Установлено временное окно: {} мс",
                     batchId, batchWindowDurationMs);
         }
-
         return isNewBatch;
     }
 
     /**
      * Проверяет батчи, время ожидания которых истекло, и помечает их как готовые к обработке.
      * Этот метод должен вызываться планировщиком.
+     * <p>
+     * Окна активных батчей хранятся в sorted set по дедлайну, поэтому перенос выполняется
+     * одним Lua-скриптом (ZRANGEBYSCORE + ZREM + SADD), а стоимость проверки пропорциональна
+     * количеству истекших батчей, а не активных. TTL данных перенесенных батчей пакетно продлевается
+     * до TTL обработки, поэтому ожидание в готовых не ограничено запасом staging-margin-ms.
      *
      * @return количество батчей, помеченных как готовые
      */
     @Override
     public int checkExpiredBatchWindows() {
-        Set<String> activeBatches = redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey());
-        if (activeBatches == null || activeBatches.isEmpty()) {
+        long now = System.currentTimeMillis();
+        int processedCount = 0;
+        List<?> promoted;
+
+        do {
+            promoted = redisTemplate.execute(
+                    promoteExpiredBatchesScript,
+                    List.of(RedisKeysUtil.activeBatchWindowsKey(), RedisKeysUtil.readyBatchesSetKey()),
+                    String.valueOf(now),
+                    String.valueOf(PROMOTE_LIMIT));
+
+            if (promoted == null) {
+                break;
+            }
+            promoted.forEach(batchId -> log.info("Батч {} готов к обработке после истечения времени окна", batchId));
+            batchTtlManager.extendForReady(toBatchIds(promoted));
+            processedCount += promoted.size();
+        } while (promoted.size() == PROMOTE_LIMIT);
+
+        processorMetrics.recordBatchesPromoted(processedCount);
+        return processedCount;
+    }
+
+    /**
+     * Переносит батчи из множества активных прежнего формата (active:batches) в sorted set окон
+     * active:batch-windows. Вызывается при старте экземпляра, чтобы батчи, зарегистрированные
+     * экземплярами предыдущей версии, не остались необработанными.
+     * <p>
+     * Батчи переносятся порциями Lua-скриптом: дедлайн окна вычисляется по времени старта батча,
+     * а если ключ времени старта уже истек, окно считается закрытым и батч переносится в готовые
+     * при ближайшей проверке окон. Пустое множество удаляется Redis после переноса последнего батча.
+     *
+     * @return количество перенесенных батчей
+     */
+    @Override
+    public int migrateLegacyActiveBatches() {
+        String legacyKey = RedisKeysUtil.legacyActiveBatchesSetKey();
+        Set<String> members = redisTemplate.opsForSet().members(legacyKey);
+        if (members == null || members.isEmpty()) {
             return 0;
         }
 
-        int processedCount = 0;
+        List<String> batchIds = new ArrayList<>(members);
         long now = System.currentTimeMillis();
+        int migratedCount = 0;
 
-        for (String batchId : activeBatches) {
-            String startTimeStr = redisTemplate.opsForValue().get(RedisKeysUtil.buildStartTimeKey(batchId));
+        for (int from = 0; from < batchIds.size(); from += PROMOTE_LIMIT) {
+            List<String> page = batchIds.subList(from, Math.min(from + PROMOTE_LIMIT, batchIds.size()));
 
-            if (startTimeStr == null) {
-                redisTemplate.opsForSet().remove(RedisKeysUtil.activeBatchesSetKey(), batchId);
-                log.warn("Батч {} найден в активных, но без метки времени начала", batchId);
-                continue;
-            }
+            List<String> keys = new ArrayList<>(page.size() + 2);
+            keys.add(legacyKey);
+            keys.add(RedisKeysUtil.activeBatchWindowsKey());
+            page.forEach(batchId -> keys.add(RedisKeysUtil.buildStartTimeKey(batchId)));
 
-            long startTime = Long.parseLong(startTimeStr);
-            if (now - startTime >= batchWindowDurationMs) {
-                redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), batchId);     // Помечаем как готовый
-                redisTemplate.opsForSet().remove(RedisKeysUtil.activeBatchesSetKey(), batchId); // Удаляем из активных
+            List<String> args = new ArrayList<>(page.size() + 2);
+            args.add(String.valueOf(now));
+            args.add(String.valueOf(batchWindowDurationMs));
+            args.addAll(page);
 
-                log.info("Батч {} готов к обработке после истечения времени окна ({} мс)", batchId, now - startTime);
-                processedCount++;
-            }
+            Long migrated = redisTemplate.execute(migrateLegacyActiveBatchesScript, keys, args.toArray());
+            migratedCount += migrated == null ? 0 : migrated.intValue();
         }
-        return processedCount;
+        return migratedCount;
     }
 
     /**
-     * Получает и удаляет один готовый для обработки батч из списка.
+     * Захватывает один готовый для обработки батч.
+     * <p>
+     * Lua-скрипт атомарно извлекает батч из готовых (SPOP) и записывает аренду: срок в sorted set
+     * аренд и владельца в hash владельцев. Пока экземпляр продлевает аренду ({@link #renewLeases}),
+     * батч принадлежит ему; если экземпляр остановился или перестал продлевать аренду,
+     * батч возвращается в готовые ({@link #reclaimExpiredLeases}) и обрабатывается повторно.
+     * TTL данных захваченного батча продлевается на время обработки.
      *
      * @return идентификатор батча или null, если нет готовых батчей
      */
     @Override
     public String getNextReadyBatch() {
-        return redisTemplate.opsForSet()
-                .pop(RedisKeysUtil.readyBatchesSetKey());
+        String batchId = redisTemplate.execute(
+                claimReadyBatchScript,
+                List.of(RedisKeysUtil.readyBatchesSetKey(),
+                        RedisKeysUtil.processingLeasesKey(),
+                        RedisKeysUtil.processingOwnersKey()),
+                String.valueOf(System.currentTimeMillis() + leaseDurationMs),
+                leaseOwnerId);
+
+        if (batchId != null) {
+            batchTtlManager.extendForProcessing(batchId);
+        }
+        return batchId;
     }
 
+    /**
+     * Продлевает аренды батчей, которые обрабатывает экземпляр, одним обращением к Redis.
+     * Аренда продлевается, только если экземпляр по-прежнему ее владелец.
+     *
+     * @param batchIds идентификаторы обрабатываемых батчей
+     * @return батчи, аренда которых экземпляру больше не принадлежит (истекла и возвращена в готовые)
+     */
+    @Override
+    public List<String> renewLeases(Collection<String> batchIds) {
+        if (batchIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> args = new ArrayList<>(batchIds.size() + 2);
+        args.add(String.valueOf(System.currentTimeMillis() + leaseDurationMs));
+        args.add(leaseOwnerId);
+        args.addAll(batchIds);
+
+        List<?> lost = redisTemplate.execute(
+                renewBatchLeasesScript,
+                List.of(RedisKeysUtil.processingLeasesKey(), RedisKeysUtil.processingOwnersKey()),
+                args.toArray());
+
+        if (lost == null || lost.isEmpty()) {
+            return List.of();
+        }
+        processorMetrics.recordLeasesLost(lost.size());
+        return lost.stream().map(String::valueOf).toList();
+    }
 
     /**
-     * Возвращает итоговый TTL для ключей Redis.
-     * Включает время окна обработки и дополнительное время.
+     * Возвращает в готовые батчи, аренда которых истекла: обработавший их экземпляр
+     * остановился или не смог завершить обработку. TTL данных возвращенных батчей пакетно продлевается
+     * до TTL обработки. Этот метод должен вызываться планировщиком.
+     *
+     * @return количество возвращенных батчей
      */
-    private Duration getEffectiveTtl() {
-        return Duration.ofMillis(batchWindowDurationMs + EXTRA_TTL_MILLIS);
+    @Override
+    public int reclaimExpiredLeases() {
+        long now = System.currentTimeMillis();
+        int reclaimedCount = 0;
+        List<?> reclaimed;
+
+        do {
+            reclaimed = redisTemplate.execute(
+                    reclaimExpiredLeasesScript,
+                    List.of(RedisKeysUtil.processingLeasesKey(),
+                            RedisKeysUtil.processingOwnersKey(),
+                            RedisKeysUtil.readyBatchesSetKey()),
+                    String.valueOf(now),
+                    String.valueOf(PROMOTE_LIMIT));
+
+            if (reclaimed == null) {
+                break;
+            }
+            reclaimed.forEach(batchId -> log.warn("Аренда батча {} истекла, батч возвращен в готовые", batchId));
+            batchTtlManager.extendForReady(toBatchIds(reclaimed));
+            reclaimedCount += reclaimed.size();
+        } while (reclaimed.size() == PROMOTE_LIMIT);
+
+        processorMetrics.recordLeasesReclaimed(reclaimedCount);
+        return reclaimedCount;
+    }
+
+    /**
+     * Снимает аренду батча перед его очисткой.
+     * <p>
+     * Lua-скрипт удаляет срок аренды и владельца, только если батч не арендован другим экземпляром:
+     * аренда могла истечь, и батч мог быть захвачен повторно, пока экземпляр завершал отправку.
+     * Отсутствующая аренда (снята при планировании повтора или возвращена в готовые) считается снятой.
+     *
+     * @param batchId идентификатор батча
+     * @return true, если аренда снята или отсутствовала; false, если батч арендован другим экземпляром
+     */
+    @Override
+    public boolean releaseLease(String batchId) {
+        Long released = redisTemplate.execute(
+                releaseBatchLeaseScript,
+                List.of(RedisKeysUtil.processingLeasesKey(), RedisKeysUtil.processingOwnersKey()),
+                batchId,
+                leaseOwnerId);
+        return released != null && released == 1;
+    }
+
+    /**
+     * Планирует повторную обработку батча, отправка которого завершилась ошибкой.
+     * <p>
+     * Lua-скрипт проверяет, что аренда батча принадлежит экземпляру, и атомарно снимает ее, увеличивает счетчик попыток и добавляет батч
+     * в sorted set повторов со временем следующей попытки. Задержка растет экспоненциально
+     * от initial-backoff-ms до max-backoff-ms, TTL времени старта продлевается на время ожидания и обработки.
+     * max-attempts — общее количество попыток отправки, включая первую: после max-attempts
+     * неудачных попыток батч в повторы не добавляется.
+     * Если аренда экземпляру больше не принадлежит, скрипт ничего не изменяет: батч обрабатывает
+     * другой экземпляр или он уже возвращен в готовые.
+     *
+     * @param batchId идентификатор батча
+     * @return задержка до повторной обработки в мс или null, если попытки исчерпаны
+     * @throws BatchLeaseLostException если аренда батча экземпляру больше не принадлежит
+     */
+    @Override
+    public Long scheduleRetry(String batchId) {
+        List<?> result = redisTemplate.execute(
+                scheduleBatchRetryScript,
+                List.of(RedisKeysUtil.processingLeasesKey(),
+                        RedisKeysUtil.processingOwnersKey(),
+                        RedisKeysUtil.retryAttemptsKey(),
+                        RedisKeysUtil.retryBatchesKey(),
+                        RedisKeysUtil.buildStartTimeKey(batchId)),
+                batchId,
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(retryInitialBackoffMs),
+                String.valueOf(retryMaxBackoffMs),
+                String.valueOf(retryMaxAttempts),
+                String.valueOf(batchTtlManager.processingTtl().toMillis()),
+                leaseOwnerId);
+
+        if (result == null || result.size() < 2) {
+            throw new RedisOperationException("Некорректный ответ скрипта планирования повтора батча " + batchId);
+        }
+        long attempt = ((Number) result.get(0)).longValue();
+        long delay = ((Number) result.get(1)).longValue();
+
+        if (delay == LEASE_LOST) {
+            throw new BatchLeaseLostException("Аренда батча " + batchId + " экземпляру больше не принадлежит");
+        }
+
+        if (delay < 0) {
+            processorMetrics.recordRetryExhausted();
+            log.error("Батч {} не удалось отправить за {} попыток, повторная обработка прекращена",
+                    batchId, retryMaxAttempts);
+            return null;
+        }
+
+        processorMetrics.recordRetryScheduled();
+        log.warn("Повторная обработка батча {} (попытка {} из {}) запланирована через {} мс",
+                batchId, attempt + 1, retryMaxAttempts, delay);
+        return delay;
+    }
+
+    /**
+     * Переносит в готовые батчи, время повторной обработки которых наступило.
+     * TTL данных перенесенных батчей пакетно продлевается до TTL обработки.
+     * Этот метод должен вызываться планировщиком.
+     *
+     * @return количество перенесенных батчей
+     */
+    @Override
+    public int promoteDueRetries() {
+        long now = System.currentTimeMillis();
+        int promotedCount = 0;
+        List<?> promoted;
+
+        do {
+            // Повторы хранятся так же, как окна активных батчей: sorted set по времени готовности
+            promoted = redisTemplate.execute(
+                    promoteExpiredBatchesScript,
+                    List.of(RedisKeysUtil.retryBatchesKey(), RedisKeysUtil.readyBatchesSetKey()),
+                    String.valueOf(now),
+                    String.valueOf(PROMOTE_LIMIT));
+
+            if (promoted == null) {
+                break;
+            }
+            promoted.forEach(batchId -> log.info("Батч {} готов к повторной обработке", batchId));
+            batchTtlManager.extendForReady(toBatchIds(promoted));
+            promotedCount += promoted.size();
+        } while (promoted.size() == PROMOTE_LIMIT);
+
+        return promotedCount;
+    }
+
+    /**
+     * Возвращает количество батчей в множестве готовых к обработке.
+     *
+     * @return глубина очереди готовых батчей
+     */
+    @Override
+    public long getReadyBatchCount() {
+        Long size = redisTemplate.opsForSet().size(RedisKeysUtil.readyBatchesSetKey());
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Возвращает количество батчей с открытым окном.
+     *
+     * @return размер sorted set окон активных батчей
+     */
+    @Override
+    public long getActiveBatchCount() {
+        Long size = redisTemplate.opsForZSet().zCard(RedisKeysUtil.activeBatchWindowsKey());
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Возвращает время старта окна батча.
+     *
+     * @param batchId идентификатор батча
+     * @return время старта в мс или null, если ключ времени старта отсутствует
+     */
+    @Override
+    public Long getBatchStartTime(String batchId) {
+        String startTime = redisTemplate.opsForValue().get(RedisKeysUtil.buildStartTimeKey(batchId));
+        return startTime == null ? null : Long.valueOf(startTime);
+    }
+
+    private static List<String> toBatchIds(List<?> scriptResult) {
+        return scriptResult.stream().map(String::valueOf).toList();
     }
 }
@@ -1,31 +1,49 @@
 package com.neighbor.eventmosaic.processor.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neighbor.eventmosaic.library.common.dto.Event;
 import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.codec.StagingCodec;
+import com.neighbor.eventmosaic.processor.codec.StagingCompression;
 import com.neighbor.eventmosaic.processor.component.BatchProcessor;
+import com.neighbor.eventmosaic.processor.component.BatchTtlManager;
 import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.BatchRollup;
 import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
 import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.dto.EventEnrichment;
+import com.neighbor.eventmosaic.processor.dto.PublishedRecords;
 import com.neighbor.eventmosaic.processor.exception.RedisOperationException;
 import com.neighbor.eventmosaic.processor.exception.RedisSerializationException;
 import com.neighbor.eventmosaic.processor.mapper.EventMapper;
 import com.neighbor.eventmosaic.processor.mapper.MentionMapper;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
 import com.neighbor.eventmosaic.processor.service.EventProcessingService;
-import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import com.neighbor.eventmosaic.processor.storage.BatchDataStorage;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.util.LongObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.function.UnaryOperator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Сервис для хранения и предварительной обработки событий и упоминаний.
@@ -36,16 +54,42 @@ import java.util.function.UnaryOperator;
 @RequiredArgsConstructor
 public class EventProcessingServiceImpl implements EventProcessingService {
 
-    private static final long EXTRA_TTL_MILLIS = 10_000;
+    private static final String STORE_EVENT_OPERATION = "store-event";
+    private static final String STORE_MENTION_OPERATION = "store-mention";
 
-    private final RedisTemplate<String, String> redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final BatchDataStorage batchDataStorage;
+    private final StagingCodec stagingCodec;
+    private final StagingCompression stagingCompression;
     private final BatchProcessor batchProcessor;
     private final EventMapper eventMapper;
     private final MentionMapper mentionMapper;
+    private final ProcessorMetrics processorMetrics;
+    private final BatchTtlManager batchTtlManager;
 
-    @Value("${batch.processing.window-duration-ms:60000}")
-    private long batchWindowDurationMs;
+    @Value("${batch.processing.streaming.chunk-size:1000}")
+    private int streamingChunkSize;
+
+    @Value("${batch.processing.parallel-deserialization-threshold:1000}")
+    private int parallelDeserializationThreshold;
+
+    @Value("${batch.processing.deserialization-threads:4}")
+    private int deserializationThreads;
+
+    private ExecutorService deserializationExecutor;
+
+    /**
+     * Создает пул потоков параллельной десериализации записей батча.
+     */
+    @PostConstruct
+    void initExecutor() {
+        deserializationExecutor = Executors.newFixedThreadPool(
+                Math.max(deserializationThreads, 1), new CustomizableThreadFactory("batch-deserializer-"));
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        deserializationExecutor.shutdown();
+    }
 
     /**
      * Сохраняет событие в Redis для последующей обработки.
@@ -56,16 +100,7 @@ public class EventProcessingServiceImpl implements EventProcessingService {
      */
     @Override
     public void storeEvent(String batchId, Event event) {
-        Long eventId = event.getGlobalEventId();
-        String eventKey = RedisKeysUtil.buildEventKey(batchId, eventId);
-
-        saveToRedis(eventKey, event);
-
-        String setKey = RedisKeysUtil.buildBatchEventsSetKey(batchId);
-        redisTemplate.opsForSet().add(setKey, eventId.toString());
-        redisTemplate.expire(setKey, getEffectiveTtl());
-
-        log.debug("Сохранено событие с ID {} для батча {} в Redis", eventId, batchId);
+        storeEvents(batchId, List.of(event));
     }
 
     /**
@@ -77,23 +112,61 @@ public class EventProcessingServiceImpl implements EventProcessingService {
      */
     @Override
     public void storeMention(String batchId, Mention mention) {
-        String mentionId = mention.getGlobalEventId() + "_" + mention.getMentionIdentifier();
-        String mentionKey = RedisKeysUtil.buildMentionKey(batchId, mentionId);
+        storeMentions(batchId, List.of(mention));
+    }
+
+    /**
+     * Сохраняет группу событий батча в Redis.
+     * Данные и TTL записываются одним pipeline-запросом на каждый чанк.
+     *
+     * @param batchId идентификатор батча
+     * @param events  события для сохранения
+     */
+    @Override
+    public void storeEvents(String batchId, List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> payloads = serializeAll(events, event -> event.getGlobalEventId().toString());
+        processorMetrics.recordDuplicates(BatchRecordType.EVENT.getCode(), ProcessorMetrics.DEDUP_STAGE_BATCH,
+                events.size() - payloads.size());
+
+        int roundTrips = saveToRedis(batchId, BatchRecordType.EVENT, payloads);
+        processorMetrics.recordRedisRoundTrips(STORE_EVENT_OPERATION, payloads.size(), roundTrips);
+
+        log.debug("Сохранено {} событий для батча {} в Redis за {} обращений", payloads.size(), batchId, roundTrips);
+    }
 
-        saveToRedis(mentionKey, mention);
+    /**
+     * Сохраняет группу упоминаний батча в Redis.
+     * Данные и TTL записываются одним pipeline-запросом на каждый чанк.
+     *
+     * @param batchId  идентификатор батча
+     * @param mentions упоминания для сохранения
+     */
+    @Override
+    public void storeMentions(String batchId, List<Mention> mentions) {
+        if (mentions.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> payloads = serializeAll(mentions,
+                mention -> mention.getGlobalEventId() + "_" + mention.getMentionIdentifier());
+        processorMetrics.recordDuplicates(BatchRecordType.MENTION.getCode(), ProcessorMetrics.DEDUP_STAGE_BATCH,
+                mentions.size() - payloads.size());
 
-        String setKey = RedisKeysUtil.buildBatchMentionsSetKey(batchId);
-        redisTemplate.opsForSet().add(setKey, mentionId);
-        redisTemplate.expire(setKey, getEffectiveTtl());
+        int roundTrips = saveToRedis(batchId, BatchRecordType.MENTION, payloads);
+        processorMetrics.recordRedisRoundTrips(STORE_MENTION_OPERATION, payloads.size(), roundTrips);
 
-        log.debug("Сохранено упоминание с ID {} для батча {} в Redis", mentionId, batchId);
+        log.debug("Сохранено {} упоминаний для батча {} в Redis за {} обращений", payloads.size(), batchId, roundTrips);
     }
 
     /**
-     * Обрабатывает данные конкретного батча.
-     * Выполняет предварительную обработку событий и упоминаний.
-     * В случае ошибки возвращает оригинальные данные.
-     * Пока возвращает список событий и упоминаний без изменений.
+     * Обрабатывает данные конкретного батча целиком.
+     * Читает все события и упоминания батча из Redis (с распаковкой и декодированием кодеком хранения),
+     * маппит их в ElasticEvent/ElasticMention и передает в {@link BatchProcessor}: соединение упоминаний
+     * с событиями, отбрасывание уже отправленных записей, агрегаты, фильтр и проекция событий.
+     * Если BatchProcessor завершился ошибкой, возвращаются смапленные данные без его обработки.
+     * Для обработки батча порциями без загрузки целиком используется {@link #processBatchInChunks}.
      *
      * @param batchId идентификатор батча
      * @return объект BatchData
@@ -101,19 +174,117 @@ public class EventProcessingServiceImpl implements EventProcessingService {
     @Override
     public BatchData processBatch(String batchId) {
         log.info("Начало обработки данных батча {}", batchId);
+        long startNanos = System.nanoTime();
+
+        try {
+            List<Event> events = getEventsForBatch(batchId);
+            List<Mention> mentions = getMentionsForBatch(batchId);
+
+            log.info("Батч {} содержит {} событий и {} упоминаний", batchId, events.size(), mentions.size());
+            processorMetrics.recordBatchRecords(BatchRecordType.EVENT.getCode(), events.size());
+            processorMetrics.recordBatchRecords(BatchRecordType.MENTION.getCode(), mentions.size());
+
+            List<ElasticEvent> elasticEvents = mapTimed(BatchRecordType.EVENT, events, eventMapper::toElasticEvents);
+            List<ElasticMention> elasticMentions = mapTimed(BatchRecordType.MENTION, mentions, mentionMapper::toElasticMentionList);
+
+            log.info("Смаплено в {} ElasticEvent и {} ElasticMention для батча {}",
+                    elasticEvents.size(), elasticMentions.size(), batchId);
 
-        List<Event> events = getEventsForBatch(batchId);
-        List<Mention> mentions = getMentionsForBatch(batchId);
+            BatchData batchData = batchProcessor.process(elasticEvents, elasticMentions);
+            processorMetrics.recordBatchProcessing(ProcessorMetrics.OUTCOME_SUCCESS, System.nanoTime() - startNanos);
+            return batchData;
+        } catch (RuntimeException e) {
+            processorMetrics.recordBatchProcessing(ProcessorMetrics.OUTCOME_FAILURE, System.nanoTime() - startNanos);
+            throw e;
+        }
+    }
 
-        log.info("Батч {} содержит {} событий и {} упоминаний", batchId, events.size(), mentions.size());
+    /**
+     * Потоково обрабатывает данные батча порциями.
+     * В памяти одновременно находится только текущая порция исходных и смапленных записей
+     * и компактный индекс событий батча, с которыми соединяются упоминания.
+     *
+     * @param batchId       идентификатор батча
+     * @param chunkConsumer обработчик порции обработанных данных
+     */
+    @Override
+    public void processBatchInChunks(String batchId, Consumer<BatchData> chunkConsumer) {
+        log.info("Начало потоковой обработки данных батча {} порциями по {} записей", batchId, streamingChunkSize);
+        long startNanos = System.nanoTime();
 
-        List<ElasticEvent> elasticEvents = eventMapper.toElasticEvents(events);
-        List<ElasticMention> elasticMentions = mentionMapper.toElasticMentionList(mentions);
+        try {
+            // События читаются раньше упоминаний, поэтому к порциям упоминаний индекс содержит все события батча
+            LongObjectHashMap<EventEnrichment> eventIndex = batchProcessor.newEventIndex(streamingChunkSize);
+            BatchRollup rollup = batchProcessor.newRollup();
+
+            int eventCount = streamBatchData(batchId, BatchRecordType.EVENT, Event.class,
+                    events -> batchProcessor.process(
+                            mapTimed(BatchRecordType.EVENT, events, eventMapper::toElasticEvents),
+                            Collections.emptyList(),
+                            eventIndex,
+                            rollup),
+                    chunkConsumer);
+
+            int mentionCount = streamBatchData(batchId, BatchRecordType.MENTION, Mention.class,
+                    mentions -> batchProcessor.process(
+                            Collections.emptyList(),
+                            mapTimed(BatchRecordType.MENTION, mentions, mentionMapper::toElasticMentionList),
+                            eventIndex,
+                            rollup),
+                    chunkConsumer);
+
+            log.info("Батч {} потоково обработан: {} событий и {} упоминаний", batchId, eventCount, mentionCount);
+            processorMetrics.recordBatchRecords(BatchRecordType.EVENT.getCode(), eventCount);
+            processorMetrics.recordBatchRecords(BatchRecordType.MENTION.getCode(), mentionCount);
+            processorMetrics.recordBatchProcessing(ProcessorMetrics.OUTCOME_SUCCESS, System.nanoTime() - startNanos);
+        } catch (RuntimeException e) {
+            processorMetrics.recordBatchProcessing(ProcessorMetrics.OUTCOME_FAILURE, System.nanoTime() - startNanos);
+            throw e;
+        }
+    }
 
-        log.info("Смаплено в {} ElasticEvent и {} ElasticMention для батча {}",
-                elasticEvents.size(), elasticMentions.size(), batchId);
+    /**
+     * Подготавливает батч к повторной отправке.
+     * Ключи сообщений Kafka совпадают с идентификаторами записей в хранилище, поэтому отправленные записи
+     * удаляются по ключам, и при повторе читаются и отправляются только неотправленные.
+     * TTL оставшихся данных продлевается на задержку повтора сверх обычного TTL.
+     *
+     * @param batchId      идентификатор батча
+     * @param published    записи, отправка которых подтверждена Kafka
+     * @param retryDelayMs задержка до повторной обработки в мс
+     * @return true, если в батче остались неотправленные записи
+     */
+    @Override
+    public boolean retainForRetry(String batchId, PublishedRecords published, long retryDelayMs) {
+        try {
+            for (BatchRecordType type : BatchRecordType.values()) {
+                Collection<String> publishedKeys = published.keys(type);
+                if (!publishedKeys.isEmpty()) {
+                    batchDataStorage.removeRecords(batchId, type, publishedKeys);
+                    log.info("Из батча {} удалено {} уже отправленных записей типа {}",
+                            batchId, publishedKeys.size(), type);
+                }
+            }
+            return batchDataStorage.expire(batchId, batchTtlManager.retryTtl(retryDelayMs));
+        } catch (Exception e) {
+            log.error("Ошибка подготовки батча {} к повторной отправке: {}", batchId, e.getMessage(), e);
+            throw new RedisOperationException("Ошибка подготовки батча к повторной отправке", e);
+        }
+    }
 
-        return batchProcessor.process(elasticEvents, elasticMentions);
+    /**
+     * Маппит записи с учетом времени маппинга в метриках.
+     *
+     * @param type    тип записей
+     * @param records исходные записи
+     * @param mapper  функция маппинга
+     * @return смапленные записи
+     */
+    private <T, R> List<R> mapTimed(BatchRecordType type, List<T> records, Function<List<T>, List<R>> mapper) {
+        long startNanos = System.nanoTime();
+        List<R> mapped = mapper.apply(records);
+        processorMetrics.recordMapping(type.getCode(), System.nanoTime() - startNanos);
+        return mapped;
     }
 
     /**
@@ -123,11 +294,7 @@ public class EventProcessingServiceImpl implements EventProcessingService {
      * @return список событий или пустой список
      */
     private List<Event> getEventsForBatch(String batchId) {
-        return loadBatchData(
-                RedisKeysUtil.buildBatchEventsSetKey(batchId),
-                id -> RedisKeysUtil.buildEventKey(batchId, Long.valueOf(id)),
-                Event.class
-        );
+        return loadBatchData(batchId, BatchRecordType.EVENT, Event.class);
     }
 
     /**
@@ -137,59 +304,156 @@ public class EventProcessingServiceImpl implements EventProcessingService {
      * @return список упоминаний или пустой список
      */
     private List<Mention> getMentionsForBatch(String batchId) {
-        return loadBatchData(
-                RedisKeysUtil.buildBatchMentionsSetKey(batchId),
-                id -> RedisKeysUtil.buildMentionKey(batchId, id),
-                Mention.class
-        );
+        return loadBatchData(batchId, BatchRecordType.MENTION, Mention.class);
     }
 
 
     /**
-     * Сохраняет сериализованный объект в Redis с TTL.
+     * Сериализует объекты кодеком хранения с сохранением порядка.
+     * Повторяющиеся идентификаторы схлопываются, как и при записи в Redis.
+     *
+     * @param objects    объекты для сериализации
+     * @param idResolver функция получения идентификатора объекта
+     * @return закодированные представления объектов по их идентификаторам
      */
-    private <T> void saveToRedis(String key, T object) {
-        try {
-            String json = objectMapper.writeValueAsString(object);
-            redisTemplate.opsForValue().set(key, json);
-            redisTemplate.expire(key, getEffectiveTtl());
+    private <T> Map<String, byte[]> serializeAll(List<T> objects,
+                                                 Function<T, String> idResolver) {
+        Map<String, byte[]> payloads = new LinkedHashMap<>(objects.size() * 2);
+        for (T object : objects) {
+            try {
+                payloads.put(idResolver.apply(object), stagingCodec.encode(object));
+            } catch (IOException e) {
+                log.error("Ошибка сериализации объекта {}: {}", object, e.getMessage(), e);
+                throw new RedisSerializationException("Ошибка сериализации объекта для Redis", e);
+            }
+        }
+        return payloads;
+    }
 
-        } catch (JsonProcessingException e) {
-            log.error("Ошибка сериализации объекта {}: {}", object, e.getMessage(), e);
-            throw new RedisSerializationException("Ошибка сериализации объекта для Redis", e);
+    /**
+     * Сжимает (если включено) и сохраняет сериализованные объекты в хранилище батчей с TTL.
+     *
+     * @param batchId  идентификатор батча
+     * @param type     тип записей
+     * @param payloads закодированные представления объектов по их идентификаторам
+     * @return количество сетевых обращений к Redis
+     */
+    private int saveToRedis(String batchId,
+                            BatchRecordType type,
+                            Map<String, byte[]> payloads) {
+        stagingCompression.compressAll(type.getCode(), payloads);
+        try {
+            int roundTrips = batchDataStorage.save(batchId, type, payloads,
+                    batchTtlManager.stagingTtl(), batchTtlManager.markStaged(batchId, type));
+            processorMetrics.recordStagedBytes(type.getCode(), payloads.size(), totalBytes(payloads.values()));
+            return roundTrips;
         } catch (Exception e) {
-            log.error("Ошибка сохранения в Redis для ключа {}: {}", key, e.getMessage(), e);
+            batchTtlManager.forget(batchId); // TTL общего ключа батча мог не выставиться: повторим при следующей записи
+            log.error("Ошибка сохранения в Redis записей типа {} для батча {}: {}", type, batchId, e.getMessage(), e);
             throw new RedisOperationException("Ошибка сохранения объекта в Redis", e);
         }
     }
 
     /**
-     * Загружает данные батча из Redis по ключам ID и преобразует в список объектов.
+     * Загружает данные батча из хранилища и преобразует в список объектов.
+     * Записи, которые не удалось десериализовать, пропускаются.
      *
-     * @param setKey      ключ множества ID
-     * @param keyResolver функция преобразования ID в ключ Redis
-     * @param clazz       класс объекта для десериализации
+     * @param batchId идентификатор батча
+     * @param type    тип записей
+     * @param clazz   класс объекта для десериализации
      * @return список объектов
      */
-    private <T> List<T> loadBatchData(String setKey,
-                                      UnaryOperator<String> keyResolver,
+    private <T> List<T> loadBatchData(String batchId,
+                                      BatchRecordType type,
                                       Class<T> clazz) {
 
-        Set<String> ids = redisTemplate.opsForSet().members(setKey);
-        if (ids == null || ids.isEmpty()) {
-            return Collections.emptyList();
+        long startNanos = System.nanoTime();
+
+        List<byte[]> payloads = batchDataStorage.loadAll(batchId, type);
+        List<T> records = payloads.isEmpty()
+                ? Collections.emptyList()
+                : deserializeAll(batchId, type, payloads, clazz);
+
+        processorMetrics.recordBatchRead(type.getCode(), records.size(), System.nanoTime() - startNanos);
+        return records;
+    }
+
+    /**
+     * Читает данные батча из хранилища порциями, десериализует и маппит каждую порцию
+     * и передает результат обработчику.
+     *
+     * @param batchId       идентификатор батча
+     * @param type          тип записей
+     * @param clazz         класс объекта для десериализации
+     * @param chunkMapper   функция преобразования порции объектов в BatchData
+     * @param chunkConsumer обработчик порции обработанных данных
+     * @return количество успешно прочитанных записей
+     */
+    private <T> int streamBatchData(String batchId,
+                                    BatchRecordType type,
+                                    Class<T> clazz,
+                                    Function<List<T>, BatchData> chunkMapper,
+                                    Consumer<BatchData> chunkConsumer) {
+
+        AtomicInteger recordCount = new AtomicInteger();
+
+        batchDataStorage.forEachChunk(batchId, type, streamingChunkSize, payloads -> {
+            List<T> records = deserializeAll(batchId, type, payloads, clazz);
+            if (records.isEmpty()) {
+                return;
+            }
+            recordCount.addAndGet(records.size());
+            log.debug("Прочитана порция из {} записей типа {} для батча {}", records.size(), type, batchId);
+            chunkConsumer.accept(chunkMapper.apply(records));
+        });
+        return recordCount.get();
+    }
+
+    /**
+     * Распаковывает и десериализует записи батча. Записи, которые не удалось распаковать
+     * или десериализовать, пропускаются.
+     * Большие наборы (от parallelDeserializationThreshold записей) делятся на части по числу потоков
+     * и десериализуются в собственном пуле сервиса; порядок записей сохраняется.
+     * Если пул остановлен, десериализация выполняется в вызывающем потоке.
+     */
+    private <T> List<T> deserializeAll(String batchId,
+                                       BatchRecordType type,
+                                       List<byte[]> payloads,
+                                       Class<T> clazz) {
+        List<byte[]> restored = stagingCompression.decompressAll(type.getCode(), payloads);
+        int parts = Math.max(deserializationThreads, 1);
+        if (restored.size() < parallelDeserializationThreshold || parts == 1) {
+            return decodeAll(batchId, type, restored, clazz);
         }
 
-        return ids.stream()
-                .map(id -> {
-                    String json = redisTemplate.opsForValue().get(keyResolver.apply(id));
-                    if (json == null) {
-                        return null;
-                    }
+        int partSize = (restored.size() + parts - 1) / parts;
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(parts);
+        try {
+            for (int from = 0; from < restored.size(); from += partSize) {
+                List<byte[]> part = restored.subList(from, Math.min(from + partSize, restored.size()));
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> decodeAll(batchId, type, part, clazz), deserializationExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Пул десериализации остановлен, батч {} десериализуется в текущем потоке", batchId);
+            return decodeAll(batchId, type, restored, clazz);
+        }
+
+        List<T> records = new ArrayList<>(restored.size());
+        futures.forEach(future -> records.addAll(future.join()));
+        return records;
+    }
+
+    private <T> List<T> decodeAll(String batchId,
+                                  BatchRecordType type,
+                                  List<byte[]> payloads,
+                                  Class<T> clazz) {
+        return payloads.stream()
+                .map(payload -> {
                     try {
-                        return objectMapper.readValue(json, clazz);
-                    } catch (JsonProcessingException e) {
-                        log.error("Ошибка десериализации объекта с ключом {}: {}", id, e.getMessage(), e);
+                        return stagingCodec.decode(payload, clazz);
+                    } catch (IOException e) {
+                        log.error("Ошибка десериализации объекта типа {} батча {}: {}", type, batchId, e.getMessage(), e);
                         return null;
                     }
                 })
@@ -197,10 +461,11 @@ public class EventProcessingServiceImpl implements EventProcessingService {
                 .toList();
     }
 
-    /**
-     * Возвращает итоговый TTL для ключей Redis.
-     */
-    private Duration getEffectiveTtl() {
-        return Duration.ofMillis(batchWindowDurationMs + EXTRA_TTL_MILLIS);
+    private static long totalBytes(Collection<byte[]> payloads) {
+        long total = 0;
+        for (byte[] payload : payloads) {
+            total += payload.length;
+        }
+        return total;
     }
 }
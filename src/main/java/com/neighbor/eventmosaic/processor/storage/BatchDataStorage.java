@@ -0,0 +1,85 @@
+package com.neighbor.eventmosaic.processor.storage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Интерфейс хранилища данных батчей в Redis.
+ * Скрывает раскладку ключей: отдельный ключ на каждую запись или один hash на батч.
+ * Работает с уже закодированными представлениями записей (см. {@link com.neighbor.eventmosaic.processor.codec.StagingCodec}).
+ */
+public interface BatchDataStorage {
+
+    /**
+     * Сохраняет записи батча с указанным TTL.
+     * TTL общего ключа батча (множества ID или hash) выставляется, только если передан initBatchTtl,
+     * чтобы не повторять его при каждой записи.
+     *
+     * @param batchId      идентификатор батча
+     * @param type         тип записей
+     * @param payloads     закодированные записи по их идентификаторам
+     * @param ttl          время жизни данных
+     * @param initBatchTtl выставить TTL общего ключа батча
+     * @return количество сетевых обращений к Redis
+     */
+    int save(String batchId, BatchRecordType type, Map<String, byte[]> payloads, Duration ttl, boolean initBatchTtl);
+
+    /**
+     * Загружает все записи указанного типа для батча.
+     *
+     * @param batchId идентификатор батча
+     * @param type    тип записей
+     * @return закодированные записи или пустой список
+     */
+    List<byte[]> loadAll(String batchId, BatchRecordType type);
+
+    /**
+     * Последовательно читает записи батча порциями, не загружая весь батч в память.
+     * Каждая порция передается обработчику сразу после чтения.
+     *
+     * @param batchId       идентификатор батча
+     * @param type          тип записей
+     * @param chunkSize     максимальный размер порции
+     * @param chunkConsumer обработчик порции закодированных записей
+     */
+    void forEachChunk(String batchId, BatchRecordType type, int chunkSize, Consumer<List<byte[]>> chunkConsumer);
+
+    /**
+     * Удаляет из батча записи с указанными идентификаторами.
+     *
+     * @param batchId идентификатор батча
+     * @param type    тип записей
+     * @param ids     идентификаторы удаляемых записей
+     */
+    void removeRecords(String batchId, BatchRecordType type, Collection<String> ids);
+
+    /**
+     * Устанавливает новый TTL на все данные батча (события и упоминания).
+     *
+     * @param batchId идентификатор батча
+     * @param ttl     время жизни данных
+     * @return true, если данные батча есть в Redis
+     */
+    boolean expire(String batchId, Duration ttl);
+
+    /**
+     * Устанавливает новый TTL на данные нескольких батчей пакетно, за минимальное количество обращений к Redis.
+     * В отличие от {@link #expire} не проверяет, есть ли данные батчей в Redis.
+     *
+     * @param batchIds идентификаторы батчей
+     * @param ttl      время жизни данных
+     */
+    void expireBatches(Collection<String> batchIds, Duration ttl);
+
+    /**
+     * Удаляет все данные батча (события и упоминания) командой UNLINK:
+     * память освобождается Redis в фоновом потоке.
+     *
+     * @param batchId идентификатор батча
+     * @return количество удаленных ключей Redis
+     */
+    long delete(String batchId);
+}
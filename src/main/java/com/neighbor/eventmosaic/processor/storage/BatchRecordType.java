@@ -0,0 +1,27 @@
+package com.neighbor.eventmosaic.processor.storage;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Тип записей, временно хранящихся в Redis в рамках батча.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum BatchRecordType {
+
+    /**
+     * События (Event), идентификатор — globalEventId
+     */
+    EVENT("event"),
+
+    /**
+     * Упоминания (Mention), идентификатор — globalEventId_mentionIdentifier
+     */
+    MENTION("mention");
+
+    /**
+     * Код типа записей, используется в тегах метрик
+     */
+    private final String code;
+}
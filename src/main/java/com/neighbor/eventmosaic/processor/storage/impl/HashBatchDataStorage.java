@@ -0,0 +1,192 @@
+package com.neighbor.eventmosaic.processor.storage.impl;
+
+import com.neighbor.eventmosaic.processor.storage.BatchDataStorage;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище данных батчей с одним hash Redis на батч и тип записей.
+ * Ключи: data:events:&lt;batchId&gt; и data:mentions:&lt;batchId&gt;,
+ * поле — идентификатор записи, значение — закодированная запись.
+ * <p>
+ * По сравнению с раскладкой "ключ на запись" не требует отдельных множеств ID,
+ * TTL выставляется на один ключ, чтение выполняется через HSCAN, удаление — одним UNLINK.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "batch.staging.layout", havingValue = "hash")
+public class HashBatchDataStorage implements BatchDataStorage {
+
+    private final RedisTemplate<String, byte[]> stagingRedisTemplate;
+
+    @Value("${batch.staging.pipeline-chunk-size:1000}")
+    private int pipelineChunkSize;
+
+    /**
+     * Сохраняет записи батча.
+     * Каждый чанк (HSET с набором полей) отправляется одним pipeline-запросом,
+     * PEXPIRE ключа добавляется к первому чанку только при инициализации TTL батча.
+     */
+    @Override
+    public int save(String batchId, BatchRecordType type, Map<String, byte[]> payloads, Duration ttl, boolean initBatchTtl) {
+        String hashKey = buildHashKey(batchId, type);
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>(payloads.entrySet());
+        int roundTrips = 0;
+
+        for (int from = 0; from < entries.size(); from += pipelineChunkSize) {
+            Map<String, byte[]> chunk = new LinkedHashMap<>();
+            entries.subList(from, Math.min(from + pipelineChunkSize, entries.size()))
+                    .forEach(entry -> chunk.put(entry.getKey(), entry.getValue()));
+            boolean expireHash = initBatchTtl && from == 0;
+
+            stagingRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                    ops.opsForHash().putAll(hashKey, chunk);
+                    if (expireHash) {
+                        ops.expire(hashKey, ttl);
+                    }
+                    return null;
+                }
+            });
+            roundTrips++;
+        }
+        return roundTrips;
+    }
+
+    /**
+     * Загружает записи батча через HSCAN порциями по pipelineChunkSize полей.
+     */
+    @Override
+    public List<byte[]> loadAll(String batchId, BatchRecordType type) {
+        HashOperations<String, String, byte[]> hashOps = stagingRedisTemplate.opsForHash();
+        ScanOptions options = ScanOptions.scanOptions().count(pipelineChunkSize).build();
+        List<byte[]> payloads = new ArrayList<>();
+
+        try (Cursor<Map.Entry<String, byte[]>> cursor = hashOps.scan(buildHashKey(batchId, type), options)) {
+            cursor.forEachRemaining(entry -> payloads.add(entry.getValue()));
+        }
+        return payloads;
+    }
+
+    /**
+     * Читает записи батча порциями через HSCAN.
+     */
+    @Override
+    public void forEachChunk(String batchId,
+                             BatchRecordType type,
+                             int chunkSize,
+                             Consumer<List<byte[]>> chunkConsumer) {
+
+        HashOperations<String, String, byte[]> hashOps = stagingRedisTemplate.opsForHash();
+        ScanOptions options = ScanOptions.scanOptions().count(chunkSize).build();
+        List<byte[]> chunk = new ArrayList<>(chunkSize);
+
+        try (Cursor<Map.Entry<String, byte[]>> cursor = hashOps.scan(buildHashKey(batchId, type), options)) {
+            while (cursor.hasNext()) {
+                chunk.add(cursor.next().getValue());
+                if (chunk.size() == chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    /**
+     * Удаляет поля записей из hash батча командами HDEL порциями по pipelineChunkSize полей.
+     */
+    @Override
+    public void removeRecords(String batchId, BatchRecordType type, Collection<String> ids) {
+        String hashKey = buildHashKey(batchId, type);
+        Object[] fields = ids.toArray();
+
+        for (int from = 0; from < fields.length; from += pipelineChunkSize) {
+            stagingRedisTemplate.opsForHash()
+                    .delete(hashKey, Arrays.copyOfRange(fields, from, Math.min(from + pipelineChunkSize, fields.length)));
+        }
+    }
+
+    /**
+     * Продлевает TTL hash событий и hash упоминаний батча.
+     */
+    @Override
+    public boolean expire(String batchId, Duration ttl) {
+        boolean dataPresent = false;
+        for (BatchRecordType type : BatchRecordType.values()) {
+            dataPresent |= Boolean.TRUE.equals(stagingRedisTemplate.expire(buildHashKey(batchId, type), ttl));
+        }
+        return dataPresent;
+    }
+
+    /**
+     * Продлевает TTL hash событий и упоминаний всех переданных батчей одним pipeline-запросом:
+     * на каждый hash приходится одна команда EXPIRE.
+     */
+    @Override
+    public void expireBatches(Collection<String> batchIds, Duration ttl) {
+        if (batchIds.isEmpty()) {
+            return;
+        }
+        stagingRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                for (String batchId : batchIds) {
+                    for (BatchRecordType type : BatchRecordType.values()) {
+                        ops.expire(buildHashKey(batchId, type), ttl);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Удаляет hash событий и hash упоминаний батча одной командой UNLINK.
+     */
+    @Override
+    public long delete(String batchId) {
+        List<String> keys = List.of(
+                buildHashKey(batchId, BatchRecordType.EVENT),
+                buildHashKey(batchId, BatchRecordType.MENTION));
+
+        Long deletedCount = stagingRedisTemplate.unlink(keys);
+        log.debug("Удалено {} hash-ключей данных для батча {}", deletedCount, batchId);
+        return deletedCount == null ? 0 : deletedCount;
+    }
+
+    private String buildHashKey(String batchId, BatchRecordType type) {
+        return switch (type) {
+            case EVENT -> RedisKeysUtil.buildBatchEventsHashKey(batchId);
+            case MENTION -> RedisKeysUtil.buildBatchMentionsHashKey(batchId);
+        };
+    }
+}
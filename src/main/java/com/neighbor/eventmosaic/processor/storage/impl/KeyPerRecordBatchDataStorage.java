@@ -0,0 +1,323 @@
+package com.neighbor.eventmosaic.processor.storage.impl;
+
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.storage.BatchDataStorage;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище данных батчей с отдельным ключом Redis на каждую запись.
+ * Ключи данных: data:event:&lt;batchId&gt;:&lt;id&gt; и data:mention:&lt;batchId&gt;:&lt;id&gt;,
+ * идентификаторы записей батча хранятся в отдельных множествах.
+ * Данные пишутся и читаются через stagingRedisTemplate с бинарными значениями,
+ * множества идентификаторов читаются через строковый шаблон.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "batch.staging.layout", havingValue = "keys", matchIfMissing = true)
+public class KeyPerRecordBatchDataStorage implements BatchDataStorage {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisTemplate<String, byte[]> stagingRedisTemplate;
+    private final ProcessorMetrics processorMetrics;
+
+    @Value("${batch.staging.pipeline-chunk-size:1000}")
+    private int pipelineChunkSize;
+
+    @Value("${batch.staging.read-chunk-size:1000}")
+    private int readChunkSize;
+
+    /**
+     * Сохраняет записи батча.
+     * Каждый чанк (SET PX для каждой записи и SADD идентификаторов) отправляется одним pipeline-запросом,
+     * PEXPIRE множества добавляется к первому чанку только при инициализации TTL батча.
+     * Идентификаторы, которые уже были в множестве батча, учитываются как дубликаты:
+     * их данные перезаписываются, и в Kafka запись уйдет один раз.
+     */
+    @Override
+    public int save(String batchId, BatchRecordType type, Map<String, byte[]> payloads, Duration ttl, boolean initBatchTtl) {
+        String setKey = buildIdsSetKey(batchId, type);
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>(payloads.entrySet());
+        int roundTrips = 0;
+        long duplicates = 0;
+
+        for (int from = 0; from < entries.size(); from += pipelineChunkSize) {
+            List<Map.Entry<String, byte[]>> chunk =
+                    entries.subList(from, Math.min(from + pipelineChunkSize, entries.size()));
+            boolean expireSet = initBatchTtl && from == 0;
+
+            List<Object> results = stagingRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+
+                    byte[][] ids = new byte[chunk.size()][];
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Map.Entry<String, byte[]> entry = chunk.get(i);
+                        ids[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                        ops.opsForValue().set(buildDataKey(batchId, type, entry.getKey()), entry.getValue(), ttl);
+                    }
+                    ops.opsForSet().add(setKey, ids);
+                    if (expireSet) {
+                        ops.expire(setKey, ttl);
+                    }
+                    return null;
+                }
+            });
+            roundTrips++;
+
+            // Результат SADD следует за результатами SET: количество новых идентификаторов в множестве
+            if (results.size() > chunk.size() && results.get(chunk.size()) instanceof Long added) {
+                duplicates += chunk.size() - added;
+            }
+        }
+        processorMetrics.recordDuplicates(type.getCode(), ProcessorMetrics.DEDUP_STAGE_BATCH, duplicates);
+        return roundTrips;
+    }
+
+    /**
+     * Загружает записи батча: получает ID из множества и читает ключи данных порциями через MGET.
+     * Отсутствующие (например, истекшие по TTL) записи пропускаются.
+     */
+    @Override
+    public List<byte[]> loadAll(String batchId, BatchRecordType type) {
+        Set<String> ids = redisTemplate.opsForSet().members(buildIdsSetKey(batchId, type));
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return loadByIds(batchId, type, ids);
+    }
+
+    /**
+     * Читает записи батча порциями: обходит множество ID курсором SSCAN
+     * и читает ключи данных для каждой набранной порции ID через MGET.
+     */
+    @Override
+    public void forEachChunk(String batchId,
+                             BatchRecordType type,
+                             int chunkSize,
+                             Consumer<List<byte[]>> chunkConsumer) {
+
+        ScanOptions options = ScanOptions.scanOptions().count(chunkSize).build();
+        List<String> ids = new ArrayList<>(chunkSize);
+
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(buildIdsSetKey(batchId, type), options)) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next());
+                if (ids.size() == chunkSize) {
+                    chunkConsumer.accept(loadByIds(batchId, type, ids));
+                    ids.clear();
+                }
+            }
+        }
+        if (!ids.isEmpty()) {
+            chunkConsumer.accept(loadByIds(batchId, type, ids));
+        }
+    }
+
+    /**
+     * Удаляет ключи данных записей и их идентификаторы из множества батча.
+     * Каждый чанк (DEL ключей данных и SREM идентификаторов) отправляется одним pipeline-запросом.
+     */
+    @Override
+    public void removeRecords(String batchId, BatchRecordType type, Collection<String> ids) {
+        String setKey = buildIdsSetKey(batchId, type);
+        List<String> idList = List.copyOf(ids);
+
+        for (int from = 0; from < idList.size(); from += pipelineChunkSize) {
+            List<String> chunk = idList.subList(from, Math.min(from + pipelineChunkSize, idList.size()));
+
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.delete(chunk.stream()
+                            .map(id -> buildDataKey(batchId, type, id))
+                            .toList());
+                    ops.opsForSet().remove(setKey, chunk.toArray());
+                    return null;
+                }
+            });
+        }
+    }
+
+    /**
+     * Продлевает TTL множеств идентификаторов и ключей данных батча.
+     * Множество ID обходится курсором SSCAN, PEXPIRE ключей каждой порции отправляется одним pipeline-запросом.
+     */
+    @Override
+    public boolean expire(String batchId, Duration ttl) {
+        ScanOptions options = ScanOptions.scanOptions().count(pipelineChunkSize).build();
+        boolean dataPresent = false;
+
+        for (BatchRecordType type : BatchRecordType.values()) {
+            String setKey = buildIdsSetKey(batchId, type);
+            if (!Boolean.TRUE.equals(redisTemplate.expire(setKey, ttl))) {
+                continue; // Множества нет: данных этого типа нет или они истекли
+            }
+            dataPresent = true;
+            List<String> dataKeys = new ArrayList<>(pipelineChunkSize);
+
+            try (Cursor<String> cursor = redisTemplate.opsForSet().scan(setKey, options)) {
+                while (cursor.hasNext()) {
+                    dataKeys.add(buildDataKey(batchId, type, cursor.next()));
+                    if (dataKeys.size() == pipelineChunkSize) {
+                        expireAll(dataKeys, ttl);
+                        dataKeys.clear();
+                    }
+                }
+            }
+            if (!dataKeys.isEmpty()) {
+                expireAll(dataKeys, ttl);
+            }
+        }
+        return dataPresent;
+    }
+
+    /**
+     * Продлевает TTL множеств ID и ключей данных всех переданных батчей.
+     * Множества обходятся курсором SSCAN, а ключи всех батчей накапливаются и продлеваются
+     * pipeline-запросами PEXPIRE по pipelineChunkSize ключей, а не отдельным запросом на каждый батч.
+     */
+    @Override
+    public void expireBatches(Collection<String> batchIds, Duration ttl) {
+        ScanOptions options = ScanOptions.scanOptions().count(pipelineChunkSize).build();
+        List<String> keys = new ArrayList<>(pipelineChunkSize);
+
+        for (String batchId : batchIds) {
+            for (BatchRecordType type : BatchRecordType.values()) {
+                String setKey = buildIdsSetKey(batchId, type);
+                keys.add(setKey);
+
+                try (Cursor<String> cursor = redisTemplate.opsForSet().scan(setKey, options)) {
+                    while (cursor.hasNext()) {
+                        keys.add(buildDataKey(batchId, type, cursor.next()));
+                        if (keys.size() >= pipelineChunkSize) {
+                            expireAll(keys, ttl);
+                            keys.clear();
+                        }
+                    }
+                }
+            }
+        }
+        if (!keys.isEmpty()) {
+            expireAll(keys, ttl);
+        }
+    }
+
+    /**
+     * Удаляет ключи данных и множества идентификаторов батча.
+     * Множество ID обходится курсором SSCAN, ключи данных каждой порции удаляются одной командой UNLINK,
+     * поэтому ни список всех ключей батча, ни освобождение их памяти не блокируют клиент и Redis.
+     */
+    @Override
+    public long delete(String batchId) {
+        ScanOptions options = ScanOptions.scanOptions().count(pipelineChunkSize).build();
+        long deletedCount = 0;
+
+        for (BatchRecordType type : BatchRecordType.values()) {
+            String setKey = buildIdsSetKey(batchId, type);
+            List<String> dataKeys = new ArrayList<>(pipelineChunkSize);
+
+            try (Cursor<String> cursor = redisTemplate.opsForSet().scan(setKey, options)) {
+                while (cursor.hasNext()) {
+                    dataKeys.add(buildDataKey(batchId, type, cursor.next()));
+                    if (dataKeys.size() == pipelineChunkSize) {
+                        deletedCount += unlinkAll(dataKeys);
+                        dataKeys.clear();
+                    }
+                }
+            }
+            dataKeys.add(setKey);
+            deletedCount += unlinkAll(dataKeys);
+            log.debug("Удалены ключи данных и множество {}", setKey);
+        }
+        return deletedCount;
+    }
+
+    /**
+     * Удаляет переданные ключи одной командой UNLINK.
+     */
+    private long unlinkAll(List<String> keys) {
+        Long unlinked = redisTemplate.unlink(keys);
+        return unlinked == null ? 0 : unlinked;
+    }
+
+    /**
+     * Устанавливает TTL на переданные ключи одним pipeline-запросом.
+     */
+    private void expireAll(List<String> keys, Duration ttl) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                keys.forEach(key -> ops.expire(key, ttl));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Читает ключи данных для переданных ID командами MGET порциями по readChunkSize ключей,
+     * пропуская отсутствующие (истекшие по TTL раньше множества ID) и учитывая их в метриках.
+     */
+    private List<byte[]> loadByIds(String batchId, BatchRecordType type, Collection<String> ids) {
+        List<String> keys = ids.stream()
+                .map(id -> buildDataKey(batchId, type, id))
+                .toList();
+        List<byte[]> payloads = new ArrayList<>(keys.size());
+
+        for (int from = 0; from < keys.size(); from += readChunkSize) {
+            List<byte[]> values = stagingRedisTemplate.opsForValue()
+                    .multiGet(keys.subList(from, Math.min(from + readChunkSize, keys.size())));
+            if (values == null) {
+                continue;
+            }
+            values.stream()
+                    .filter(Objects::nonNull)
+                    .forEach(payloads::add);
+        }
+        processorMetrics.recordExpiredRecords(type.getCode(), keys.size() - payloads.size());
+        return payloads;
+    }
+
+    private String buildIdsSetKey(String batchId, BatchRecordType type) {
+        return switch (type) {
+            case EVENT -> RedisKeysUtil.buildBatchEventsSetKey(batchId);
+            case MENTION -> RedisKeysUtil.buildBatchMentionsSetKey(batchId);
+        };
+    }
+
+    private String buildDataKey(String batchId, BatchRecordType type, String id) {
+        return switch (type) {
+            case EVENT -> RedisKeysUtil.buildEventKey(batchId, Long.valueOf(id));
+            case MENTION -> RedisKeysUtil.buildMentionKey(batchId, id);
+        };
+    }
+}
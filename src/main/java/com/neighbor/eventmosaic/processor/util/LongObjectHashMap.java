@@ -0,0 +1,150 @@
+package com.neighbor.eventmosaic.processor.util;
+
+import java.util.Arrays;
+
+/**
+ * Хеш-таблица с ключами примитивного типа long и открытой адресацией (линейное пробирование).
+ * <p>
+ * В отличие от {@code HashMap<Long, V>} не упаковывает ключи в Long и не создает узел на каждую запись:
+ * ключи и значения хранятся в двух параллельных массивах. Поддерживает только добавление и поиск,
+ * чего достаточно для индексов, которые строятся и читаются в рамках одного батча.
+ * Класс не потокобезопасен.
+ *
+ * @param <V> тип значений
+ */
+public final class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize ожидаемое количество записей, под которое таблица выделяется без перестроения
+     */
+    public LongObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Добавляет или заменяет значение по ключу.
+     *
+     * @param key   ключ
+     * @param value значение, не null
+     * @return предыдущее значение или null, если ключа не было
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Значение не может быть null");
+        }
+        int index = indexOf(key);
+        V previous = (V) values[index];
+        if (previous == null) {
+            keys[index] = key;
+            if (++size > resizeThreshold) {
+                values[index] = value;
+                rehash(keys.length << 1);
+                return null;
+            }
+        }
+        values[index] = value;
+        return previous;
+    }
+
+    /**
+     * Возвращает значение по ключу.
+     *
+     * @param key ключ
+     * @return значение или null, если ключа нет
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[indexOf(key)];
+    }
+
+    /**
+     * @param key ключ
+     * @return true, если ключ есть в таблице
+     */
+    public boolean containsKey(long key) {
+        return values[indexOf(key)] != null;
+    }
+
+    /**
+     * @return количество записей
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true, если записей нет
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Удаляет все записи, сохраняя выделенные массивы.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Возвращает позицию ключа или свободную ячейку, в которую его нужно записать.
+     * Занятость ячейки определяется значением, поэтому ключ 0 не требует отдельной обработки.
+     */
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int required = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(required - 1) << 1);
+    }
+
+    /**
+     * Перемешивает биты ключа: идентификаторы GDELT последовательны, и без перемешивания
+     * соседние ключи образовывали бы длинные цепочки пробирования.
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
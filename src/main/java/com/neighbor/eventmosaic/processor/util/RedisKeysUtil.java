@@ -10,11 +10,18 @@ public class RedisKeysUtil {
     private static final String MENTION_DATA_PREFIX = "data:mention:";
     private static final String BATCH_EVENTS_KEY_PREFIX = "batch:events:"; // Множество ID событий
     private static final String BATCH_MENTIONS_KEY_PREFIX = "batch:mentions:"; // Множество ID упоминаний
+    private static final String BATCH_EVENTS_HASH_PREFIX = "data:events:";     // Hash событий батча
+    private static final String BATCH_MENTIONS_HASH_PREFIX = "data:mentions:"; // Hash упоминаний батча
 
     // Префиксы/ключи для состояния
     private static final String BATCH_START_TIME_KEY_PREFIX = "batch:start:";
-    private static final String ACTIVE_BATCHES_KEY = "active:batches"; // Множество активных батчей
-    private static final String READY_BATCHES_KEY = "ready:batches";   // Множество готовых батчей
+    private static final String ACTIVE_BATCH_WINDOWS_KEY = "active:batch-windows"; // Окна активных батчей (sorted set по дедлайну)
+    private static final String READY_BATCHES_KEY = "ready:batches";               // Множество готовых батчей
+    private static final String PROCESSING_LEASES_KEY = "processing:batch-leases"; // Аренды обрабатываемых батчей (sorted set по сроку аренды)
+    private static final String PROCESSING_OWNERS_KEY = "processing:batch-owners"; // Владельцы аренд (hash batchId -> экземпляр)
+    private static final String RETRY_BATCHES_KEY = "retry:batches";               // Батчи, ожидающие повтора (sorted set по времени повтора)
+    private static final String RETRY_ATTEMPTS_KEY = "retry:batch-attempts";       // Количество попыток (hash batchId -> попытки)
+    private static final String LEGACY_ACTIVE_BATCHES_KEY = "active:batches";      // Множество активных батчей прежнего формата (переносится при старте)
 
     /* Данные */
     public static String buildEventKey(String batchId, Long eventId) {
@@ -33,16 +40,44 @@ public class RedisKeysUtil {
         return BATCH_MENTIONS_KEY_PREFIX + batchId;
     }
 
+    public static String buildBatchEventsHashKey(String batchId) {
+        return BATCH_EVENTS_HASH_PREFIX + batchId;
+    }
+
+    public static String buildBatchMentionsHashKey(String batchId) {
+        return BATCH_MENTIONS_HASH_PREFIX + batchId;
+    }
+
     /* Состояние */
     public static String buildStartTimeKey(String batchId) {
         return BATCH_START_TIME_KEY_PREFIX + batchId;
     }
 
-    public static String activeBatchesSetKey() {
-        return ACTIVE_BATCHES_KEY;
+    public static String activeBatchWindowsKey() {
+        return ACTIVE_BATCH_WINDOWS_KEY;
+    }
+
+    public static String legacyActiveBatchesSetKey() {
+        return LEGACY_ACTIVE_BATCHES_KEY;
     }
 
     public static String readyBatchesSetKey() {
         return READY_BATCHES_KEY;
     }
+
+    public static String processingLeasesKey() {
+        return PROCESSING_LEASES_KEY;
+    }
+
+    public static String processingOwnersKey() {
+        return PROCESSING_OWNERS_KEY;
+    }
+
+    public static String retryBatchesKey() {
+        return RETRY_BATCHES_KEY;
+    }
+
+    public static String retryAttemptsKey() {
+        return RETRY_ATTEMPTS_KEY;
+    }
 }
@@ -0,0 +1,14 @@
+-- Атомарный захват готового батча с арендой.
+-- KEYS[1] - множество готовых батчей (ready:batches)
+-- KEYS[2] - sorted set аренд обрабатываемых батчей (processing:batch-leases), score - срок аренды
+-- KEYS[3] - hash владельцев аренд (processing:batch-owners)
+-- ARGV[1] - срок аренды в мс
+-- ARGV[2] - идентификатор экземпляра-владельца
+-- Возвращает идентификатор захваченного батча или nil, если готовых батчей нет.
+local batchId = redis.call('SPOP', KEYS[1])
+if not batchId then
+    return false
+end
+redis.call('ZADD', KEYS[2], tonumber(ARGV[1]), batchId)
+redis.call('HSET', KEYS[3], batchId, ARGV[2])
+return batchId
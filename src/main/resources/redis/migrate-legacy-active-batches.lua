@@ -0,0 +1,23 @@
+-- Атомарный перенос батчей из множества активных прежнего формата в sorted set окон.
+-- KEYS[1] - множество активных батчей прежнего формата (active:batches)
+-- KEYS[2] - sorted set окон активных батчей (active:batch-windows), score - дедлайн окна
+-- KEYS[3..] - ключи времени старта переносимых батчей (batch:start:<batchId>)
+-- ARGV[1] - текущее время в мс
+-- ARGV[2] - длительность окна в мс
+-- ARGV[3..] - идентификаторы переносимых батчей (в порядке ключей времени старта)
+-- Дедлайн окна - время старта + длительность окна; если ключ времени старта истек, окно считается закрытым.
+-- Возвращает количество перенесенных батчей.
+local migrated = 0
+for i = 3, #ARGV do
+    local batchId = ARGV[i]
+    if redis.call('SREM', KEYS[1], batchId) == 1 then
+        local startTime = redis.call('GET', KEYS[i])
+        local deadline = tonumber(ARGV[1])
+        if startTime then
+            deadline = tonumber(startTime) + tonumber(ARGV[2])
+        end
+        redis.call('ZADD', KEYS[2], 'NX', deadline, batchId)
+        migrated = migrated + 1
+    end
+end
+return migrated
@@ -0,0 +1,12 @@
+-- Атомарный перенос батчей с истекшим окном в множество готовых.
+-- KEYS[1] - sorted set окон активных батчей (active:batch-windows), score - дедлайн окна
+-- KEYS[2] - множество готовых батчей (ready:batches)
+-- ARGV[1] - текущее время в мс
+-- ARGV[2] - максимальное количество батчей за один вызов
+-- Возвращает список перенесенных батчей.
+local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+if #expired > 0 then
+    redis.call('ZREM', KEYS[1], unpack(expired))
+    redis.call('SADD', KEYS[2], unpack(expired))
+end
+return expired
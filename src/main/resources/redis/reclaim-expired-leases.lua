@@ -0,0 +1,14 @@
+-- Атомарный возврат батчей с истекшей арендой в множество готовых.
+-- KEYS[1] - sorted set аренд обрабатываемых батчей (processing:batch-leases), score - срок аренды
+-- KEYS[2] - hash владельцев аренд (processing:batch-owners)
+-- KEYS[3] - множество готовых батчей (ready:batches)
+-- ARGV[1] - текущее время в мс
+-- ARGV[2] - максимальное количество батчей за один вызов
+-- Возвращает список возвращенных батчей.
+local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+if #expired > 0 then
+    redis.call('ZREM', KEYS[1], unpack(expired))
+    redis.call('HDEL', KEYS[2], unpack(expired))
+    redis.call('SADD', KEYS[3], unpack(expired))
+end
+return expired
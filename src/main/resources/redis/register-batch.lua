@@ -0,0 +1,14 @@
+-- Атомарная регистрация батча.
+-- KEYS[1] - ключ времени старта батча (batch:start:<batchId>)
+-- KEYS[2] - sorted set окон активных батчей (active:batch-windows), score - дедлайн окна
+-- ARGV[1] - текущее время в мс
+-- ARGV[2] - TTL ключа времени старта в мс
+-- ARGV[3] - идентификатор батча
+-- ARGV[4] - длительность окна в мс
+-- Возвращает {1, время старта} для нового батча и {0, время старта} для уже известного.
+if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+    redis.call('ZADD', KEYS[2], 'NX', tonumber(ARGV[1]) + tonumber(ARGV[4]), ARGV[3])
+    return {1, tonumber(ARGV[1])}
+end
+local startTime = redis.call('GET', KEYS[1])
+return {0, tonumber(startTime or ARGV[1])}
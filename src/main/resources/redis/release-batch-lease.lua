@@ -0,0 +1,13 @@
+-- Снятие аренды батча с проверкой владельца.
+-- KEYS[1] - sorted set аренд обрабатываемых батчей (processing:batch-leases)
+-- KEYS[2] - hash владельцев аренд (processing:batch-owners)
+-- ARGV[1] - идентификатор батча
+-- ARGV[2] - идентификатор экземпляра-владельца
+-- Возвращает 1, если аренда снята или уже отсутствовала, и 0, если батч арендован другим экземпляром.
+local owner = redis.call('HGET', KEYS[2], ARGV[1])
+if owner and owner ~= ARGV[2] then
+    return 0
+end
+redis.call('ZREM', KEYS[1], ARGV[1])
+redis.call('HDEL', KEYS[2], ARGV[1])
+return 1
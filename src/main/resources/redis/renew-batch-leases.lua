@@ -0,0 +1,16 @@
+-- Продление аренд батчей, обрабатываемых экземпляром.
+-- KEYS[1] - sorted set аренд обрабатываемых батчей (processing:batch-leases), score - срок аренды
+-- KEYS[2] - hash владельцев аренд (processing:batch-owners)
+-- ARGV[1] - новый срок аренды в мс
+-- ARGV[2] - идентификатор экземпляра-владельца
+-- ARGV[3..] - идентификаторы батчей
+-- Возвращает список батчей, аренда которых экземпляру больше не принадлежит.
+local lost = {}
+for i = 3, #ARGV do
+    if redis.call('HGET', KEYS[2], ARGV[i]) == ARGV[2] then
+        redis.call('ZADD', KEYS[1], 'XX', tonumber(ARGV[1]), ARGV[i])
+    else
+        lost[#lost + 1] = ARGV[i]
+    end
+end
+return lost
@@ -0,0 +1,30 @@
+-- Атомарное планирование повторной обработки батча с экспоненциальной задержкой.
+-- KEYS[1] - sorted set аренд обрабатываемых батчей (processing:batch-leases)
+-- KEYS[2] - hash владельцев аренд (processing:batch-owners)
+-- KEYS[3] - hash количества попыток (retry:batch-attempts)
+-- KEYS[4] - sorted set батчей, ожидающих повтора (retry:batches), score - время повтора
+-- KEYS[5] - ключ времени старта батча
+-- ARGV[1] - идентификатор батча
+-- ARGV[2] - текущее время в мс
+-- ARGV[3] - начальная задержка в мс
+-- ARGV[4] - максимальная задержка в мс
+-- ARGV[5] - максимальное количество попыток отправки (включая первую)
+-- ARGV[6] - TTL обработки батча сверх задержки в мс
+-- ARGV[7] - идентификатор экземпляра-владельца аренды
+-- Возвращает {количество неудачных попыток, задержка в мс}; задержка -1, если попытки исчерпаны,
+-- и {0, -2}, если аренда батча экземпляру больше не принадлежит (ничего не изменяется).
+local batchId = ARGV[1]
+if redis.call('HGET', KEYS[2], batchId) ~= ARGV[7] then
+    return {0, -2}
+end
+redis.call('ZREM', KEYS[1], batchId)
+redis.call('HDEL', KEYS[2], batchId)
+local attempt = redis.call('HINCRBY', KEYS[3], batchId, 1)
+if attempt >= tonumber(ARGV[5]) then
+    redis.call('HDEL', KEYS[3], batchId)
+    return {attempt, -1}
+end
+local delay = math.floor(math.min(tonumber(ARGV[3]) * 2 ^ (attempt - 1), tonumber(ARGV[4])))
+redis.call('ZADD', KEYS[4], tonumber(ARGV[2]) + delay, batchId)
+redis.call('PEXPIRE', KEYS[5], delay + tonumber(ARGV[6]))
+return {attempt, delay}
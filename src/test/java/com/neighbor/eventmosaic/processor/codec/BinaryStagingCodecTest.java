@@ -0,0 +1,91 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Тесты для BinaryStagingCodec")
+class BinaryStagingCodecTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final BinaryStagingCodec binaryCodec = new BinaryStagingCodec(objectMapper);
+    private final JsonStagingCodec jsonCodec = new JsonStagingCodec(objectMapper);
+
+    @Test
+    @DisplayName("должен восстанавливать событие после кодирования")
+    void shouldRoundTripEvent() throws IOException {
+        // Arrange
+        Event event = createEvent();
+
+        // Act
+        Event decoded = binaryCodec.decode(binaryCodec.encode(event), Event.class);
+
+        // Assert
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    @Test
+    @DisplayName("должен восстанавливать упоминание после кодирования")
+    void shouldRoundTripMention() throws IOException {
+        // Arrange
+        Mention mention = new Mention();
+        mention.setGlobalEventId(1_200_000_000L);
+        mention.setMentionIdentifier("https://news.example.com/article.html");
+        mention.setMentionTimeDate(20250323151500L);
+        mention.setMentionDocTone(-3.5);
+
+        // Act
+        Mention decoded = binaryCodec.decode(binaryCodec.encode(mention), Mention.class);
+
+        // Assert
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(mention);
+    }
+
+    @Test
+    @DisplayName("должен кодировать событие компактнее JSON")
+    void shouldEncodeEventMoreCompactlyThanJson() throws IOException {
+        // Arrange
+        Event event = createEvent();
+
+        // Act
+        byte[] binary = binaryCodec.encode(event);
+        byte[] json = jsonCodec.encode(event);
+
+        // Assert
+        assertThat(binary.length).isLessThan(json.length / 2);
+    }
+
+    @Test
+    @DisplayName("должен выбрасывать IOException для некорректных данных")
+    void shouldThrowIOExceptionForInvalidPayload() {
+        assertThatThrownBy(() -> binaryCodec.decode(new byte[]{(byte) 0xFF, 0x00, 0x01}, Event.class))
+                .isInstanceOf(IOException.class);
+    }
+
+    private Event createEvent() {
+        Event event = new Event();
+        event.setGlobalEventId(1_200_000_000L);
+        event.setDay(20250323);
+        event.setActor1Code("USAGOV");
+        event.setActor1Name("UNITED STATES");
+        event.setActor1CountryCode("USA");
+        event.setEventCode("042");
+        event.setQuadClass(1);
+        event.setNumMentions(10);
+        event.setAvgTone(-2.5);
+        event.setActor1GeoFullName("Washington, District of Columbia, United States");
+        event.setActor1GeoLat(38.8951);
+        event.setActor1GeoLong(-77.0364);
+        event.setDateAdded(20250323151500L);
+        event.setSourceUrl("https://news.example.com/world/article.html");
+        return event;
+    }
+}
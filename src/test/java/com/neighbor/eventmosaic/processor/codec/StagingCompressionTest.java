@@ -0,0 +1,96 @@
+package com.neighbor.eventmosaic.processor.codec;
+
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Тесты для StagingCompression")
+class StagingCompressionTest {
+
+    private static final int MIN_SIZE = 64;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<PayloadCompressor> compressors = List.of(new Lz4PayloadCompressor(), new ZstdPayloadCompressor());
+
+    @Test
+    @DisplayName("должен сжимать большие значения и восстанавливать их при чтении")
+    void shouldCompressLargePayloadsAndRestoreThem() {
+        // Arrange
+        StagingCompression compression = createCompression("lz4");
+        byte[] original = largeJson();
+        Map<String, byte[]> payloads = new LinkedHashMap<>(Map.of("1", original));
+
+        // Act
+        compression.compressAll("event", payloads);
+        List<byte[]> restored = compression.decompressAll("event", List.copyOf(payloads.values()));
+
+        // Assert
+        assertThat(payloads.get("1").length).isLessThan(original.length);
+        assertThat(restored).singleElement().isEqualTo(original);
+        DistributionSummary ratio = meterRegistry.find("processor.staging.compression.ratio").summary();
+        assertThat(ratio).isNotNull();
+        assertThat(ratio.mean()).isGreaterThan(1.0);
+    }
+
+    @Test
+    @DisplayName("должен оставлять значения меньше порога без изменений")
+    void shouldKeepSmallPayloadsUncompressed() {
+        // Arrange
+        StagingCompression compression = createCompression("zstd");
+        byte[] original = "{\"globalEventId\":1}".getBytes(StandardCharsets.UTF_8);
+        Map<String, byte[]> payloads = new LinkedHashMap<>(Map.of("1", original));
+
+        // Act
+        compression.compressAll("event", payloads);
+
+        // Assert
+        assertThat(payloads.get("1")).isSameAs(original);
+        assertThat(compression.decompressAll("event", List.of(original))).singleElement().isSameAs(original);
+    }
+
+    @Test
+    @DisplayName("должен распаковывать значения, сжатые другим алгоритмом или при выключенном сжатии")
+    void shouldDecompressPayloadsWrittenWithAnotherAlgorithm() {
+        // Arrange
+        byte[] original = largeJson();
+        Map<String, byte[]> payloads = new LinkedHashMap<>(Map.of("1", original));
+        createCompression("zstd").compressAll("mention", payloads);
+
+        // Act
+        List<byte[]> restored = createCompression("none").decompressAll("mention", List.copyOf(payloads.values()));
+
+        // Assert
+        assertThat(restored).singleElement().isEqualTo(original);
+    }
+
+    @Test
+    @DisplayName("должен отклонять неизвестный алгоритм сжатия")
+    void shouldRejectUnknownAlgorithm() {
+        assertThatThrownBy(() -> createCompression("brotli"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("brotli");
+    }
+
+    private StagingCompression createCompression(String algorithm) {
+        return new StagingCompression(compressors, new ProcessorMetrics(meterRegistry), algorithm, MIN_SIZE);
+    }
+
+    private static byte[] largeJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < 20; i++) {
+            json.append("\"actor1GeoFullName").append(i).append("\":\"Washington, District of Columbia, United States\",");
+        }
+        json.append("\"globalEventId\":1}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,258 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.BatchRollup;
+import com.neighbor.eventmosaic.processor.dto.BatchSummary;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.dto.EventEnrichment;
+import com.neighbor.eventmosaic.processor.dto.GeoPoint;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.util.LongObjectHashMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchProcessorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecentEventCache recentEventCache;
+    private PublishedRecordFilter publishedRecordFilter;
+    private EventOutputPipeline eventOutputPipeline;
+    private BatchProcessor batchProcessor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ProcessorMetrics processorMetrics = new ProcessorMetrics(meterRegistry);
+        recentEventCache = new RecentEventCache(processorMetrics);
+        ReflectionTestUtils.setField(recentEventCache, "enabled", true);
+        ReflectionTestUtils.setField(recentEventCache, "maxMemoryMb", 1L);
+        ReflectionTestUtils.setField(recentEventCache, "ttlMs", 60_000L);
+        recentEventCache.init();
+        publishedRecordFilter = new PublishedRecordFilter();
+        ReflectionTestUtils.setField(publishedRecordFilter, "enabled", true);
+        ReflectionTestUtils.setField(publishedRecordFilter, "expectedRecords", 1000L);
+        ReflectionTestUtils.setField(publishedRecordFilter, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(publishedRecordFilter, "windowMs", 60_000L);
+        publishedRecordFilter.init();
+        eventOutputPipeline = new EventOutputPipeline(processorMetrics);
+        ReflectionTestUtils.setField(eventOutputPipeline, "excludedFields", List.of());
+        eventOutputPipeline.compile();
+        batchProcessor = new BatchProcessor(processorMetrics, recentEventCache, publishedRecordFilter, eventOutputPipeline);
+        ReflectionTestUtils.setField(batchProcessor, "joinEnabled", true);
+        ReflectionTestUtils.setField(batchProcessor, "rollupEnabled", true);
+    }
+
+    @Test
+    @DisplayName("process должен обогащать упоминания полями их событий")
+    void process_shouldEnrichMentionsWithEventFields() {
+        // Arrange
+        ElasticEvent event = createEvent(1L);
+        ElasticMention mention = createMention(1L, "m1");
+
+        // Act
+        BatchData result = batchProcessor.process(List.of(event), List.of(mention));
+
+        // Assert
+        assertThat(result.getEvents()).containsExactly(event);
+        assertThat(result.getMentions()).containsExactly(mention);
+        assertThat(result.getOrphanMentions()).isEmpty();
+        assertThat(mention.getEventCode()).isEqualTo("0101");
+        assertThat(mention.getQuadClass()).isEqualTo(1);
+        assertThat(mention.getActionGeoFullName()).isEqualTo("Moscow, Russia");
+        assertThat(mention.getActionGeoCountryCode()).isEqualTo("RS");
+        assertThat(mention.getActionLocation()).isEqualTo(new GeoPoint(55.75, 37.61));
+    }
+
+    @Test
+    @DisplayName("process должен выносить упоминания без события в батче в отдельный список и учитывать их")
+    void process_shouldRouteOrphanMentionsSeparately() {
+        // Arrange
+        ElasticMention joined = createMention(1L, "m1");
+        ElasticMention orphan = createMention(2L, "m2");
+        ElasticMention withoutEventId = createMention(null, "m3");
+
+        // Act
+        BatchData result = batchProcessor.process(List.of(createEvent(1L)), List.of(joined, orphan, withoutEventId));
+
+        // Assert
+        assertThat(result.getMentions()).containsExactly(joined);
+        assertThat(result.getOrphanMentions()).containsExactly(orphan, withoutEventId);
+        assertThat(orphan.getEventCode()).isNull();
+        assertThat(meterRegistry.counter("processor.batch.mentions.joined").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("processor.batch.mentions.orphan").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("process должен соединять упоминания с событиями предыдущих порций через общий индекс")
+    void process_shouldJoinMentionsAcrossChunksWithSharedIndex() {
+        // Arrange
+        LongObjectHashMap<EventEnrichment> eventIndex = batchProcessor.newEventIndex(2);
+        batchProcessor.process(List.of(createEvent(1L)), Collections.emptyList(), eventIndex);
+        batchProcessor.process(List.of(createEvent(2L)), Collections.emptyList(), eventIndex);
+
+        // Act
+        BatchData result = batchProcessor.process(Collections.emptyList(),
+                List.of(createMention(1L, "m1"), createMention(2L, "m2")), eventIndex);
+
+        // Assert
+        assertThat(result.getMentions()).hasSize(2);
+        assertThat(result.getOrphanMentions()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("process должен обогащать упоминания полями событий из предыдущих батчей через кэш")
+    void process_shouldJoinMentionsWithEventsFromPreviousBatches() {
+        // Arrange
+        batchProcessor.process(List.of(createEvent(1L)), Collections.emptyList());
+        ElasticMention cached = createMention(1L, "m1");
+        ElasticMention orphan = createMention(2L, "m2");
+
+        // Act
+        BatchData result = batchProcessor.process(Collections.emptyList(), List.of(cached, orphan));
+
+        // Assert
+        assertThat(result.getMentions()).containsExactly(cached);
+        assertThat(result.getOrphanMentions()).containsExactly(orphan);
+        assertThat(cached.getEventCode()).isEqualTo("0101");
+        assertThat(cached.getActionLocation()).isEqualTo(new GeoPoint(55.75, 37.61));
+        assertThat(meterRegistry.counter("processor.event.cache.hits").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("processor.event.cache.misses").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("process с выключенным кэшем должен выносить упоминания событий предыдущих батчей в отдельный список")
+    void process_shouldRouteMentionsToOrphansWhenCacheDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(recentEventCache, "enabled", false);
+        batchProcessor.process(List.of(createEvent(1L)), Collections.emptyList());
+        ElasticMention mention = createMention(1L, "m1");
+
+        // Act
+        BatchData result = batchProcessor.process(Collections.emptyList(), List.of(mention));
+
+        // Assert
+        assertThat(result.getMentions()).isEmpty();
+        assertThat(result.getOrphanMentions()).containsExactly(mention);
+        assertThat(meterRegistry.counter("processor.event.cache.misses").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("process должен отбрасывать записи, уже отправленные в недавних батчах, и учитывать их")
+    void process_shouldDropRecordsPublishedInRecentBatches() {
+        // Arrange
+        publishedRecordFilter.markPublished(BatchRecordType.EVENT, "1");
+        publishedRecordFilter.markPublished(BatchRecordType.MENTION, "1_m1");
+        ElasticEvent duplicateEvent = createEvent(1L);
+        ElasticEvent newEvent = createEvent(2L);
+        ElasticMention duplicateMention = createMention(1L, "m1");
+        ElasticMention newMention = createMention(1L, "m2");
+
+        // Act
+        BatchData result = batchProcessor.process(List.of(duplicateEvent, newEvent), List.of(duplicateMention, newMention));
+
+        // Assert
+        assertThat(result.getEvents()).containsExactly(newEvent);
+        assertThat(result.getMentions()).containsExactly(newMention);
+        assertThat(newMention.getEventCode()).isEqualTo("0101");
+        assertThat(meterRegistry.counter("processor.dedup.duplicates", "type", "event", "stage", "published").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter("processor.dedup.duplicates", "type", "mention", "stage", "published").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("process должен накапливать агрегаты батча только по отправляемым событиям")
+    void process_shouldRollUpPublishableEvents() {
+        // Arrange
+        publishedRecordFilter.markPublished(BatchRecordType.EVENT, "1");
+
+        // Act
+        BatchData result = batchProcessor.process(List.of(createEvent(1L), createEvent(2L), createEvent(3L)),
+                Collections.emptyList());
+        List.of("1", "2", "3").forEach(result.getRollup()::commit);
+
+        // Assert
+        List<BatchSummary> summaries = result.getRollup().toSummaries("20250323151500", 0L);
+        assertThat(summaries)
+                .filteredOn(summary -> summary.getDimension().equals(BatchRollup.DIMENSION_COUNTRY))
+                .singleElement()
+                .satisfies(summary -> {
+                    assertThat(summary.getValue()).isEqualTo("RS");
+                    assertThat(summary.getEventCount()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    @DisplayName("process должен фильтровать и проецировать события после соединения, не учитывая отброшенные в агрегатах")
+    void process_shouldFilterAndProjectEventsAfterJoinAndRollup() {
+        // Arrange
+        ReflectionTestUtils.setField(eventOutputPipeline, "rootEventsOnly", true);
+        ReflectionTestUtils.setField(eventOutputPipeline, "excludedFields", List.of("actionGeoFullName"));
+        eventOutputPipeline.compile();
+        ElasticEvent root = createEvent(1L);
+        root.setIsRootEvent(1);
+        ElasticEvent notRoot = createEvent(2L);
+        notRoot.setIsRootEvent(0);
+        ElasticMention mention = createMention(2L, "m1");
+
+        // Act
+        BatchData result = batchProcessor.process(List.of(root, notRoot), List.of(mention));
+        result.getEvents().forEach(event -> result.getRollup().commit(String.valueOf(event.getGlobalEventId())));
+
+        // Assert
+        assertThat(result.getEvents()).containsExactly(root);
+        assertThat(root.getActionGeoFullName()).isNull();
+        assertThat(root.getActionGeoCountryCode()).isEqualTo("RS");
+        assertThat(result.getMentions()).containsExactly(mention);
+        assertThat(mention.getActionGeoFullName()).isEqualTo("Moscow, Russia");
+        assertThat(result.getRollup().toSummaries("20250323151500", 0L))
+                .filteredOn(summary -> summary.getDimension().equals(BatchRollup.DIMENSION_COUNTRY))
+                .singleElement()
+                .satisfies(summary -> assertThat(summary.getEventCount()).isEqualTo(1));
+        assertThat(meterRegistry.counter("processor.output.filtered", "type", "event").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("process с выключенным соединением должен возвращать упоминания без изменений")
+    void process_shouldPassThroughWhenJoinDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(batchProcessor, "joinEnabled", false);
+        ElasticMention mention = createMention(2L, "m1");
+
+        // Act
+        BatchData result = batchProcessor.process(List.of(createEvent(1L)), List.of(mention));
+
+        // Assert
+        assertThat(result.getMentions()).containsExactly(mention);
+        assertThat(result.getOrphanMentions()).isEmpty();
+        assertThat(mention.getEventCode()).isNull();
+    }
+
+    private ElasticEvent createEvent(Long id) {
+        ElasticEvent event = new ElasticEvent();
+        event.setGlobalEventId(id);
+        event.setEventCode("0101");
+        event.setQuadClass(1);
+        event.setActionGeoFullName("Moscow, Russia");
+        event.setActionGeoCountryCode("RS");
+        event.setActionLocation(new GeoPoint(55.75, 37.61));
+        return event;
+    }
+
+    private ElasticMention createMention(Long eventId, String mentionIdentifier) {
+        ElasticMention mention = new ElasticMention();
+        mention.setGlobalEventId(eventId);
+        mention.setMentionIdentifier(mentionIdentifier);
+        return mention;
+    }
+}
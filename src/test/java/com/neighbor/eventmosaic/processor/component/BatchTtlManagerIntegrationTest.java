@@ -0,0 +1,195 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
+import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "batch.processing.window-duration-ms=1000",
+        "batch.processing.ttl.staging-margin-ms=1000",
+        "batch.processing.ttl.processing-ms=600000"
+})
+@ActiveProfiles("test")
+@Testcontainers
+class BatchTtlManagerIntegrationTest implements RedisTestContainerInitializer {
+
+    @Autowired
+    private BatchTtlManager batchTtlManager;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BatchStateService batchStateService;
+
+    @Autowired
+    private EventProcessingService eventProcessingService;
+
+    @Autowired
+    private RegisteredBatchCache registeredBatchCache;
+
+    private static final String TEST_BATCH_ID = "20250323151500";
+    private static final String TEST_BATCH_ID_2 = "20250323151600";
+    private static final long WINDOW_DURATION_MS = 1000;
+    private static final long PROCESSING_TTL_MS = 600_000;
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+        batchTtlManager.forgetAll();
+        registeredBatchCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("stagingTtl должен включать длительность окна и запас")
+    void stagingTtl_shouldIncludeWindowAndMargin() {
+        // Act & Assert
+        assertThat(batchTtlManager.stagingTtl()).isEqualTo(Duration.ofMillis(2000));
+        assertThat(batchTtlManager.retryTtl(5000)).isEqualTo(Duration.ofMillis(PROCESSING_TTL_MS + 5000));
+    }
+
+    @Test
+    @DisplayName("markStaged должен требовать выставления TTL только при первой записи батча каждого типа")
+    void markStaged_shouldRequestTtlOnlyOnFirstWrite() {
+        // Act & Assert
+        assertThat(batchTtlManager.markStaged(TEST_BATCH_ID, BatchRecordType.EVENT)).isTrue();
+        assertThat(batchTtlManager.markStaged(TEST_BATCH_ID, BatchRecordType.EVENT)).isFalse();
+        assertThat(batchTtlManager.markStaged(TEST_BATCH_ID, BatchRecordType.MENTION)).isTrue();
+
+        batchTtlManager.forget(TEST_BATCH_ID);
+        assertThat(batchTtlManager.markStaged(TEST_BATCH_ID, BatchRecordType.EVENT)).isTrue();
+    }
+
+    @Test
+    @DisplayName("markStaged должен снова требовать выставления TTL после истечения TTL хранения")
+    void markStaged_shouldRequestTtlAgainAfterStagingTtl() throws InterruptedException {
+        // Arrange
+        batchTtlManager.markStaged(TEST_BATCH_ID, BatchRecordType.EVENT);
+
+        // Act
+        Thread.sleep(batchTtlManager.stagingTtl().toMillis() + 100);
+
+        // Assert
+        assertThat(batchTtlManager.markStaged(TEST_BATCH_ID, BatchRecordType.EVENT)).isTrue();
+    }
+
+    @Test
+    @DisplayName("extendForProcessing должен продлевать TTL данных и времени старта батча")
+    void extendForProcessing_shouldExtendDataAndStartTimeTtl() {
+        // Arrange
+        String setKey = RedisKeysUtil.buildBatchEventsSetKey(TEST_BATCH_ID);
+        String eventKey = RedisKeysUtil.buildEventKey(TEST_BATCH_ID, 1L);
+        String startTimeKey = RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID);
+        redisTemplate.opsForSet().add(setKey, "1");
+        redisTemplate.expire(setKey, Duration.ofSeconds(2));
+        redisTemplate.opsForValue().set(eventKey, "test_event_data", Duration.ofSeconds(2));
+        redisTemplate.opsForValue().set(startTimeKey, "1", Duration.ofSeconds(2));
+
+        // Act
+        boolean dataPresent = batchTtlManager.extendForProcessing(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(dataPresent).isTrue();
+        assertThat(redisTemplate.getExpire(setKey, TimeUnit.MILLISECONDS)).isGreaterThan(PROCESSING_TTL_MS - 10_000);
+        assertThat(redisTemplate.getExpire(eventKey, TimeUnit.MILLISECONDS)).isGreaterThan(PROCESSING_TTL_MS - 10_000);
+        assertThat(redisTemplate.getExpire(startTimeKey, TimeUnit.MILLISECONDS)).isGreaterThan(PROCESSING_TTL_MS - 10_000);
+    }
+
+    @Test
+    @DisplayName("extendForProcessing должен учитывать в метрике батч, данные которого истекли")
+    void extendForProcessing_shouldRecordExpiredBatch() {
+        // Arrange
+        double expiredBefore = meterRegistry.counter("processor.batch.expired").count();
+
+        // Act
+        boolean dataPresent = batchTtlManager.extendForProcessing(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(dataPresent).isFalse();
+        assertThat(meterRegistry.counter("processor.batch.expired").count()).isEqualTo(expiredBefore + 1);
+    }
+
+    @Test
+    @DisplayName("extendForReady должен пакетно продлевать TTL данных и времени старта всех батчей")
+    void extendForReady_shouldExtendDataAndStartTimeTtlOfAllBatches() {
+        // Arrange
+        List<String> batchIds = List.of(TEST_BATCH_ID, TEST_BATCH_ID_2);
+        for (String batchId : batchIds) {
+            eventProcessingService.storeEvents(batchId, List.of(createEvent(1L), createEvent(2L)));
+            redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(batchId), "1", Duration.ofSeconds(2));
+        }
+
+        // Act
+        batchTtlManager.extendForReady(batchIds);
+
+        // Assert
+        for (String batchId : batchIds) {
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchEventsSetKey(batchId), TimeUnit.MILLISECONDS))
+                    .isGreaterThan(PROCESSING_TTL_MS - 10_000);
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildEventKey(batchId, 2L), TimeUnit.MILLISECONDS))
+                    .isGreaterThan(PROCESSING_TTL_MS - 10_000);
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildStartTimeKey(batchId), TimeUnit.MILLISECONDS))
+                    .isGreaterThan(PROCESSING_TTL_MS - 10_000);
+        }
+    }
+
+    @Test
+    @DisplayName("Батч, ожидающий в готовых дольше запаса staging-margin-ms, должен обрабатываться со всеми данными")
+    void readyBatch_shouldKeepDataWhenWaitingLongerThanStagingMargin() throws InterruptedException {
+        // Arrange
+        batchStateService.registerBatch(TEST_BATCH_ID);
+        eventProcessingService.storeEvents(TEST_BATCH_ID, List.of(createEvent(1L), createEvent(2L)));
+        Thread.sleep(WINDOW_DURATION_MS + 100); // Окно батча закрылось
+        assertThat(batchStateService.checkExpiredBatchWindows()).isEqualTo(1);
+
+        // Батч ждет в готовых дольше TTL хранения (длительность окна + staging-margin-ms)
+        Thread.sleep(batchTtlManager.stagingTtl().toMillis() + 100);
+        double expiredBefore = meterRegistry.counter("processor.batch.expired").count();
+
+        // Act
+        String batchId = batchStateService.getNextReadyBatch();
+        BatchData batchData = eventProcessingService.processBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(batchId).isEqualTo(TEST_BATCH_ID);
+        assertThat(batchData.getEvents()).extracting(ElasticEvent::getGlobalEventId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(batchStateService.getBatchStartTime(TEST_BATCH_ID)).isNotNull();
+        assertThat(meterRegistry.counter("processor.batch.expired").count()).isEqualTo(expiredBefore);
+    }
+
+    private Event createEvent(Long id) {
+        Event event = new Event();
+        event.setGlobalEventId(id);
+        event.setDay(20250323);
+        event.setAvgTone(1.0);
+        return event;
+    }
+}
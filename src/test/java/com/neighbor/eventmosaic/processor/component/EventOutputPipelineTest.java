@@ -0,0 +1,117 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.GeoPoint;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventOutputPipelineTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private EventOutputPipeline eventOutputPipeline;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        eventOutputPipeline = new EventOutputPipeline(new ProcessorMetrics(meterRegistry));
+        ReflectionTestUtils.setField(eventOutputPipeline, "excludedFields", List.of());
+    }
+
+    @Test
+    @DisplayName("apply без настроек должен возвращать события без изменений")
+    void apply_shouldPassThroughWhenNotConfigured() {
+        // Arrange
+        eventOutputPipeline.compile();
+        List<ElasticEvent> events = List.of(createEvent(1L, 0, 1, null));
+
+        // Act
+        List<ElasticEvent> result = eventOutputPipeline.apply(events);
+
+        // Assert
+        assertThat(eventOutputPipeline.isEnabled()).isFalse();
+        assertThat(eventOutputPipeline.hasExcludedFields()).isFalse();
+        assertThat(result).isSameAs(events);
+    }
+
+    @Test
+    @DisplayName("apply должен оставлять только события, удовлетворяющие всем условиям фильтра")
+    void apply_shouldKeepEventsMatchingAllConditions() {
+        // Arrange
+        ReflectionTestUtils.setField(eventOutputPipeline, "rootEventsOnly", true);
+        ReflectionTestUtils.setField(eventOutputPipeline, "minNumMentions", 5);
+        ReflectionTestUtils.setField(eventOutputPipeline, "requireActionLocation", true);
+        eventOutputPipeline.compile();
+        GeoPoint location = new GeoPoint(55.75, 37.61);
+        ElasticEvent matching = createEvent(1L, 1, 10, location);
+        ElasticEvent notRoot = createEvent(2L, 0, 10, location);
+        ElasticEvent fewMentions = createEvent(3L, 1, 2, location);
+        ElasticEvent withoutMentions = createEvent(4L, 1, null, location);
+        ElasticEvent withoutLocation = createEvent(5L, 1, 10, null);
+
+        // Act
+        List<ElasticEvent> result = eventOutputPipeline.apply(
+                List.of(matching, notRoot, fewMentions, withoutMentions, withoutLocation));
+
+        // Assert
+        assertThat(result).containsExactly(matching);
+        assertThat(meterRegistry.counter("processor.output.filtered", "type", "event").count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("apply должен обнулять исключенные поля и сохранять остальные")
+    void apply_shouldClearExcludedFields() {
+        // Arrange
+        ReflectionTestUtils.setField(eventOutputPipeline, "excludedFields",
+                List.of("sourceUrl", " actionLocation ", "numMentions", ""));
+        eventOutputPipeline.compile();
+        ElasticEvent event = createEvent(1L, 1, 10, new GeoPoint(55.75, 37.61));
+        event.setSourceUrl("https://example.com/news");
+
+        // Act
+        List<ElasticEvent> result = eventOutputPipeline.apply(List.of(event));
+
+        // Assert
+        assertThat(eventOutputPipeline.hasExcludedFields()).isTrue();
+        assertThat(result).containsExactly(event);
+        assertThat(event.getSourceUrl()).isNull();
+        assertThat(event.getActionLocation()).isNull();
+        assertThat(event.getNumMentions()).isNull();
+        assertThat(event.getGlobalEventId()).isEqualTo(1L);
+        assertThat(event.getIsRootEvent()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("compile должен отклонять неизвестные поля и ключ события")
+    void compile_shouldRejectUnknownAndKeyFields() {
+        // Arrange
+        ReflectionTestUtils.setField(eventOutputPipeline, "excludedFields", List.of("unknownField"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> eventOutputPipeline.compile())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknownField");
+
+        ReflectionTestUtils.setField(eventOutputPipeline, "excludedFields", List.of("globalEventId"));
+        assertThatThrownBy(() -> eventOutputPipeline.compile())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("globalEventId");
+    }
+
+    private ElasticEvent createEvent(Long id, Integer isRootEvent, Integer numMentions, GeoPoint actionLocation) {
+        ElasticEvent event = new ElasticEvent();
+        event.setGlobalEventId(id);
+        event.setIsRootEvent(isRootEvent);
+        event.setNumMentions(numMentions);
+        event.setActionLocation(actionLocation);
+        return event;
+    }
+}
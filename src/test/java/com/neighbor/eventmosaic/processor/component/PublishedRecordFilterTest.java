@@ -0,0 +1,125 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PublishedRecordFilterTest {
+
+    private static final long EXPECTED_RECORDS = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private PublishedRecordFilter publishedRecordFilter;
+
+    @BeforeEach
+    void setUp() {
+        publishedRecordFilter = createFilter(60_000L);
+    }
+
+    @Test
+    @DisplayName("mightBePublished должен находить все отправленные записи с учетом типа")
+    void mightBePublished_shouldFindAllPublishedRecords() {
+        // Arrange
+        for (long id = 0; id < EXPECTED_RECORDS; id++) {
+            publishedRecordFilter.markPublished(BatchRecordType.EVENT, String.valueOf(id));
+        }
+
+        // Act & Assert
+        for (long id = 0; id < EXPECTED_RECORDS; id++) {
+            assertThat(publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, String.valueOf(id))).isTrue();
+        }
+        assertThat(publishedRecordFilter.mightBePublished(BatchRecordType.MENTION, "0")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Доля ложных срабатываний должна соответствовать настройке")
+    void mightBePublished_shouldKeepFalsePositiveRateWithinConfiguredBound() {
+        // Arrange
+        for (long id = 0; id < EXPECTED_RECORDS; id++) {
+            publishedRecordFilter.markPublished(BatchRecordType.EVENT, String.valueOf(id));
+        }
+
+        // Act
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (long id = EXPECTED_RECORDS; id < EXPECTED_RECORDS + probes; id++) {
+            if (publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, String.valueOf(id))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertThat((double) falsePositives / probes).isLessThan(FALSE_POSITIVE_RATE);
+    }
+
+    @Test
+    @DisplayName("Доля ложных срабатываний по двум заполненным поколениям должна соответствовать настройке")
+    void mightBePublished_shouldKeepFalsePositiveRateWithinConfiguredBoundAcrossGenerations() {
+        // Arrange
+        // Первые EXPECTED_RECORDS записей заполняют одно поколение, следующие - другое
+        for (long id = 0; id < EXPECTED_RECORDS * 2; id++) {
+            publishedRecordFilter.markPublished(BatchRecordType.EVENT, String.valueOf(id));
+        }
+
+        // Act
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (long id = EXPECTED_RECORDS * 2; id < EXPECTED_RECORDS * 2 + probes; id++) {
+            if (publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, String.valueOf(id))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertThat(publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, "0")).isTrue();
+        // Запас 10% на статистический разброс выборки
+        assertThat((double) falsePositives / probes).isLessThan(FALSE_POSITIVE_RATE * 1.1);
+    }
+
+    @Test
+    @DisplayName("Фильтр должен забывать записи через два поколения")
+    void markPublished_shouldForgetRecordsAfterTwoGenerations() throws InterruptedException {
+        // Arrange
+        publishedRecordFilter = createFilter(100L);
+        publishedRecordFilter.markPublished(BatchRecordType.EVENT, "1");
+
+        // Act
+        Thread.sleep(150);
+        publishedRecordFilter.markPublished(BatchRecordType.EVENT, "2");
+        boolean rememberedInPreviousGeneration = publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, "1");
+        Thread.sleep(150);
+        publishedRecordFilter.markPublished(BatchRecordType.EVENT, "3");
+
+        // Assert
+        assertThat(rememberedInPreviousGeneration).isTrue();
+        assertThat(publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, "1")).isFalse();
+        assertThat(publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, "3")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Выключенный фильтр не должен считать записи отправленными")
+    void mightBePublished_shouldReturnFalseWhenDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(publishedRecordFilter, "enabled", false);
+
+        // Act
+        publishedRecordFilter.markPublished(BatchRecordType.EVENT, "1");
+
+        // Assert
+        assertThat(publishedRecordFilter.mightBePublished(BatchRecordType.EVENT, "1")).isFalse();
+    }
+
+    private PublishedRecordFilter createFilter(long windowMs) {
+        PublishedRecordFilter filter = new PublishedRecordFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "expectedRecords", EXPECTED_RECORDS);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", FALSE_POSITIVE_RATE);
+        ReflectionTestUtils.setField(filter, "windowMs", windowMs);
+        filter.init();
+        return filter;
+    }
+}
@@ -0,0 +1,102 @@
+package com.neighbor.eventmosaic.processor.component;
+
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.EventEnrichment;
+import com.neighbor.eventmosaic.processor.metrics.ProcessorMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentEventCacheTest {
+
+    /**
+     * Записей в одном сегменте при бюджете 1 МБ: 1 МБ / 160 байт / 4 сегмента.
+     */
+    private static final int SEGMENT_CAPACITY = 1024 * 1024 / 160 / 4;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecentEventCache recentEventCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recentEventCache = createCache(new ProcessorMetrics(meterRegistry), 60_000L);
+    }
+
+    @Test
+    @DisplayName("get должен возвращать добавленную проекцию события")
+    void get_shouldReturnPutEnrichment() {
+        // Arrange
+        EventEnrichment enrichment = createEnrichment(1L);
+
+        // Act
+        recentEventCache.put(1L, enrichment);
+
+        // Assert
+        assertThat(recentEventCache.get(1L)).isSameAs(enrichment);
+        assertThat(recentEventCache.get(2L)).isNull();
+        assertThat(recentEventCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("put должен вытеснять самые старые записи при превышении бюджета памяти")
+    void put_shouldEvictOldestEntriesWhenBudgetExceeded() {
+        // Act
+        for (long id = 1; id <= 5L * SEGMENT_CAPACITY; id++) {
+            recentEventCache.put(id, createEnrichment(id));
+        }
+
+        // Assert
+        assertThat(recentEventCache.get(1L)).isNull();
+        assertThat(recentEventCache.get(5L * SEGMENT_CAPACITY)).isNotNull();
+        assertThat(recentEventCache.size()).isLessThanOrEqualTo(4L * SEGMENT_CAPACITY);
+    }
+
+    @Test
+    @DisplayName("get не должен возвращать записи старше времени жизни кэша")
+    void get_shouldNotReturnExpiredEntries() throws InterruptedException {
+        // Arrange
+        recentEventCache = createCache(new ProcessorMetrics(meterRegistry), 200L);
+        recentEventCache.put(1L, createEnrichment(1L));
+
+        // Act
+        Thread.sleep(300);
+
+        // Assert
+        assertThat(recentEventCache.get(1L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Выключенный кэш не должен хранить записи")
+    void put_shouldIgnoreEntriesWhenDisabled() {
+        // Arrange
+        ReflectionTestUtils.setField(recentEventCache, "enabled", false);
+
+        // Act
+        recentEventCache.put(1L, createEnrichment(1L));
+
+        // Assert
+        assertThat(recentEventCache.get(1L)).isNull();
+        assertThat(recentEventCache.size()).isZero();
+    }
+
+    private RecentEventCache createCache(ProcessorMetrics processorMetrics, long ttlMs) {
+        RecentEventCache cache = new RecentEventCache(processorMetrics);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxMemoryMb", 1L);
+        ReflectionTestUtils.setField(cache, "ttlMs", ttlMs);
+        cache.init();
+        return cache;
+    }
+
+    private EventEnrichment createEnrichment(long id) {
+        ElasticEvent event = new ElasticEvent();
+        event.setGlobalEventId(id);
+        event.setEventCode("0101");
+        return EventEnrichment.from(event);
+    }
+}
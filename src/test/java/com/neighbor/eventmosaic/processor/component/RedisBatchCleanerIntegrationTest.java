@@ -1,7 +1,10 @@
 package com.neighbor.eventmosaic.processor.component;
 
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
 import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
 import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,7 +19,7 @@ import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-@SpringBootTest
+@SpringBootTest(properties = "batch.staging.pipeline-chunk-size=10")
 @ActiveProfiles("test")
 @Testcontainers
 class RedisBatchCleanerIntegrationTest implements RedisTestContainerInitializer {
@@ -27,6 +30,12 @@ class RedisBatchCleanerIntegrationTest implements RedisTestContainerInitializer
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BatchStateService batchStateService;
+
     private static final String TEST_BATCH_ID = "20250323151500";
     private static final Long TEST_EVENT_ID = 123456L;
     private static final String TEST_MENTION_ID = "789012";
@@ -58,8 +67,12 @@ class RedisBatchCleanerIntegrationTest implements RedisTestContainerInitializer
         redisTemplate.opsForValue().set(mentionKey, "test_mention_data");
         redisTemplate.opsForSet().add(mentionsSetKey, TEST_MENTION_ID);
 
+        // Захватываем батч экземпляром: аренда обработки и владелец
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
+        assertThat(batchStateService.getNextReadyBatch()).isEqualTo(TEST_BATCH_ID);
+
         // Добавляем батч в активные и готовые
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID);
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID, System.currentTimeMillis());
         redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
         redisTemplate.opsForValue().set(startTimeKey, String.valueOf(System.currentTimeMillis()));
 
@@ -81,11 +94,36 @@ class RedisBatchCleanerIntegrationTest implements RedisTestContainerInitializer
         assertThat(redisTemplate.hasKey(startTimeKey)).isFalse();
 
         // Проверяем, что батч удален из активных и готовых наборов
-        Set<String> activeBatches = redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey());
+        Set<String> activeBatches = redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1);
         Set<String> readyBatches = redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey());
 
         assertThat(activeBatches).doesNotContain(TEST_BATCH_ID).isEmpty();
         assertThat(readyBatches).doesNotContain(TEST_BATCH_ID).isEmpty();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.processingLeasesKey())).isFalse();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.processingOwnersKey())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Не должен очищать батч, арендованный другим экземпляром")
+    void shouldSkipCleanupOfBatchLeasedByAnotherInstance() {
+        // Arrange
+        String eventKey = RedisKeysUtil.buildEventKey(TEST_BATCH_ID, TEST_EVENT_ID);
+        String startTimeKey = RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID);
+        redisTemplate.opsForValue().set(eventKey, "test_event_data");
+        redisTemplate.opsForSet().add(RedisKeysUtil.buildBatchEventsSetKey(TEST_BATCH_ID), TEST_EVENT_ID.toString());
+        redisTemplate.opsForValue().set(startTimeKey, String.valueOf(System.currentTimeMillis()));
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID, System.currentTimeMillis());
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID, "other-instance");
+
+        // Act
+        redisBatchCleaner.cleanupBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(redisTemplate.hasKey(eventKey)).isTrue();
+        assertThat(redisTemplate.hasKey(startTimeKey)).isTrue();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID)).isNotNull();
+        assertThat(redisTemplate.opsForHash().get(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID))
+                .isEqualTo("other-instance");
     }
 
     @Test
@@ -93,18 +131,18 @@ class RedisBatchCleanerIntegrationTest implements RedisTestContainerInitializer
     void shouldHandleEmptyDataSets() {
         // Arrange
         // Создаем пустые сеты
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID);
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID, System.currentTimeMillis());
         redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
 
         // Проверяем наличие ключей перед очисткой
-        assertThat(redisTemplate.hasKey(RedisKeysUtil.activeBatchesSetKey())).isTrue();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.activeBatchWindowsKey())).isTrue();
         assertThat(redisTemplate.hasKey(RedisKeysUtil.readyBatchesSetKey())).isTrue();
 
         // Act
         redisBatchCleaner.cleanupBatch(TEST_BATCH_ID);
 
         // Assert
-        Set<String> activeBatches = redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey());
+        Set<String> activeBatches = redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1);
         Set<String> readyBatches = redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey());
 
         assertThat(activeBatches).doesNotContain(TEST_BATCH_ID).isEmpty();
@@ -123,4 +161,41 @@ class RedisBatchCleanerIntegrationTest implements RedisTestContainerInitializer
         // Assert
         assertThat(redisTemplate.keys("*")).isEmpty();
     }
+
+    @Test
+    @DisplayName("Должен учитывать время успешной очистки в метриках")
+    void shouldRecordCleanupTimer() {
+        // Arrange
+        long cleanupsBefore = cleanupCount();
+
+        // Act
+        redisBatchCleaner.cleanupBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(cleanupCount() - cleanupsBefore).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("cleanupBatchAsync должен удалять данные батча порциями и учитывать удаленные ключи")
+    void cleanupBatchAsync_shouldUnlinkDataInChunksAndRecordKeys() {
+        // Arrange
+        String eventsSetKey = RedisKeysUtil.buildBatchEventsSetKey(TEST_BATCH_ID);
+        for (long eventId = 0; eventId < 25; eventId++) {
+            redisTemplate.opsForValue().set(RedisKeysUtil.buildEventKey(TEST_BATCH_ID, eventId), "test_event_data");
+            redisTemplate.opsForSet().add(eventsSetKey, String.valueOf(eventId));
+        }
+        double keysBefore = meterRegistry.counter("processor.batch.cleanup.keys").count();
+
+        // Act
+        redisBatchCleaner.cleanupBatchAsync(TEST_BATCH_ID).join();
+
+        // Assert
+        assertThat(redisTemplate.keys("*")).isEmpty();
+        assertThat(meterRegistry.counter("processor.batch.cleanup.keys").count() - keysBefore).isEqualTo(26); // 25 записей + множество ID
+    }
+
+    private long cleanupCount() {
+        Timer timer = meterRegistry.find("processor.batch.cleanup").tag("outcome", "success").timer();
+        return timer == null ? 0 : timer.count();
+    }
 }
\ No newline at end of file
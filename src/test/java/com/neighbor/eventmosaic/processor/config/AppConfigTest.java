@@ -0,0 +1,85 @@
+package com.neighbor.eventmosaic.processor.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.neighbor.eventmosaic.processor.dto.BatchSummary;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Тесты для ObjectMapper продюсера")
+class AppConfigTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    @DisplayName("Исключаемые поля событий должны убирать null только из событий")
+    void producerObjectMapper_shouldOmitNullFieldsOnlyInEventsWhenEventFieldsExcluded() {
+        // Arrange
+        ObjectMapper producerMapper = AppConfig.producerObjectMapper(objectMapper, false, true);
+
+        // Act
+        JsonNode event = producerMapper.valueToTree(createEvent());
+        JsonNode mention = producerMapper.valueToTree(createMention());
+        JsonNode summary = producerMapper.valueToTree(createSummary());
+
+        // Assert
+        assertThat(event.has("globalEventId")).isTrue();
+        assertThat(event.has("sourceUrl")).isFalse();
+        assertThat(mention.has("mentionSourceName")).isTrue();
+        assertThat(mention.get("mentionSourceName").isNull()).isTrue();
+        assertThat(summary.has("goldsteinScaleAvg")).isTrue();
+        assertThat(summary.get("goldsteinScaleAvg").isNull()).isTrue();
+        assertThat(objectMapper.valueToTree(createEvent()).has("sourceUrl")).isTrue();
+    }
+
+    @Test
+    @DisplayName("omit-null-fields должен убирать null из всех сообщений")
+    void producerObjectMapper_shouldOmitNullFieldsInAllMessagesWhenEnabled() {
+        // Arrange
+        ObjectMapper producerMapper = AppConfig.producerObjectMapper(objectMapper, true, false);
+
+        // Act
+        JsonNode event = producerMapper.valueToTree(createEvent());
+        JsonNode mention = producerMapper.valueToTree(createMention());
+        JsonNode summary = producerMapper.valueToTree(createSummary());
+
+        // Assert
+        assertThat(event.has("sourceUrl")).isFalse();
+        assertThat(mention.has("mentionSourceName")).isFalse();
+        assertThat(summary.has("goldsteinScaleAvg")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Без настроек должен использоваться ObjectMapper приложения")
+    void producerObjectMapper_shouldReturnApplicationMapperByDefault() {
+        // Act
+        ObjectMapper producerMapper = AppConfig.producerObjectMapper(objectMapper, false, false);
+
+        // Assert
+        assertThat(producerMapper).isSameAs(objectMapper);
+    }
+
+    private ElasticEvent createEvent() {
+        ElasticEvent event = new ElasticEvent();
+        event.setGlobalEventId(1L);
+        return event;
+    }
+
+    private ElasticMention createMention() {
+        ElasticMention mention = new ElasticMention();
+        mention.setGlobalEventId(1L);
+        mention.setMentionIdentifier("https://example.com/news");
+        return mention;
+    }
+
+    private BatchSummary createSummary() {
+        BatchSummary summary = new BatchSummary();
+        summary.setId("20250323151500_country_RS");
+        return summary;
+    }
+}
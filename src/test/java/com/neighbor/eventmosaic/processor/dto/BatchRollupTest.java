@@ -0,0 +1,111 @@
+package com.neighbor.eventmosaic.processor.dto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchRollupTest {
+
+    private static final String TEST_BATCH_ID = "20250323151500";
+    private static final long PROCESSED_AT = 1742742900000L;
+
+    @Test
+    @DisplayName("toSummaries должен считать количество и средние значения по каждому измерению")
+    void toSummaries_shouldAggregateEachDimension() {
+        // Arrange
+        BatchRollup rollup = new BatchRollup();
+        rollup.add(createEvent("RS", "01", 1, 2.0, -1.0));
+        rollup.add(createEvent("RS", "14", 4, -6.0, null));
+        rollup.add(createEvent("US", "01", 1, null, 3.0));
+
+        // Act
+        List<BatchSummary> summaries = rollup.toSummaries(TEST_BATCH_ID, PROCESSED_AT);
+
+        // Assert
+        assertThat(summaries).hasSize(6);
+        BatchSummary russia = find(summaries, BatchRollup.DIMENSION_COUNTRY, "RS");
+        assertThat(russia.getId()).isEqualTo(TEST_BATCH_ID + "_country_RS_" + PROCESSED_AT);
+        assertThat(russia.getBatchId()).isEqualTo(TEST_BATCH_ID);
+        assertThat(russia.getEventCount()).isEqualTo(2);
+        assertThat(russia.getGoldsteinScaleSum()).isEqualTo(-4.0);
+        assertThat(russia.getGoldsteinScaleCount()).isEqualTo(2);
+        assertThat(russia.getGoldsteinScaleAvg()).isEqualTo(-2.0);
+        assertThat(russia.getAvgToneCount()).isEqualTo(1);
+        assertThat(russia.getAvgToneAvg()).isEqualTo(-1.0);
+
+        BatchSummary rootCode = find(summaries, BatchRollup.DIMENSION_EVENT_ROOT_CODE, "01");
+        assertThat(rootCode.getEventCount()).isEqualTo(2);
+        assertThat(rootCode.getGoldsteinScaleAvg()).isEqualTo(2.0);
+        assertThat(rootCode.getAvgToneAvg()).isEqualTo(1.0);
+
+        BatchSummary quadClass = find(summaries, BatchRollup.DIMENSION_QUAD_CLASS, "4");
+        assertThat(quadClass.getEventCount()).isEqualTo(1);
+        assertThat(quadClass.getAvgToneAvg()).isNull();
+    }
+
+    @Test
+    @DisplayName("Отсутствующие и некорректные значения не должны попадать в агрегат измерения")
+    void add_shouldSkipMissingAndInvalidValues() {
+        // Arrange
+        BatchRollup rollup = new BatchRollup();
+
+        // Act
+        rollup.add(createEvent(null, "X1", 7, 1.0, 1.0));
+        rollup.add(createEvent("R", null, null, 1.0, 1.0));
+
+        // Assert
+        assertThat(rollup.isEmpty()).isTrue();
+        assertThat(rollup.toSummaries(TEST_BATCH_ID, PROCESSED_AT)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Отложенные события должны учитываться только после подтверждения отправки и только один раз")
+    void commit_shouldCountOnlyCommittedEventsOnce() {
+        // Arrange
+        BatchRollup rollup = new BatchRollup();
+        ElasticEvent published = createEvent("RS", "01", 1, 2.0, -1.0);
+        published.setGlobalEventId(1L);
+        ElasticEvent unpublished = createEvent("US", "14", 4, 1.0, 1.0);
+        unpublished.setGlobalEventId(2L);
+        rollup.stage(published);
+        rollup.stage(unpublished);
+        published.setActionGeoCountryCode(null); // Проекция после stage не влияет на агрегаты
+
+        // Act
+        boolean emptyBeforeCommit = rollup.isEmpty();
+        rollup.commit("1");
+        rollup.commit("1");
+        rollup.commit("3");
+        rollup.commit("1_m1");
+
+        // Assert
+        assertThat(emptyBeforeCommit).isTrue();
+        List<BatchSummary> summaries = rollup.toSummaries(TEST_BATCH_ID, PROCESSED_AT);
+        assertThat(summaries).extracting(BatchSummary::getValue).containsExactlyInAnyOrder("RS", "01", "1");
+        assertThat(summaries).allSatisfy(summary -> assertThat(summary.getEventCount()).isEqualTo(1));
+    }
+
+    private BatchSummary find(List<BatchSummary> summaries, String dimension, String value) {
+        return summaries.stream()
+                .filter(summary -> summary.getDimension().equals(dimension) && summary.getValue().equals(value))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private ElasticEvent createEvent(String countryCode,
+                                     String rootCode,
+                                     Integer quadClass,
+                                     Double goldsteinScale,
+                                     Double avgTone) {
+        ElasticEvent event = new ElasticEvent();
+        event.setActionGeoCountryCode(countryCode);
+        event.setEventRootCode(rootCode);
+        event.setQuadClass(quadClass);
+        event.setGoldsteinScale(goldsteinScale);
+        event.setAvgTone(avgTone);
+        return event;
+    }
+}
@@ -0,0 +1,186 @@
+package com.neighbor.eventmosaic.processor.listener;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
+import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.testcontainer.KafkaTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static com.neighbor.eventmosaic.processor.listener.KafkaMessageListener.BATCH_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+class KafkaBatchMessageListenerIntegrationTest implements RedisTestContainerInitializer, KafkaTestContainerInitializer {
+
+    @Autowired
+    private KafkaBatchMessageListener kafkaBatchMessageListener;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @MockitoSpyBean
+    private BatchStateService batchStateService;
+
+    @MockitoSpyBean
+    private EventProcessingService eventProcessingService;
+
+    @MockitoSpyBean
+    private DefaultErrorHandler errorHandler;
+
+    @Value("${kafka.topic.consumer.adapter-event}")
+    private String eventTopic;
+
+    @Value("${kafka.topic.consumer.adapter-mention}")
+    private String mentionTopic;
+
+    private static final String FIRST_BATCH_ID = "20250323151500";
+    private static final String SECOND_BATCH_ID = "20250323153000";
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+    }
+
+    @Test
+    @DisplayName("consumeEvents должен группировать записи по X-Batch-ID и регистрировать каждый батч один раз")
+    void consumeEvents_shouldGroupByBatchAndRegisterEachBatchOnce() {
+        // Arrange
+        List<ConsumerRecord<String, Event>> records = List.of(
+                eventRecord(0, FIRST_BATCH_ID, createEvent(1L)),
+                eventRecord(1, SECOND_BATCH_ID, createEvent(2L)),
+                eventRecord(2, FIRST_BATCH_ID, createEvent(3L)));
+
+        // Act
+        kafkaBatchMessageListener.consumeEvents(records);
+
+        // Assert
+        verify(batchStateService, times(1)).registerBatch(FIRST_BATCH_ID);
+        verify(batchStateService, times(1)).registerBatch(SECOND_BATCH_ID);
+        verify(eventProcessingService, times(1)).storeEvents(eq(FIRST_BATCH_ID),
+                argThat(events -> events.stream().map(Event::getGlobalEventId).toList().equals(List.of(1L, 3L))));
+        verify(eventProcessingService, times(1)).storeEvents(eq(SECOND_BATCH_ID),
+                argThat(events -> events.size() == 1));
+        assertThat(storedEventIds(FIRST_BATCH_ID)).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(storedEventIds(SECOND_BATCH_ID)).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("consumeEvents должен сохранять записи до записи без X-Batch-ID и передавать ее индекс обработчику ошибок")
+    void consumeEvents_shouldFailOnRecordWithoutBatchHeader() {
+        // Arrange
+        List<ConsumerRecord<String, Event>> records = List.of(
+                eventRecord(0, FIRST_BATCH_ID, createEvent(1L)),
+                eventRecord(1, null, createEvent(2L)),
+                eventRecord(2, FIRST_BATCH_ID, createEvent(3L)));
+
+        // Act & Assert
+        assertThatThrownBy(() -> kafkaBatchMessageListener.consumeEvents(records))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, e -> {
+                    assertThat(e.getIndex()).isEqualTo(1);
+                    assertThat(e.getCause()).isInstanceOf(MessageConversionException.class);
+                });
+        assertThat(storedEventIds(FIRST_BATCH_ID)).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("consumeMentions должен передавать запись без значения обработчику ошибок, ничего не сохраняя")
+    void consumeMentions_shouldFailOnRecordWithoutValue() {
+        // Arrange
+        ConsumerRecord<String, Mention> emptyRecord = new ConsumerRecord<>(mentionTopic, 0, 0, "key", null);
+        emptyRecord.headers().add(BATCH_HEADER, FIRST_BATCH_ID.getBytes(StandardCharsets.UTF_8));
+
+        // Act & Assert
+        assertThatThrownBy(() -> kafkaBatchMessageListener.consumeMentions(List.of(emptyRecord)))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, e -> assertThat(e.getIndex()).isZero());
+        verify(batchStateService, never()).registerBatch(anyString());
+        verify(eventProcessingService, never()).storeMentions(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Запись без X-Batch-ID из Kafka должна передаваться обработчику ошибок, а следующие записи - сохраняться")
+    void kafkaListener_shouldRouteRecordWithoutBatchHeaderToErrorHandler() throws Exception {
+        // Arrange
+        ProducerRecord<String, Object> before = new ProducerRecord<>(eventTopic, "key", createEvent(10L));
+        before.headers().add(BATCH_HEADER, FIRST_BATCH_ID.getBytes(StandardCharsets.UTF_8));
+        ProducerRecord<String, Object> withoutHeader = new ProducerRecord<>(eventTopic, "key", createEvent(11L));
+        ProducerRecord<String, Object> after = new ProducerRecord<>(eventTopic, "key", createEvent(12L));
+        after.headers().add(BATCH_HEADER, FIRST_BATCH_ID.getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        // Один ключ - одна партиция, поэтому записи читаются в порядке отправки
+        kafkaTemplate.send(before).get(30, TimeUnit.SECONDS);
+        kafkaTemplate.send(withoutHeader).get(30, TimeUnit.SECONDS);
+        kafkaTemplate.send(after).get(30, TimeUnit.SECONDS);
+
+        // Assert
+        await().atMost(60, TimeUnit.SECONDS)
+                .untilAsserted(() -> assertThat(storedEventIds(FIRST_BATCH_ID)).containsExactlyInAnyOrder(10L, 12L));
+        verify(errorHandler, timeout(10_000).atLeastOnce()).handleBatchAndReturnRemaining(
+                argThat(e -> e instanceof BatchListenerFailedException
+                        || e.getCause() instanceof BatchListenerFailedException),
+                any(), any(), any(), any());
+    }
+
+    private List<Long> storedEventIds(String batchId) {
+        return eventProcessingService.processBatch(batchId).getEvents().stream()
+                .map(ElasticEvent::getGlobalEventId)
+                .toList();
+    }
+
+    private ConsumerRecord<String, Event> eventRecord(long offset, String batchId, Event event) {
+        ConsumerRecord<String, Event> consumerRecord = new ConsumerRecord<>(eventTopic, 0, offset, "key", event);
+        if (batchId != null) {
+            consumerRecord.headers().add(BATCH_HEADER, batchId.getBytes(StandardCharsets.UTF_8));
+        }
+        return consumerRecord;
+    }
+
+    private Event createEvent(Long id) {
+        Event event = new Event();
+        event.setGlobalEventId(id);
+        event.setDay(20250323);
+        return event;
+    }
+}
@@ -0,0 +1,370 @@
+package com.neighbor.eventmosaic.processor.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.library.common.dto.Mention;
+import com.neighbor.eventmosaic.processor.event.BatchWindowOpenedEvent;
+import com.neighbor.eventmosaic.processor.testcontainer.KafkaTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный тест сквозной обработки: N батчей по M событий и упоминаний отправляются во входные топики,
+ * проходят через слушатель Kafka, Redis и планировщик и читаются из выходных топиков процессора.
+ * <p>
+ * Отчет: скорость приема записей (от начала отправки до сохранения всех записей в Redis),
+ * перцентили задержки от закрытия окна батча до публикации его последней записи,
+ * пиковое потребление heap и памяти Redis. Отчет пишется в лог и в build/reports/load-test/summary.json.
+ * <p>
+ * Тест помечен тегом {@value #LOAD_TAG} и не входит в задачу test; запуск: ./gradlew loadTest.
+ * Параметры задаются свойствами Gradle с префиксом load. (см. README), свойства приложения —
+ * с префиксом load.app., например -Pload.app.batch.staging.codec=binary.
+ */
+@Tag(ProcessorLoadTest.LOAD_TAG)
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+@Import(ProcessorLoadTest.BatchWindowTracker.class)
+class ProcessorLoadTest implements RedisTestContainerInitializer, KafkaTestContainerInitializer {
+
+    static final String LOAD_TAG = "load";
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessorLoadTest.class);
+
+    private static final String BATCH_HEADER = "X-Batch-ID";
+    private static final Set<String> STORE_OPERATIONS = Set.of("store-event", "store-mention");
+    private static final String APP_PROPERTY_PREFIX = "load.app.";
+    private static final long BASE_EVENT_ID = 1_200_000_000L;
+    private static final LocalDateTime BASE_BATCH_TIME = LocalDateTime.of(2025, 3, 23, 0, 0);
+    private static final DateTimeFormatter BATCH_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final Path REPORT_PATH = Path.of("build", "reports", "load-test", "summary.json");
+
+    private static final int BATCHES = Integer.getInteger("load.batches", 10);
+    private static final int EVENTS_PER_BATCH = Integer.getInteger("load.events-per-batch", 2000);
+    private static final int MENTIONS_PER_BATCH = Integer.getInteger("load.mentions-per-batch", 4000);
+    private static final long WINDOW_MS = Long.getLong("load.window-ms", 3000);
+    private static final long TIMEOUT_SECONDS = Long.getLong("load.timeout-seconds", 300);
+    private static final double MIN_RECORDS_PER_SEC = Double.parseDouble(System.getProperty("load.min-records-per-sec", "0"));
+    private static final long MAX_P99_LATENCY_MS = Long.getLong("load.max-p99-latency-ms", 0);
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BatchWindowTracker batchWindowTracker;
+
+    @Value("${kafka.topic.consumer.adapter-event}")
+    private String adapterEventTopic;
+
+    @Value("${kafka.topic.consumer.adapter-mention}")
+    private String adapterMentionTopic;
+
+    @Value("${kafka.topic.producer.processor-event}")
+    private String processorEventTopic;
+
+    @Value("${kafka.topic.producer.processor-mention}")
+    private String processorMentionTopic;
+
+    @DynamicPropertySource
+    static void registerLoadProperties(DynamicPropertyRegistry registry) {
+        // Обработка запускается таймером закрытия окна, периодический опрос в тестовом профиле отключен
+        registry.add("batch.processing.window-timer.enabled", () -> "true");
+        registry.add("batch.processing.window-duration-ms", () -> WINDOW_MS);
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(APP_PROPERTY_PREFIX))
+                .forEach(name -> registry.add(name.substring(APP_PROPERTY_PREFIX.length()),
+                        () -> System.getProperty(name)));
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+        batchWindowTracker.clear();
+    }
+
+    @Test
+    @DisplayName("Все записи батчей должны пройти от входных до выходных топиков с заданной пропускной способностью")
+    void processBatches_shouldPublishAllRecordsAndReportThroughput() throws Exception {
+        // Arrange
+        long expectedRecords = (long) BATCHES * (EVENTS_PER_BATCH + MENTIONS_PER_BATCH);
+        long[] lastPublishedAt = new long[BATCHES];
+        long publishedRecords = 0;
+        long ingestNanos = 0;
+        long redisPeakBytes = 0;
+        double stagedBefore = stagedRecords();
+        resetHeapPeak();
+
+        try (KafkaConsumer<String, byte[]> consumer = outputConsumer()) {
+            consumer.subscribe(List.of(processorEventTopic, processorMentionTopic));
+
+            // Act
+            long sendStart = System.nanoTime();
+            for (int batch = 0; batch < BATCHES; batch++) {
+                sendBatch(batch);
+            }
+            kafkaTemplate.flush();
+
+            long deadline = sendStart + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (publishedRecords < expectedRecords && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> consumerRecord : consumer.poll(Duration.ofMillis(200))) {
+                    int batch = batchIndex(consumerRecord.key());
+                    if (batch < 0 || batch >= BATCHES) {
+                        continue; // Запись не из этого запуска
+                    }
+                    lastPublishedAt[batch] = Math.max(lastPublishedAt[batch], consumerRecord.timestamp());
+                    publishedRecords++;
+                }
+                if (ingestNanos == 0 && stagedRecords() - stagedBefore >= expectedRecords) {
+                    ingestNanos = System.nanoTime() - sendStart;
+                }
+                redisPeakBytes = Math.max(redisPeakBytes, redisUsedMemory());
+            }
+        }
+
+        // Assert
+        assertThat(publishedRecords).as("Опубликовано записей").isEqualTo(expectedRecords);
+
+        double recordsPerSec = expectedRecords * (double) TimeUnit.SECONDS.toNanos(1) / ingestNanos;
+        List<Long> latencies = windowCloseToPublishLatencies(lastPublishedAt);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("batches", BATCHES);
+        report.put("eventsPerBatch", EVENTS_PER_BATCH);
+        report.put("mentionsPerBatch", MENTIONS_PER_BATCH);
+        report.put("windowMs", WINDOW_MS);
+        report.put("ingestRecordsPerSec", Math.round(recordsPerSec));
+        report.put("latencyP50Ms", percentile(latencies, 50));
+        report.put("latencyP95Ms", percentile(latencies, 95));
+        report.put("latencyP99Ms", percentile(latencies, 99));
+        report.put("latencyMaxMs", percentile(latencies, 100));
+        report.put("peakHeapBytes", heapPeak());
+        report.put("redisPeakUsedMemoryBytes", redisPeakBytes);
+        writeReport(report);
+
+        if (MIN_RECORDS_PER_SEC > 0) {
+            assertThat(recordsPerSec).as("Скорость приема, записей/с").isGreaterThanOrEqualTo(MIN_RECORDS_PER_SEC);
+        }
+        if (MAX_P99_LATENCY_MS > 0) {
+            assertThat(percentile(latencies, 99)).as("p99 задержки публикации, мс").isLessThanOrEqualTo(MAX_P99_LATENCY_MS);
+        }
+    }
+
+    private void sendBatch(int batch) {
+        String batchId = batchId(batch);
+        long firstEventId = BASE_EVENT_ID + (long) batch * EVENTS_PER_BATCH;
+        long batchTimestamp = Long.parseLong(batchId);
+
+        for (int i = 0; i < EVENTS_PER_BATCH; i++) {
+            Event event = event(firstEventId + i, batchTimestamp);
+            send(adapterEventTopic, batchId, String.valueOf(event.getGlobalEventId()), event);
+        }
+        for (int i = 0; i < MENTIONS_PER_BATCH; i++) {
+            Mention mention = mention(firstEventId + i % EVENTS_PER_BATCH, batchTimestamp, i);
+            send(adapterMentionTopic, batchId, String.valueOf(mention.getGlobalEventId()), mention);
+        }
+    }
+
+    private void send(String topic, String batchId, String key, Object value) {
+        ProducerRecord<String, Object> producerRecord = new ProducerRecord<>(topic, key, value);
+        producerRecord.headers().add(BATCH_HEADER, batchId.getBytes(StandardCharsets.UTF_8));
+        kafkaTemplate.send(producerRecord);
+    }
+
+    private static Event event(long globalEventId, long batchTimestamp) {
+        Event event = new Event();
+        event.setGlobalEventId(globalEventId);
+        event.setDay((int) (batchTimestamp / 1_000_000));
+        event.setActor1Code("USAGOV");
+        event.setActor1Name("UNITED STATES");
+        event.setActor1CountryCode("USA");
+        event.setEventCode("042");
+        event.setEventBaseCode("042");
+        event.setEventRootCode("04");
+        event.setQuadClass(1);
+        event.setGoldsteinScale(1.9);
+        event.setNumMentions(4);
+        event.setNumSources(1);
+        event.setNumArticles(4);
+        event.setAvgTone(-2.5);
+        event.setActionGeoType(4);
+        event.setActionGeoFullName("Washington, District of Columbia, United States");
+        event.setActionGeoCountryCode("US");
+        event.setActionGeoLat(38.8951);
+        event.setActionGeoLong(-77.0364);
+        event.setDateAdded(batchTimestamp);
+        event.setSourceUrl("https://news.example.com/world/article-" + globalEventId + ".html");
+        return event;
+    }
+
+    private static Mention mention(long globalEventId, long batchTimestamp, int index) {
+        Mention mention = new Mention();
+        mention.setGlobalEventId(globalEventId);
+        mention.setEventTimeDate(batchTimestamp);
+        mention.setMentionTimeDate(batchTimestamp);
+        mention.setMentionType(1);
+        mention.setMentionSourceName("news.example.com");
+        mention.setMentionIdentifier("https://news.example.com/world/mention-" + batchTimestamp + "-" + index + ".html");
+        mention.setSentenceId(1);
+        mention.setConfidence(50);
+        mention.setMentionDocLen(2500);
+        mention.setMentionDocTone(-2.5);
+        return mention;
+    }
+
+    private static String batchId(int batch) {
+        return BASE_BATCH_TIME.plusMinutes(15L * batch).format(BATCH_ID_FORMAT);
+    }
+
+    /**
+     * Определяет номер батча по ключу выходного сообщения (GlobalEventId или GlobalEventId_MentionIdentifier).
+     */
+    private static int batchIndex(String key) {
+        int separator = key.indexOf('_');
+        long globalEventId = Long.parseLong(separator < 0 ? key : key.substring(0, separator));
+        return (int) ((globalEventId - BASE_EVENT_ID) / EVENTS_PER_BATCH);
+    }
+
+    private List<Long> windowCloseToPublishLatencies(long[] lastPublishedAt) {
+        List<Long> latencies = new ArrayList<>(BATCHES);
+        for (int batch = 0; batch < BATCHES; batch++) {
+            Long windowEnd = batchWindowTracker.windowEnd(batchId(batch));
+            if (windowEnd != null && lastPublishedAt[batch] > 0) {
+                latencies.add(lastPublishedAt[batch] - windowEnd);
+            }
+        }
+        latencies.sort(null);
+        return latencies;
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    private KafkaConsumer<String, byte[]> outputConsumer() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, KAFKA_CONTAINER.getBootstrapServers());
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, "load-test-" + UUID.randomUUID());
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        return new KafkaConsumer<>(properties, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    private double stagedRecords() {
+        return meterRegistry.find("processor.redis.records").counters().stream()
+                .filter(counter -> STORE_OPERATIONS.contains(counter.getId().getTag("operation")))
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private long redisUsedMemory() {
+        try (RedisConnection connection = Objects.requireNonNull(redisTemplate.getConnectionFactory()).getConnection()) {
+            Properties info = connection.serverCommands().info("memory");
+            return info == null ? 0 : Long.parseLong(info.getProperty("used_memory", "0"));
+        }
+    }
+
+    private static void resetHeapPeak() {
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long heapPeak() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private void writeReport(Map<String, Object> report) throws Exception {
+        log.info("Результаты нагрузочного теста: {}", report);
+        Files.createDirectories(REPORT_PATH.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT_PATH.toFile(), report);
+    }
+
+    /**
+     * Запоминает дедлайны окон батчей из событий открытия окна.
+     */
+    @Component
+    static class BatchWindowTracker {
+
+        private final Map<String, Long> windowEnds = new ConcurrentHashMap<>();
+
+        @EventListener
+        public void onBatchWindowOpened(BatchWindowOpenedEvent event) {
+            windowEnds.put(event.getBatchId(), event.getWindowEnd());
+        }
+
+        Long windowEnd(String batchId) {
+            return windowEnds.get(batchId);
+        }
+
+        void clear() {
+            windowEnds.clear();
+        }
+    }
+}
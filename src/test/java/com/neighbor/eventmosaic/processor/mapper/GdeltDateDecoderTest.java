@@ -0,0 +1,61 @@
+package com.neighbor.eventmosaic.processor.mapper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DisplayName("Тесты для GdeltDateDecoder")
+class GdeltDateDecoderTest {
+
+    @ParameterizedTest(name = "[{index}] {0} -> {1}")
+    @CsvSource({
+            "20240229000000, 2024-02-29T00:00:00Z",
+            "20231231235959, 2023-12-31T23:59:59Z",
+            "19000101000001, 1900-01-01T00:00:01Z"
+    })
+    @DisplayName("должен совпадать с разбором через DateTimeFormatter на граничных значениях")
+    void shouldDecodeBoundaryTimestamps(long timestamp, String expected) {
+        // Act
+        OffsetDateTime actual = GdeltDateDecoder.dateTime(timestamp);
+
+        // Assert
+        assertEquals(OffsetDateTime.parse(expected), actual);
+    }
+
+    @ParameterizedTest(name = "[{index}] Некорректный ввод: {0}")
+    @ValueSource(longs = {20230229000000L, 19000229120000L, 20210431000000L, 20210101240000L})
+    @DisplayName("должен возвращать null для несуществующих дат и времени")
+    void shouldReturnNullForNonExistentDates(long timestamp) {
+        // Act & Assert
+        assertNull(GdeltDateDecoder.dateTime(timestamp));
+    }
+
+    @Test
+    @DisplayName("должен переиспользовать закэшированные значения для одного дня")
+    void shouldReuseCachedValuesForSameDay() {
+        // Arrange
+        OffsetDateTime startOfDay = GdeltDateDecoder.startOfDay(20250323);
+        String indexDate = GdeltDateDecoder.indexDate(20250323);
+
+        // Act & Assert
+        assertSame(startOfDay, GdeltDateDecoder.startOfDay(20250323));
+        assertSame(indexDate, GdeltDateDecoder.indexDate(20250323));
+        assertSame(startOfDay, GdeltDateDecoder.dateTime(20250323000000L));
+    }
+
+    @Test
+    @DisplayName("должен выделять первые восемь цифр из длинного значения")
+    void shouldExtractLeadingDay() {
+        // Act & Assert
+        assertEquals(20250323, GdeltDateDecoder.leadingDay(20250323151500L));
+        assertEquals(20250323, GdeltDateDecoder.leadingDay(20250323L));
+    }
+}
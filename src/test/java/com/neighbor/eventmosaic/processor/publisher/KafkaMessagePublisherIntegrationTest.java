@@ -0,0 +1,77 @@
+package com.neighbor.eventmosaic.processor.publisher;
+
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.testcontainer.KafkaTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers
+class KafkaMessagePublisherIntegrationTest implements RedisTestContainerInitializer, KafkaTestContainerInitializer {
+
+    @Autowired
+    private KafkaMessagePublisher kafkaMessagePublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${kafka.topic.producer.processor-event}")
+    private String eventTopic;
+
+    @Test
+    @DisplayName("sendEvents должен отправить порцию событий с одной агрегированной future и учесть метрики топика")
+    void sendEvents_shouldCompleteAggregateFutureAndRecordMetrics() throws Exception {
+        // Arrange
+        List<ElasticEvent> events = LongStream.rangeClosed(1, 5)
+                .mapToObj(id -> {
+                    ElasticEvent event = new ElasticEvent();
+                    event.setGlobalEventId(id);
+                    return event;
+                })
+                .toList();
+        double recordsBefore = publishedCount("processor.kafka.published.records", eventTopic);
+        double bytesBefore = publishedCount("processor.kafka.published.bytes", eventTopic);
+
+        // Act
+        CompletableFuture<Void> future = kafkaMessagePublisher.sendEvents(events);
+        future.get(30, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(future).isCompleted();
+        assertThat(publishedCount("processor.kafka.published.records", eventTopic) - recordsBefore).isEqualTo(5);
+        assertThat(publishedCount("processor.kafka.published.bytes", eventTopic) - bytesBefore).isPositive();
+    }
+
+    @Test
+    @DisplayName("sendMentions должен сразу завершаться для пустой порции")
+    void sendMentions_shouldCompleteImmediatelyForEmptyChunk() {
+        // Act
+        CompletableFuture<Void> future = kafkaMessagePublisher.sendMentions(Collections.<ElasticMention>emptyList());
+
+        // Assert
+        assertThat(future).isCompletedWithValue(null);
+    }
+
+    private double publishedCount(String name, String topic) {
+        Counter counter = meterRegistry.find(name).tag("topic", topic).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,126 @@
+package com.neighbor.eventmosaic.processor.scheduler;
+
+import com.neighbor.eventmosaic.processor.component.RedisBatchCleaner;
+import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.publisher.KafkaMessagePublisher;
+import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.testcontainer.KafkaTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "batch.processing.workers.parallelism=2",
+        "batch.processing.workers.queue-capacity=1"
+})
+@ActiveProfiles("test")
+@Testcontainers
+class BatchProcessingSchedulerParallelTest implements RedisTestContainerInitializer, KafkaTestContainerInitializer {
+
+    @Autowired
+    private BatchProcessingScheduler scheduler;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @MockitoSpyBean
+    private EventProcessingService eventProcessingService;
+
+    @MockitoSpyBean
+    private KafkaMessagePublisher kafkaMessagePublisher;
+
+    @MockitoSpyBean
+    private RedisBatchCleaner redisBatchCleaner;
+
+    private CompletableFuture<SendResult<String, Object>> pendingSend;
+
+    private static final List<String> TEST_BATCH_IDS = List.of(
+            "20250323151500", "20250323151600", "20250323151700", "20250323151800");
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+
+        ElasticEvent testEvent = new ElasticEvent();
+        testEvent.setGlobalEventId(123456L);
+
+        ElasticMention testMention = new ElasticMention();
+        testMention.setGlobalEventId(123456L);
+        testMention.setMentionIdentifier("789012");
+
+        doReturn(new BatchData(List.of(testEvent), List.of(testMention)))
+                .when(eventProcessingService)
+                .processBatch(anyString());
+
+        // Отправка событий завершается только по команде теста, чтобы обработчики оставались занятыми
+        pendingSend = new CompletableFuture<>();
+        doReturn(pendingSend)
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+    }
+
+    @Test
+    @DisplayName("processBatchIfReady должен передать в обработку не больше батчей, чем обработчиков и мест в очереди")
+    void processBatchIfReady_shouldDispatchBatchesUpToParallelismAndQueueCapacity() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_IDS.toArray(String[]::new));
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        // 2 обработчика + 1 место в очереди: один батч остается в Redis до следующего запуска
+        await().atMost(5, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(eventProcessingService, times(3)).processBatch(anyString()));
+        assertThat(redisTemplate.opsForSet().size(RedisKeysUtil.readyBatchesSetKey())).isEqualTo(1);
+        verify(redisBatchCleaner, never()).cleanupBatch(anyString());
+
+        // Act
+        pendingSend.complete(mock(SendResult.class));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(3)).cleanupBatch(anyString()));
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(4)).cleanupBatch(anyString()));
+        TEST_BATCH_IDS.forEach(batchId -> verify(eventProcessingService, times(1)).processBatch(batchId));
+    }
+}
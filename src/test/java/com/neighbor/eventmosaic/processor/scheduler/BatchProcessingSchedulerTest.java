@@ -4,13 +4,16 @@ import com.neighbor.eventmosaic.library.common.dto.Event;
 import com.neighbor.eventmosaic.library.common.dto.Mention;
 import com.neighbor.eventmosaic.processor.component.RedisBatchCleaner;
 import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.BatchRollup;
 import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
 import com.neighbor.eventmosaic.processor.dto.ElasticMention;
 import com.neighbor.eventmosaic.processor.publisher.KafkaMessagePublisher;
 import com.neighbor.eventmosaic.processor.service.BatchStateService;
 import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
 import com.neighbor.eventmosaic.processor.testcontainer.KafkaTestContainerInitializer;
 import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,17 +23,25 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -109,6 +120,65 @@ class BatchProcessingSchedulerTest implements RedisTestContainerInitializer, Kaf
         verify(redisBatchCleaner, never()).cleanupBatch(anyString());
     }
 
+    @Test
+    @DisplayName("renewLeases должен продлевать аренду батча, пока его отправка не завершена")
+    void renewLeases_shouldRenewLeaseWhileBatchIsInFlight() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
+        doReturn(testBatchData)
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+        var pendingFuture = new CompletableFuture<>();
+        doReturn(pendingFuture)
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+        scheduler.processBatchIfReady();
+
+        // Act
+        scheduler.renewLeases();
+        pendingFuture.complete(mock(SendResult.class));
+        scheduler.renewLeases();
+
+        // Assert
+        verify(batchStateService, times(1)).renewLeases(List.of(TEST_BATCH_ID));
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(1)).cleanupBatch(TEST_BATCH_ID));
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.processingLeasesKey())).isFalse();
+    }
+
+    @Test
+    @DisplayName("После утраты аренды батч не должен очищаться экземпляром, завершившим отправку")
+    void renewLeases_shouldSkipCleanupWhenLeaseIsLost() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
+        doReturn(testBatchData)
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+        var pendingFuture = new CompletableFuture<>();
+        doReturn(pendingFuture)
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+        scheduler.processBatchIfReady();
+        doReturn(List.of(TEST_BATCH_ID))
+                .when(batchStateService)
+                .renewLeases(List.of(TEST_BATCH_ID));
+
+        // Act
+        scheduler.renewLeases();
+        pendingFuture.complete(mock(SendResult.class));
+
+        // Assert
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, never()).cleanupBatch(TEST_BATCH_ID));
+        verify(batchStateService, never()).scheduleRetry(anyString());
+    }
+
     @Test
     @DisplayName("processBatchIfReady должен завершиться, если нет готовых батчей")
     void processBatchIfReady_shouldDoNothingWhenNoReadyBatches() {
@@ -188,6 +258,7 @@ class BatchProcessingSchedulerTest implements RedisTestContainerInitializer, Kaf
     @DisplayName("processBatchIfReady должен обрабатывать ошибки при отправке в Kafka")
     void processBatchIfReady_shouldHandleKafkaSendErrors() {
         // Arrange
+        stageTestRecords();
         doReturn(TEST_BATCH_ID)
                 .when(batchStateService)
                 .getNextReadyBatch();
@@ -219,6 +290,257 @@ class BatchProcessingSchedulerTest implements RedisTestContainerInitializer, Kaf
                 .untilAsserted(() -> verify(redisBatchCleaner, never()).cleanupBatch(TEST_BATCH_ID));
     }
 
+    @Test
+    @DisplayName("При ошибке отправки батч должен планироваться на повтор только с неотправленными записями")
+    void processBatchIfReady_shouldScheduleRetryWithoutPublishedRecords() {
+        // Arrange
+        stageTestRecords();
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID); // Батч захватывается с арендой экземпляра
+        doReturn(testBatchData)
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Ошибка отправки в Kafka")))
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        String mentionKey = TEST_EVENT_ID + "_" + TEST_MENTION_ID;
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(eventProcessingService, times(1)).retainForRetry(
+                        eq(TEST_BATCH_ID),
+                        argThat(published -> published.keys(BatchRecordType.EVENT).isEmpty()
+                                && published.keys(BatchRecordType.MENTION).equals(Set.of(mentionKey))),
+                        anyLong()));
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.retryBatchesKey(), TEST_BATCH_ID)).isNotNull();
+        verify(redisBatchCleaner, never()).cleanupBatch(anyString());
+    }
+
+    @Test
+    @DisplayName("Если после ошибки отправки неотправленных записей не осталось, батч должен удаляться без повтора")
+    void processBatchIfReady_shouldCleanupWhenNothingLeftToRetry() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID); // Батч захватывается с арендой экземпляра
+        doReturn(testBatchData)
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Ошибка отправки в Kafka")))
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(1)).cleanupBatch(TEST_BATCH_ID));
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.retryBatchesKey(), TEST_BATCH_ID)).isNull();
+    }
+
+    @Test
+    @DisplayName("Если аренда батча утрачена до планирования повтора, батч не должен очищаться и планироваться на повтор")
+    void processBatchIfReady_shouldSkipRetryAndCleanupWhenLeaseLost() {
+        // Arrange
+        stageTestRecords();
+        doReturn(TEST_BATCH_ID)
+                .when(batchStateService)
+                .getNextReadyBatch();
+        // Батч арендован другим экземпляром
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID, "other-instance");
+        doReturn(testBatchData)
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Ошибка отправки в Kafka")))
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(batchStateService, times(1)).scheduleRetry(TEST_BATCH_ID));
+        verify(eventProcessingService, never()).retainForRetry(anyString(), any(), anyLong());
+        verify(redisBatchCleaner, never()).cleanupBatch(anyString());
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.retryBatchesKey(), TEST_BATCH_ID)).isNull();
+    }
+
+    @Test
+    @DisplayName("При ошибке потоковой обработки повтор должен планироваться после завершения отправляемых порций")
+    void processBatchIfReady_shouldScheduleRetryAfterInFlightChunksComplete() {
+        // Arrange
+        ReflectionTestUtils.setField(scheduler, "streamingEnabled", true);
+        stageTestRecords();
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID); // Батч захватывается с арендой экземпляра
+        doAnswer(invocation -> {
+            Consumer<BatchData> chunkConsumer = invocation.getArgument(1);
+            chunkConsumer.accept(new BatchData(List.of(testEvent), Collections.emptyList()));
+            throw new RuntimeException("Ошибка чтения порции");
+        })
+                .when(eventProcessingService)
+                .processBatchInChunks(eq(TEST_BATCH_ID), any());
+        var pendingFuture = new CompletableFuture<>();
+        doReturn(pendingFuture)
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+
+        try {
+            // Act
+            scheduler.processBatchIfReady();
+
+            // Assert
+            verify(eventProcessingService, never()).retainForRetry(anyString(), any(), anyLong());
+            pendingFuture.complete(mock(SendResult.class));
+            await().atMost(2, TimeUnit.SECONDS)
+                    .untilAsserted(() -> verify(eventProcessingService, times(1)).retainForRetry(
+                            eq(TEST_BATCH_ID),
+                            argThat(published -> published.keys(BatchRecordType.EVENT)
+                                    .equals(Set.of(TEST_EVENT_ID.toString()))),
+                            anyLong()));
+        } finally {
+            ReflectionTestUtils.setField(scheduler, "streamingEnabled", false);
+        }
+    }
+
+    @Test
+    @DisplayName("processBatchIfReady должен отправлять упоминания без события в отдельный топик")
+    void processBatchIfReady_shouldSendOrphanMentionsSeparately() {
+        // Arrange
+        ElasticMention orphanMention = new ElasticMention();
+        orphanMention.setGlobalEventId(TEST_EVENT_ID + 1);
+        orphanMention.setMentionIdentifier(TEST_MENTION_ID);
+
+        doReturn(TEST_BATCH_ID)
+                .when(batchStateService)
+                .getNextReadyBatch();
+        doReturn(new BatchData(List.of(testEvent), List.of(testMention), List.of(orphanMention)))
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+
+        var futureResult = CompletableFuture.completedFuture(mock(SendResult.class));
+        doReturn(futureResult)
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(futureResult)
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+        doReturn(futureResult)
+                .when(kafkaMessagePublisher)
+                .sendOrphanMention(any(ElasticMention.class), anyString());
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        verify(kafkaMessagePublisher, times(1)).sendMention(
+                testMention,
+                testMention.getGlobalEventId() + "_" + testMention.getMentionIdentifier());
+        verify(kafkaMessagePublisher, times(1)).sendOrphanMention(
+                orphanMention,
+                orphanMention.getGlobalEventId() + "_" + orphanMention.getMentionIdentifier());
+
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(1)).cleanupBatch(TEST_BATCH_ID));
+    }
+
+    @Test
+    @DisplayName("processBatchIfReady должен отправлять агрегаты батча в топик агрегатов")
+    void processBatchIfReady_shouldSendBatchSummaries() {
+        // Arrange
+        testEvent.setActionGeoCountryCode("RS");
+        BatchRollup rollup = new BatchRollup();
+        rollup.stage(testEvent);
+
+        doReturn(TEST_BATCH_ID)
+                .when(batchStateService)
+                .getNextReadyBatch();
+        doReturn(new BatchData(List.of(testEvent), List.of(testMention), Collections.emptyList(), rollup))
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+
+        var futureResult = CompletableFuture.completedFuture(mock(SendResult.class));
+        doReturn(futureResult)
+                .when(kafkaMessagePublisher)
+                .sendEvent(any(ElasticEvent.class), anyString());
+        doReturn(futureResult)
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+        doReturn(CompletableFuture.completedFuture(null))
+                .when(kafkaMessagePublisher)
+                .sendSummaries(any());
+
+        // Act
+        scheduler.processBatchIfReady();
+
+        // Assert
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(kafkaMessagePublisher, times(1)).sendSummaries(argThat(summaries ->
+                        summaries.size() == 1
+                                && summaries.getFirst().getBatchId().equals(TEST_BATCH_ID)
+                                && summaries.getFirst().getValue().equals("RS"))));
+
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(1)).cleanupBatch(TEST_BATCH_ID));
+    }
+
+    @Test
+    @DisplayName("Агрегаты должны учитывать только подтвержденные события и повторно отправляться отдельно от батча")
+    void processBatchIfReady_shouldRetrySummariesOfPublishedEventsOnly() {
+        // Arrange
+        Object initialBackoffMs = ReflectionTestUtils.getField(scheduler, "retryInitialBackoffMs");
+        ReflectionTestUtils.setField(scheduler, "retryInitialBackoffMs", 10L);
+        testEvent.setActionGeoCountryCode("RS");
+        ElasticEvent failedEvent = new ElasticEvent();
+        failedEvent.setGlobalEventId(TEST_EVENT_ID + 1);
+        failedEvent.setActionGeoCountryCode("US");
+        BatchRollup rollup = new BatchRollup();
+        rollup.stage(testEvent);
+        rollup.stage(failedEvent);
+
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID); // Батч захватывается с арендой экземпляра
+        doReturn(new BatchData(List.of(testEvent, failedEvent), List.of(testMention), Collections.emptyList(), rollup))
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendEvent(eq(testEvent), anyString());
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Ошибка отправки в Kafka")))
+                .when(kafkaMessagePublisher)
+                .sendEvent(eq(failedEvent), anyString());
+        doReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .when(kafkaMessagePublisher)
+                .sendMention(any(ElasticMention.class), anyString());
+        doReturn(CompletableFuture.failedFuture(new RuntimeException("Ошибка отправки агрегатов")))
+                .doReturn(CompletableFuture.completedFuture(null))
+                .when(kafkaMessagePublisher)
+                .sendSummaries(any());
+
+        try {
+            // Act
+            scheduler.processBatchIfReady();
+
+            // Assert
+            await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+                verify(kafkaMessagePublisher, times(2)).sendSummaries(argThat(summaries ->
+                        summaries.size() == 1 && summaries.getFirst().getValue().equals("RS")));
+                verify(batchStateService, times(1)).scheduleRetry(TEST_BATCH_ID);
+            });
+        } finally {
+            ReflectionTestUtils.setField(scheduler, "retryInitialBackoffMs", initialBackoffMs);
+        }
+    }
+
     @Test
     @DisplayName("processBatchIfReady должен обрабатывать батч с пустыми данными")
     void processBatchIfReady_shouldHandleEmptyBatchData() {
@@ -242,4 +564,17 @@ class BatchProcessingSchedulerTest implements RedisTestContainerInitializer, Kaf
         await().atMost(2, TimeUnit.SECONDS)
                 .untilAsserted(() -> verify(redisBatchCleaner, times(1)).cleanupBatch(TEST_BATCH_ID));
     }
-}
\ No newline at end of file
+
+    /**
+     * Сохраняет в Redis записи тестового батча, чтобы после ошибки отправки было что повторять.
+     */
+    private void stageTestRecords() {
+        Event event = new Event();
+        event.setGlobalEventId(TEST_EVENT_ID);
+        Mention mention = new Mention();
+        mention.setGlobalEventId(TEST_EVENT_ID);
+        mention.setMentionIdentifier(TEST_MENTION_ID);
+        eventProcessingService.storeEvents(TEST_BATCH_ID, List.of(event));
+        eventProcessingService.storeMention(TEST_BATCH_ID, mention);
+    }
+}
@@ -0,0 +1,87 @@
+package com.neighbor.eventmosaic.processor.scheduler;
+
+import com.neighbor.eventmosaic.processor.component.RedisBatchCleaner;
+import com.neighbor.eventmosaic.processor.component.RegisteredBatchCache;
+import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.service.BatchStateService;
+import com.neighbor.eventmosaic.processor.service.EventProcessingService;
+import com.neighbor.eventmosaic.processor.testcontainer.KafkaTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "batch.processing.window-timer.enabled=true",
+        "batch.processing.window-duration-ms=500"
+})
+@ActiveProfiles("test")
+@Testcontainers
+class BatchWindowTimerTest implements RedisTestContainerInitializer, KafkaTestContainerInitializer {
+
+    @Autowired
+    private BatchStateService batchStateService;
+
+    @Autowired
+    private RegisteredBatchCache registeredBatchCache;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @MockitoSpyBean
+    private EventProcessingService eventProcessingService;
+
+    @MockitoSpyBean
+    private RedisBatchCleaner redisBatchCleaner;
+
+    private static final String TEST_BATCH_ID = "20250323151500";
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+        registeredBatchCache.invalidateAll();
+
+        doReturn(new BatchData(Collections.emptyList(), Collections.emptyList()))
+                .when(eventProcessingService)
+                .processBatch(TEST_BATCH_ID);
+    }
+
+    @Test
+    @DisplayName("Батч должен обрабатываться по таймеру сразу после закрытия окна без периодического опроса")
+    void registerBatch_shouldTriggerProcessingWhenWindowCloses() {
+        // Act
+        batchStateService.registerBatch(TEST_BATCH_ID);
+
+        // Assert
+        verify(eventProcessingService, never()).processBatch(TEST_BATCH_ID); // Окно еще открыто
+
+        // Периодический опрос в тестах отключен, поэтому обработку может запустить только таймер
+        await().atMost(2, TimeUnit.SECONDS)
+                .untilAsserted(() -> verify(redisBatchCleaner, times(1)).cleanupBatch(TEST_BATCH_ID));
+        verify(eventProcessingService, times(1)).processBatch(TEST_BATCH_ID);
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
+                .doesNotContain(TEST_BATCH_ID);
+    }
+}
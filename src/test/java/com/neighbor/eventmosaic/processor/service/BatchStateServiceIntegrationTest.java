@@ -1,5 +1,7 @@
 package com.neighbor.eventmosaic.processor.service;
 
+import com.neighbor.eventmosaic.processor.component.RegisteredBatchCache;
+import com.neighbor.eventmosaic.processor.exception.BatchLeaseLostException;
 import com.neighbor.eventmosaic.processor.service.impl.BatchStateServiceImpl;
 import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
 import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
@@ -13,10 +15,12 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -26,6 +30,9 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private RegisteredBatchCache registeredBatchCache;
+
     @MockitoSpyBean
     private BatchStateServiceImpl batchStateService;
 
@@ -40,6 +47,7 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
                 .getConnection()
                 .serverCommands()
                 .flushDb();
+        registeredBatchCache.invalidateAll();
     }
 
     @Test
@@ -51,8 +59,8 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         // Assert
         assertThat(isNew).isTrue();
         assertThat(redisTemplate.hasKey(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID))).isTrue();
-        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey()))
-                .contains(TEST_BATCH_ID);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID))
+                .isNotNull();
     }
 
     @Test
@@ -66,7 +74,49 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
 
         // Assert
         assertThat(isNew).isFalse();
-        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey()))
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
+                .containsOnlyOnce(TEST_BATCH_ID);
+    }
+
+    @Test
+    @DisplayName("Должен устанавливать TTL на время старта при регистрации батча")
+    void registerBatch_shouldSetTtlOnStartTime() {
+        // Act
+        batchStateService.registerBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(redisTemplate.getExpire(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID))).isPositive();
+    }
+
+    @Test
+    @DisplayName("Повторная регистрация в открытом окне должна обслуживаться локальным кэшем без Redis")
+    void registerBatch_shouldUseLocalCacheForKnownBatch() {
+        // Arrange
+        batchStateService.registerBatch(TEST_BATCH_ID);
+        // Удаляем состояние в Redis: если бы регистрация шла в Redis, батч снова стал бы новым
+        redisTemplate.delete(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID));
+
+        // Act
+        boolean isNew = batchStateService.registerBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(isNew).isFalse();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID))).isFalse();
+    }
+
+    @Test
+    @DisplayName("После сброса кэша существующий в Redis батч не должен считаться новым")
+    void registerBatch_shouldReturnFalseForBatchKnownOnlyInRedis() {
+        // Arrange
+        batchStateService.registerBatch(TEST_BATCH_ID);
+        registeredBatchCache.invalidateAll(); // имитируем другой экземпляр сервиса
+
+        // Act
+        boolean isNew = batchStateService.registerBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(isNew).isFalse();
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
                 .containsOnlyOnce(TEST_BATCH_ID);
     }
 
@@ -77,9 +127,10 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         long expiredTime = System.currentTimeMillis() - WINDOW_DURATION_MS - 1000; // время старта + окно + 1 секунда
 
         // Регистрируем батч и устанавливаем время старта на "просроченное"
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID);
         redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID),
                 String.valueOf(expiredTime));
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID,
+                expiredTime + WINDOW_DURATION_MS);
 
         // Act
         int markedCount = batchStateService.checkExpiredBatchWindows();
@@ -88,7 +139,7 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         assertThat(markedCount).isEqualTo(1);
         assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
                 .contains(TEST_BATCH_ID);
-        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey()))
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
                 .doesNotContain(TEST_BATCH_ID);
     }
 
@@ -98,9 +149,10 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         // Arrange
         long recentTime = System.currentTimeMillis() - 1000; // 1 секунда назад
 
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID);
         redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID),
                 String.valueOf(recentTime));
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID,
+                recentTime + WINDOW_DURATION_MS);
 
         // Act
         int markedCount = batchStateService.checkExpiredBatchWindows();
@@ -109,7 +161,7 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         assertThat(markedCount).isZero();
         assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
                 .doesNotContain(TEST_BATCH_ID);
-        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey()))
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
                 .contains(TEST_BATCH_ID);
     }
 
@@ -121,14 +173,16 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         long recentTime = System.currentTimeMillis() - 1000;
 
         // Добавляем просроченный батч
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID);
         redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID),
                 String.valueOf(expiredTime));
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID,
+                expiredTime + WINDOW_DURATION_MS);
 
         // Добавляем свежий батч
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID_2);
         redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID_2),
                 String.valueOf(recentTime));
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID_2,
+                recentTime + WINDOW_DURATION_MS);
 
         // Act
         int markedCount = batchStateService.checkExpiredBatchWindows();
@@ -138,27 +192,28 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
                 .contains(TEST_BATCH_ID)
                 .doesNotContain(TEST_BATCH_ID_2);
-        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey()))
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
                 .contains(TEST_BATCH_ID_2)
                 .doesNotContain(TEST_BATCH_ID);
     }
 
     @Test
-    @DisplayName("checkExpiredBatchWindows должен удалять батчи без временной метки из активных")
-    void checkExpiredBatchWindows_shouldRemoveBatchesWithoutTimestamp() {
+    @DisplayName("checkExpiredBatchWindows должен переводить батч в готовые по дедлайну без чтения времени старта")
+    void checkExpiredBatchWindows_shouldPromoteByDeadlineWithoutStartTime() {
         // Arrange
-        redisTemplate.opsForSet().add(RedisKeysUtil.activeBatchesSetKey(), TEST_BATCH_ID);
-        // не добавляем временную метку
+        long expiredDeadline = System.currentTimeMillis() - 1000;
+        redisTemplate.opsForZSet().add(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID, expiredDeadline);
+        // не добавляем временную метку: дедлайн хранится в score
 
         // Act
         int markedCount = batchStateService.checkExpiredBatchWindows();
 
         // Assert
-        assertThat(markedCount).isZero();
-        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.activeBatchesSetKey()))
+        assertThat(markedCount).isEqualTo(1);
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.activeBatchWindowsKey(), 0, -1))
                 .doesNotContain(TEST_BATCH_ID);
         assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
-                .doesNotContain(TEST_BATCH_ID);
+                .contains(TEST_BATCH_ID);
     }
 
     @Test
@@ -173,6 +228,65 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         assertThat(markedCount).isZero();
     }
 
+    @Test
+    @DisplayName("migrateLegacyActiveBatches должен переносить батчи прежнего формата в окна по времени старта")
+    void migrateLegacyActiveBatches_shouldMoveLegacyBatchesToWindows() {
+        // Arrange
+        long openStartTime = System.currentTimeMillis();
+        long closedStartTime = openStartTime - WINDOW_DURATION_MS - 1000;
+        redisTemplate.opsForSet().add(RedisKeysUtil.legacyActiveBatchesSetKey(), TEST_BATCH_ID, TEST_BATCH_ID_2);
+        redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID), String.valueOf(openStartTime));
+        redisTemplate.opsForValue().set(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID_2), String.valueOf(closedStartTime));
+
+        // Act
+        int migratedCount = batchStateService.migrateLegacyActiveBatches();
+        int markedCount = batchStateService.checkExpiredBatchWindows();
+
+        // Assert
+        assertThat(migratedCount).isEqualTo(2);
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.legacyActiveBatchesSetKey())).isFalse();
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID))
+                .isEqualTo((double) (openStartTime + WINDOW_DURATION_MS));
+        assertThat(markedCount).isEqualTo(1);
+        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
+                .containsExactly(TEST_BATCH_ID_2);
+    }
+
+    @Test
+    @DisplayName("migrateLegacyActiveBatches должен считать окно закрытым, если время старта батча истекло")
+    void migrateLegacyActiveBatches_shouldCloseWindowWithoutStartTime() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.legacyActiveBatchesSetKey(), TEST_BATCH_ID);
+
+        // Act
+        int migratedCount = batchStateService.migrateLegacyActiveBatches();
+        int markedCount = batchStateService.checkExpiredBatchWindows();
+
+        // Assert
+        assertThat(migratedCount).isEqualTo(1);
+        assertThat(markedCount).isEqualTo(1);
+        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
+                .containsExactly(TEST_BATCH_ID);
+    }
+
+    @Test
+    @DisplayName("migrateLegacyActiveBatches не должен менять окно батча, уже зарегистрированного в новом формате")
+    void migrateLegacyActiveBatches_shouldKeepExistingWindow() {
+        // Arrange
+        batchStateService.registerBatch(TEST_BATCH_ID);
+        Double deadline = redisTemplate.opsForZSet().score(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID);
+        redisTemplate.opsForSet().add(RedisKeysUtil.legacyActiveBatchesSetKey(), TEST_BATCH_ID);
+        redisTemplate.delete(RedisKeysUtil.buildStartTimeKey(TEST_BATCH_ID));
+
+        // Act
+        batchStateService.migrateLegacyActiveBatches();
+
+        // Assert
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.activeBatchWindowsKey(), TEST_BATCH_ID))
+                .isEqualTo(deadline);
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.legacyActiveBatchesSetKey())).isFalse();
+    }
+
     @Test
     @DisplayName("getNextReadyBatch должен возвращать и удалять батч из набора готовых")
     void getNextReadyBatch_shouldReturnAndRemoveBatchFromReadySet() {
@@ -219,4 +333,238 @@ class BatchStateServiceIntegrationTest implements RedisTestContainerInitializer
         assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
                 .isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("getNextReadyBatch должен записывать аренду и владельца захваченного батча")
+    void getNextReadyBatch_shouldCreateLeaseForClaimedBatch() {
+        // Arrange
+        long before = System.currentTimeMillis();
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
+
+        // Act
+        String nextBatch = batchStateService.getNextReadyBatch();
+
+        // Assert
+        assertThat(nextBatch).isEqualTo(TEST_BATCH_ID);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID))
+                .isGreaterThan((double) before);
+        assertThat(redisTemplate.opsForHash().get(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID))
+                .isNotNull();
+    }
+
+    @Test
+    @DisplayName("reclaimExpiredLeases должен возвращать в готовые батчи с истекшей арендой")
+    void reclaimExpiredLeases_shouldReturnExpiredLeasesToReady() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID, now - 1000);
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID, "stopped-instance");
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID_2, now + 60000);
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID_2, "live-instance");
+
+        // Act
+        int reclaimedCount = batchStateService.reclaimExpiredLeases();
+
+        // Assert
+        assertThat(reclaimedCount).isEqualTo(1);
+        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
+                .containsExactly(TEST_BATCH_ID);
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.processingLeasesKey(), 0, -1))
+                .containsExactly(TEST_BATCH_ID_2);
+        assertThat(redisTemplate.opsForHash().hasKey(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID))
+                .isFalse();
+    }
+
+    @Test
+    @DisplayName("renewLeases должен продлевать свои аренды и возвращать утраченные")
+    void renewLeases_shouldRenewOwnLeasesAndReportLostOnes() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID);
+        batchStateService.getNextReadyBatch();
+        Double claimedDeadline = redisTemplate.opsForZSet()
+                .score(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID);
+        // Аренду второго батча захватил другой экземпляр
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID_2,
+                System.currentTimeMillis() + 60000);
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID_2, "other-instance");
+
+        // Act
+        List<String> lost = batchStateService.renewLeases(List.of(TEST_BATCH_ID, TEST_BATCH_ID_2));
+
+        // Assert
+        assertThat(lost).containsExactly(TEST_BATCH_ID_2);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID))
+                .isGreaterThanOrEqualTo(claimedDeadline);
+        assertThat(redisTemplate.opsForHash().get(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID_2))
+                .isEqualTo("other-instance");
+    }
+
+    @Test
+    @DisplayName("scheduleRetry должен снимать аренду и планировать повтор с экспоненциальной задержкой")
+    void scheduleRetry_shouldReleaseLeaseAndBackOffExponentially() {
+        // Arrange
+        claimBatch(TEST_BATCH_ID);
+        long before = System.currentTimeMillis();
+
+        // Act
+        Long firstDelay = batchStateService.scheduleRetry(TEST_BATCH_ID);
+        claimBatch(TEST_BATCH_ID);
+        Long secondDelay = batchStateService.scheduleRetry(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(firstDelay).isEqualTo(5000L);
+        assertThat(secondDelay).isEqualTo(10000L);
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.retryBatchesKey(), TEST_BATCH_ID))
+                .isGreaterThanOrEqualTo((double) before + secondDelay);
+        assertThat(redisTemplate.opsForHash().get(RedisKeysUtil.retryAttemptsKey(), TEST_BATCH_ID))
+                .isEqualTo("2");
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.processingLeasesKey())).isFalse();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.processingOwnersKey())).isFalse();
+    }
+
+    @Test
+    @DisplayName("scheduleRetry должен возвращать null, когда неудачной была последняя из max-attempts попыток")
+    void scheduleRetry_shouldReturnNullWhenAttemptsExhausted() {
+        // Arrange
+        // max-attempts = 5: первые 4 неудачные попытки планируют повтор
+        for (int attempt = 1; attempt < 5; attempt++) {
+            claimBatch(TEST_BATCH_ID);
+            assertThat(batchStateService.scheduleRetry(TEST_BATCH_ID)).isNotNull();
+        }
+        redisTemplate.delete(RedisKeysUtil.retryBatchesKey());
+        claimBatch(TEST_BATCH_ID);
+
+        // Act
+        Long delay = batchStateService.scheduleRetry(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(delay).isNull();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.retryBatchesKey())).isFalse();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.retryAttemptsKey())).isFalse();
+    }
+
+    @Test
+    @DisplayName("scheduleRetry не должен снимать чужую аренду и планировать повтор")
+    void scheduleRetry_shouldNotTouchLeaseOfAnotherInstance() {
+        // Arrange
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID, System.currentTimeMillis());
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID, "other-instance");
+
+        // Act & Assert
+        assertThatThrownBy(() -> batchStateService.scheduleRetry(TEST_BATCH_ID))
+                .isInstanceOf(BatchLeaseLostException.class);
+        assertThat(redisTemplate.opsForHash().get(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID))
+                .isEqualTo("other-instance");
+        assertThat(redisTemplate.opsForZSet().score(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID)).isNotNull();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.retryAttemptsKey())).isFalse();
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.retryBatchesKey())).isFalse();
+    }
+
+    @Test
+    @DisplayName("scheduleRetry не должен планировать повтор батча, аренда которого уже возвращена в готовые")
+    void scheduleRetry_shouldFailWhenLeaseWasReclaimed() {
+        // Arrange
+        claimBatch(TEST_BATCH_ID);
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID, 0);
+        batchStateService.reclaimExpiredLeases();
+
+        // Act & Assert
+        assertThatThrownBy(() -> batchStateService.scheduleRetry(TEST_BATCH_ID))
+                .isInstanceOf(BatchLeaseLostException.class);
+        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey())).containsExactly(TEST_BATCH_ID);
+        assertThat(redisTemplate.hasKey(RedisKeysUtil.retryBatchesKey())).isFalse();
+    }
+
+    @Test
+    @DisplayName("releaseLease должен снимать собственную и отсутствующую аренду и не трогать чужую")
+    void releaseLease_shouldReleaseOnlyOwnOrMissingLease() {
+        // Arrange
+        claimBatch(TEST_BATCH_ID);
+        redisTemplate.opsForZSet().add(RedisKeysUtil.processingLeasesKey(), TEST_BATCH_ID_2, System.currentTimeMillis());
+        redisTemplate.opsForHash().put(RedisKeysUtil.processingOwnersKey(), TEST_BATCH_ID_2, "other-instance");
+
+        // Act
+        boolean ownReleased = batchStateService.releaseLease(TEST_BATCH_ID);
+        boolean missingReleased = batchStateService.releaseLease(TEST_BATCH_ID);
+        boolean foreignReleased = batchStateService.releaseLease(TEST_BATCH_ID_2);
+
+        // Assert
+        assertThat(ownReleased).isTrue();
+        assertThat(missingReleased).isTrue();
+        assertThat(foreignReleased).isFalse();
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.processingLeasesKey(), 0, -1))
+                .containsExactly(TEST_BATCH_ID_2);
+        assertThat(redisTemplate.opsForHash().keys(RedisKeysUtil.processingOwnersKey()))
+                .containsExactly(TEST_BATCH_ID_2);
+    }
+
+    @Test
+    @DisplayName("promoteDueRetries должен переносить в готовые только батчи, время повтора которых наступило")
+    void promoteDueRetries_shouldPromoteOnlyDueBatches() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(RedisKeysUtil.retryBatchesKey(), TEST_BATCH_ID, now - 1000);
+        redisTemplate.opsForZSet().add(RedisKeysUtil.retryBatchesKey(), TEST_BATCH_ID_2, now + 60000);
+
+        // Act
+        int promotedCount = batchStateService.promoteDueRetries();
+
+        // Assert
+        assertThat(promotedCount).isEqualTo(1);
+        assertThat(redisTemplate.opsForSet().members(RedisKeysUtil.readyBatchesSetKey()))
+                .containsExactly(TEST_BATCH_ID);
+        assertThat(redisTemplate.opsForZSet().range(RedisKeysUtil.retryBatchesKey(), 0, -1))
+                .containsExactly(TEST_BATCH_ID_2);
+    }
+
+    @Test
+    @DisplayName("getReadyBatchCount должен возвращать количество готовых батчей")
+    void getReadyBatchCount_shouldReturnReadyBatchesSize() {
+        // Arrange
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), TEST_BATCH_ID, TEST_BATCH_ID_2);
+
+        // Act
+        long count = batchStateService.getReadyBatchCount();
+
+        // Assert
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("getActiveBatchCount должен возвращать количество батчей с открытым окном")
+    void getActiveBatchCount_shouldReturnActiveWindowsSize() {
+        // Arrange
+        batchStateService.registerBatch(TEST_BATCH_ID);
+        batchStateService.registerBatch(TEST_BATCH_ID_2);
+
+        // Act
+        long count = batchStateService.getActiveBatchCount();
+
+        // Assert
+        assertThat(count).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("getBatchStartTime должен возвращать время старта зарегистрированного батча и null для неизвестного")
+    void getBatchStartTime_shouldReturnStartTimeOfRegisteredBatch() {
+        // Arrange
+        long before = System.currentTimeMillis();
+        batchStateService.registerBatch(TEST_BATCH_ID);
+
+        // Act
+        Long startTime = batchStateService.getBatchStartTime(TEST_BATCH_ID);
+        Long unknownStartTime = batchStateService.getBatchStartTime(TEST_BATCH_ID_2);
+
+        // Assert
+        assertThat(startTime).isBetween(before, System.currentTimeMillis());
+        assertThat(unknownStartTime).isNull();
+    }
+
+    /**
+     * Захватывает батч экземпляром: добавляет его в готовые и забирает с арендой.
+     */
+    private void claimBatch(String batchId) {
+        redisTemplate.opsForSet().add(RedisKeysUtil.readyBatchesSetKey(), batchId);
+        assertThat(batchStateService.getNextReadyBatch()).isEqualTo(batchId);
+    }
+}
@@ -0,0 +1,147 @@
+package com.neighbor.eventmosaic.processor.service;
+
+import com.neighbor.eventmosaic.library.common.dto.Event;
+import com.neighbor.eventmosaic.processor.codec.StagingCodec;
+import com.neighbor.eventmosaic.processor.component.BatchProcessor;
+import com.neighbor.eventmosaic.processor.component.BatchTtlManager;
+import com.neighbor.eventmosaic.processor.dto.BatchData;
+import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
+import com.neighbor.eventmosaic.processor.storage.BatchDataStorage;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "batch.processing.parallel-deserialization-threshold=4",
+        "batch.processing.deserialization-threads=2",
+        "batch.staging.layout=keys",
+        "batch.staging.read-chunk-size=3"
+})
+@ActiveProfiles("test")
+@Testcontainers
+class EventProcessingServiceDeserializationIntegrationTest implements RedisTestContainerInitializer {
+
+    @Autowired
+    private EventProcessingService eventProcessingService;
+
+    @Autowired
+    private BatchDataStorage batchDataStorage;
+
+    @Autowired
+    private StagingCodec stagingCodec;
+
+    @Autowired
+    private BatchTtlManager batchTtlManager;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @MockitoSpyBean
+    private BatchProcessor batchProcessor;
+
+    private static final String TEST_BATCH_ID = "20250323151500";
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+        batchTtlManager.forgetAll();
+        doReturn(new BatchData(Collections.emptyList(), Collections.emptyList()))
+                .when(batchProcessor).process(any(), any());
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} записей при пороге 4")
+    @ValueSource(ints = {3, 4, 5, 9})
+    @DisplayName("processBatch должен десериализовать записи в порядке чтения независимо от порога параллельности")
+    void processBatch_shouldMatchSequentialDeserializationAroundThreshold(int count) {
+        // Arrange
+        storeEvents(count);
+        List<Long> expectedIds = decodeSequentially();
+
+        // Act
+        eventProcessingService.processBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(expectedIds).hasSize(count);
+        assertThat(capturedEventIds()).containsExactlyElementsOf(expectedIds);
+    }
+
+    @Test
+    @DisplayName("Параллельная десериализация должна пропускать некорректные записи и сохранять остальные")
+    void processBatch_shouldSkipInvalidRecordsInParallelDeserialization() {
+        // Arrange
+        storeEvents(8);
+        redisTemplate.opsForValue().set(RedisKeysUtil.buildEventKey(TEST_BATCH_ID, 2L), "invalid-json");
+        redisTemplate.opsForValue().set(RedisKeysUtil.buildEventKey(TEST_BATCH_ID, 7L), "invalid-json");
+        List<Long> expectedIds = decodeSequentially();
+
+        // Act
+        eventProcessingService.processBatch(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(expectedIds).hasSize(6).doesNotContain(2L, 7L);
+        assertThat(capturedEventIds()).containsExactlyElementsOf(expectedIds);
+    }
+
+    private void storeEvents(int count) {
+        List<Event> events = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Event event = new Event();
+            event.setGlobalEventId(id);
+            event.setDay(20250323);
+            event.setAvgTone(1.0);
+            events.add(event);
+        }
+        eventProcessingService.storeEvents(TEST_BATCH_ID, events);
+    }
+
+    /**
+     * Десериализует записи батча последовательно в порядке чтения из хранилища.
+     */
+    private List<Long> decodeSequentially() {
+        List<Long> ids = new ArrayList<>();
+        for (byte[] payload : batchDataStorage.loadAll(TEST_BATCH_ID, BatchRecordType.EVENT)) {
+            try {
+                ids.add(stagingCodec.decode(payload, Event.class).getGlobalEventId());
+            } catch (IOException e) {
+                // Некорректная запись пропускается, как и в сервисе
+            }
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> capturedEventIds() {
+        ArgumentCaptor<List<ElasticEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(batchProcessor).process(captor.capture(), any());
+        return captor.getValue().stream()
+                .map(ElasticEvent::getGlobalEventId)
+                .toList();
+    }
+}
@@ -5,28 +5,35 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.neighbor.eventmosaic.library.common.dto.Event;
 import com.neighbor.eventmosaic.library.common.dto.Mention;
 import com.neighbor.eventmosaic.processor.component.BatchProcessor;
+import com.neighbor.eventmosaic.processor.component.BatchTtlManager;
 import com.neighbor.eventmosaic.processor.dto.BatchData;
 import com.neighbor.eventmosaic.processor.dto.ElasticEvent;
 import com.neighbor.eventmosaic.processor.dto.ElasticMention;
+import com.neighbor.eventmosaic.processor.dto.PublishedRecords;
 import com.neighbor.eventmosaic.processor.exception.RedisOperationException;
 import com.neighbor.eventmosaic.processor.exception.RedisSerializationException;
 import com.neighbor.eventmosaic.processor.mapper.EventMapper;
 import com.neighbor.eventmosaic.processor.mapper.MentionMapper;
+import com.neighbor.eventmosaic.processor.storage.BatchRecordType;
 import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -34,10 +41,11 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-@SpringBootTest
+@SpringBootTest(properties = "batch.processing.streaming.chunk-size=2")
 @ActiveProfiles("test")
 @Testcontainers
 class EventProcessingServiceIntegrationTest implements RedisTestContainerInitializer {
@@ -51,9 +59,18 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
     @Autowired
     MentionMapper mentionMapper;
 
+    @Autowired
+    private BatchTtlManager batchTtlManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockitoSpyBean
     private RedisTemplate<String, String> redisTemplate;
 
+    @MockitoSpyBean
+    private RedisTemplate<String, byte[]> stagingRedisTemplate;
+
     @MockitoSpyBean
     private ObjectMapper objectMapper;
 
@@ -71,6 +88,7 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
                 .getConnection()
                 .serverCommands()
                 .flushDb();
+        batchTtlManager.forgetAll();
     }
 
     @Test
@@ -101,6 +119,26 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
         assertThat(eventIds).contains(TEST_EVENT_ID.toString());
     }
 
+    @Test
+    @DisplayName("Повторно сохраненные записи батча должны схлопываться и учитываться как дубликаты")
+    void storeEvents_shouldCollapseAndCountDuplicatesWithinBatch() {
+        // Arrange
+        double duplicatesBefore = batchDuplicates();
+        Event event = createEvent(TEST_EVENT_ID, 20250323, 10.5);
+        eventProcessingService.storeEvent(TEST_BATCH_ID, event);
+
+        // Act
+        eventProcessingService.storeEvents(TEST_BATCH_ID, List.of(
+                event,
+                event,
+                createEvent(TEST_EVENT_ID + 1, 20250323, 1.0)));
+
+        // Assert
+        assertThat(redisTemplate.opsForSet().size("batch:events:" + TEST_BATCH_ID)).isEqualTo(2);
+        // Один дубликат внутри группы и один уже сохраненный в батче
+        assertThat(batchDuplicates()).isEqualTo(duplicatesBefore + 2);
+    }
+
     @Test
     @DisplayName("Должен корректно сохранять упоминание в Redis")
     void storeMention_shouldSaveMentionToRedis() throws JsonProcessingException {
@@ -126,6 +164,31 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
         assertThat(mentionIds).contains(TEST_MENTION_ID);
     }
 
+    @Test
+    @DisplayName("storeEvents должен сохранять группу событий с TTL одним pipeline-запросом")
+    void storeEvents_shouldSaveAllEventsWithTtl() {
+        // Arrange
+        List<Event> events = List.of(
+                createEvent(1L, 20250323, 1.0),
+                createEvent(2L, 20250323, 2.0),
+                createEvent(3L, 20250323, 3.0));
+
+        // Act
+        eventProcessingService.storeEvents(TEST_BATCH_ID, events);
+
+        // Assert
+        String setKey = "batch:events:" + TEST_BATCH_ID;
+        assertThat(redisTemplate.opsForSet().members(setKey)).containsExactlyInAnyOrder("1", "2", "3");
+        assertThat(redisTemplate.getExpire(setKey)).isPositive();
+
+        for (Event event : events) {
+            String eventKey = "data:event:" + TEST_BATCH_ID + ":" + event.getGlobalEventId();
+            assertThat(redisTemplate.hasKey(eventKey)).isTrue();
+            assertThat(redisTemplate.getExpire(eventKey)).isPositive();
+        }
+        verify(stagingRedisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
     @Test
     @DisplayName("Должен выбрасывать RedisSerializationException при ошибке сериализации")
     void storeEvent_shouldThrowRedisSerializationException() throws JsonProcessingException {
@@ -133,7 +196,7 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
         Event event = mock(Event.class);
         when(event.getGlobalEventId()).thenReturn(TEST_EVENT_ID);
 
-        doThrow(JsonProcessingException.class).when(objectMapper).writeValueAsString(any(Event.class));
+        doThrow(JsonProcessingException.class).when(objectMapper).writeValueAsBytes(any(Event.class));
 
         // Act & Assert
         assertThatThrownBy(() -> eventProcessingService.storeEvent(TEST_BATCH_ID, event))
@@ -147,7 +210,7 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
         // Arrange
         Event event = createEvent(TEST_EVENT_ID, null, null);
 
-        doThrow(RuntimeException.class).when(redisTemplate).opsForValue();
+        doThrow(RuntimeException.class).when(stagingRedisTemplate).opsForValue();
 
         // Act & Assert
         assertThatThrownBy(() -> eventProcessingService.storeEvent(TEST_BATCH_ID, event))
@@ -225,6 +288,78 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
     }
 
 
+    @Test
+    @DisplayName("processBatchInChunks должен отдавать данные батча порциями ограниченного размера")
+    void processBatchInChunks_shouldDeliverBatchInBoundedChunks() {
+        // Arrange
+        for (long id = 1; id <= 5; id++) {
+            eventProcessingService.storeEvent(TEST_BATCH_ID, createEvent(id, 20250323, 1.0));
+        }
+        for (long id = 1; id <= 3; id++) {
+            eventProcessingService.storeMention(TEST_BATCH_ID, createMention(id, "m" + id, 1.0));
+        }
+        List<BatchData> chunks = new ArrayList<>();
+
+        // Act
+        eventProcessingService.processBatchInChunks(TEST_BATCH_ID, chunks::add);
+
+        // Assert
+        assertThat(chunks).allSatisfy(chunk ->
+                assertThat(chunk.getEvents().size() + chunk.getMentions().size()).isBetween(1, 2));
+        assertThat(chunks).flatMap(BatchData::getEvents)
+                .extracting(ElasticEvent::getGlobalEventId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L);
+        assertThat(chunks).flatMap(BatchData::getMentions)
+                .extracting(ElasticMention::getMentionIdentifier)
+                .containsExactlyInAnyOrder("m1", "m2", "m3");
+    }
+
+    @Test
+    @DisplayName("retainForRetry должен удалять отправленные записи и продлевать TTL оставшихся")
+    void retainForRetry_shouldRemovePublishedRecordsAndExtendTtl() {
+        // Arrange
+        eventProcessingService.storeEvents(TEST_BATCH_ID, List.of(
+                createEvent(1L, 20250323, 1.0),
+                createEvent(2L, 20250323, 2.0)));
+        eventProcessingService.storeMention(TEST_BATCH_ID, createMention(1L, "m1", 1.0));
+
+        PublishedRecords published = new PublishedRecords();
+        published.add(BatchRecordType.EVENT, "1");
+        published.add(BatchRecordType.MENTION, "1_m1");
+        long retryDelayMs = 600_000;
+
+        // Act
+        boolean hasRemaining = eventProcessingService.retainForRetry(TEST_BATCH_ID, published, retryDelayMs);
+
+        // Assert
+        assertThat(hasRemaining).isTrue();
+        BatchData remaining = eventProcessingService.processBatch(TEST_BATCH_ID);
+        assertThat(remaining.getEvents()).extracting(ElasticEvent::getGlobalEventId).containsExactly(2L);
+        assertThat(remaining.getMentions()).isEmpty();
+        assertThat(redisTemplate.hasKey("data:event:" + TEST_BATCH_ID + ":1")).isFalse();
+        assertThat(redisTemplate.getExpire("data:event:" + TEST_BATCH_ID + ":2", TimeUnit.MILLISECONDS))
+                .isGreaterThan(retryDelayMs);
+        assertThat(redisTemplate.getExpire("batch:events:" + TEST_BATCH_ID, TimeUnit.MILLISECONDS))
+                .isGreaterThan(retryDelayMs);
+    }
+
+    @Test
+    @DisplayName("retainForRetry должен сообщать, что неотправленных записей не осталось")
+    void retainForRetry_shouldReportNothingLeftWhenAllRecordsPublished() {
+        // Arrange
+        eventProcessingService.storeEvents(TEST_BATCH_ID, List.of(createEvent(1L, 20250323, 1.0)));
+
+        PublishedRecords published = new PublishedRecords();
+        published.add(BatchRecordType.EVENT, "1");
+
+        // Act
+        boolean hasRemaining = eventProcessingService.retainForRetry(TEST_BATCH_ID, published, 600_000);
+
+        // Assert
+        assertThat(hasRemaining).isFalse();
+        assertThat(redisTemplate.hasKey("batch:events:" + TEST_BATCH_ID)).isFalse();
+    }
+
     private Event createEvent(Long id,
                               Integer day,
                               Double avgTone) {
@@ -244,4 +379,8 @@ class EventProcessingServiceIntegrationTest implements RedisTestContainerInitial
         mention.setMentionDocTone(docTone);
         return mention;
     }
+
+    private double batchDuplicates() {
+        return meterRegistry.counter("processor.dedup.duplicates", "type", "event", "stage", "batch").count();
+    }
 }
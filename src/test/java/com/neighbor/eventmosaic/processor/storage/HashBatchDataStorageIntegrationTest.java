@@ -0,0 +1,180 @@
+package com.neighbor.eventmosaic.processor.storage;
+
+import com.neighbor.eventmosaic.processor.storage.impl.HashBatchDataStorage;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "batch.staging.layout=hash",
+        "batch.staging.pipeline-chunk-size=10"
+})
+@ActiveProfiles("test")
+@Testcontainers
+class HashBatchDataStorageIntegrationTest implements RedisTestContainerInitializer {
+
+    @Autowired
+    private BatchDataStorage batchDataStorage;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    private static final String TEST_BATCH_ID = "20250323151500";
+    private static final String TEST_BATCH_ID_2 = "20250323151600";
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+    }
+
+    @Test
+    @DisplayName("Должна использоваться раскладка hash на батч")
+    void shouldUseHashLayout() {
+        assertThat(batchDataStorage).isInstanceOf(HashBatchDataStorage.class);
+    }
+
+    @Test
+    @DisplayName("save должен сохранять все записи батча в один hash с TTL")
+    void save_shouldStoreRecordsInSingleHashWithTtl() {
+        // Arrange
+        Map<String, byte[]> payloads = createPayloads(25);
+
+        // Act
+        int roundTrips = batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, payloads, TTL, true);
+
+        // Assert
+        String hashKey = RedisKeysUtil.buildBatchEventsHashKey(TEST_BATCH_ID);
+        assertThat(roundTrips).isEqualTo(3); // 25 записей чанками по 10
+        assertThat(redisTemplate.opsForHash().size(hashKey)).isEqualTo(25);
+        assertThat(redisTemplate.getExpire(hashKey)).isPositive();
+        assertThat(redisTemplate.keys("*")).containsExactly(hashKey);
+    }
+
+    @Test
+    @DisplayName("save без инициализации TTL батча не должен выставлять TTL hash")
+    void save_shouldNotSetHashTtlWithoutInit() {
+        // Act
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, createPayloads(5), TTL, false);
+
+        // Assert
+        assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchEventsHashKey(TEST_BATCH_ID))).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("loadAll должен читать все записи батча через HSCAN")
+    void loadAll_shouldReadAllRecords() {
+        // Arrange
+        Map<String, byte[]> payloads = createPayloads(25);
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.MENTION, payloads, TTL, true);
+
+        // Act
+        List<byte[]> loaded = batchDataStorage.loadAll(TEST_BATCH_ID, BatchRecordType.MENTION);
+
+        // Assert
+        assertThat(loaded)
+                .extracting(payload -> new String(payload, StandardCharsets.UTF_8))
+                .containsExactlyInAnyOrderElementsOf(payloads.values().stream()
+                        .map(payload -> new String(payload, StandardCharsets.UTF_8))
+                        .toList());
+        assertThat(batchDataStorage.loadAll(TEST_BATCH_ID, BatchRecordType.EVENT)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("delete должен удалять hash событий и упоминаний батча")
+    void delete_shouldRemoveBatchHashes() {
+        // Arrange
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, createPayloads(5), TTL, true);
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.MENTION, createPayloads(5), TTL, true);
+
+        // Act
+        batchDataStorage.delete(TEST_BATCH_ID);
+
+        // Assert
+        assertThat(redisTemplate.keys("*")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("removeRecords должен удалять из hash только указанные записи")
+    void removeRecords_shouldRemoveOnlyGivenFields() {
+        // Arrange
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, createPayloads(25), TTL, true);
+
+        // Act
+        batchDataStorage.removeRecords(TEST_BATCH_ID, BatchRecordType.EVENT,
+                IntStream.range(0, 20).mapToObj(String::valueOf).toList());
+
+        // Assert
+        assertThat(redisTemplate.opsForHash().keys(RedisKeysUtil.buildBatchEventsHashKey(TEST_BATCH_ID)))
+                .containsExactlyInAnyOrder("20", "21", "22", "23", "24");
+    }
+
+    @Test
+    @DisplayName("expire должен продлевать TTL hash событий и упоминаний батча")
+    void expire_shouldExtendTtlOfBatchHashes() {
+        // Arrange
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, createPayloads(5), TTL, true);
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.MENTION, createPayloads(5), TTL, true);
+
+        // Act
+        boolean dataPresent = batchDataStorage.expire(TEST_BATCH_ID, Duration.ofHours(1));
+
+        // Assert
+        assertThat(dataPresent).isTrue();
+        assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchEventsHashKey(TEST_BATCH_ID)))
+                .isGreaterThan(TTL.toSeconds());
+        assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchMentionsHashKey(TEST_BATCH_ID)))
+                .isGreaterThan(TTL.toSeconds());
+    }
+
+    @Test
+    @DisplayName("expireBatches должен продлевать TTL hash всех переданных батчей")
+    void expireBatches_shouldExtendTtlOfAllBatchHashes() {
+        // Arrange
+        List<String> batchIds = List.of(TEST_BATCH_ID, TEST_BATCH_ID_2);
+        for (String batchId : batchIds) {
+            batchDataStorage.save(batchId, BatchRecordType.EVENT, createPayloads(5), TTL, true);
+            batchDataStorage.save(batchId, BatchRecordType.MENTION, createPayloads(5), TTL, true);
+        }
+
+        // Act
+        batchDataStorage.expireBatches(batchIds, Duration.ofHours(1));
+
+        // Assert
+        for (String batchId : batchIds) {
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchEventsHashKey(batchId)))
+                    .isGreaterThan(TTL.toSeconds());
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchMentionsHashKey(batchId)))
+                    .isGreaterThan(TTL.toSeconds());
+        }
+    }
+
+    private Map<String, byte[]> createPayloads(int count) {
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            payloads.put(String.valueOf(i), ("{\"globalEventId\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        return payloads;
+    }
+}
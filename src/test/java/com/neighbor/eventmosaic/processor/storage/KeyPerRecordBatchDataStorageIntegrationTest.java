@@ -0,0 +1,166 @@
+package com.neighbor.eventmosaic.processor.storage;
+
+import com.neighbor.eventmosaic.processor.storage.impl.KeyPerRecordBatchDataStorage;
+import com.neighbor.eventmosaic.processor.testcontainer.RedisTestContainerInitializer;
+import com.neighbor.eventmosaic.processor.util.RedisKeysUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "batch.staging.layout=keys",
+        "batch.staging.read-chunk-size=3",
+        "batch.staging.pipeline-chunk-size=4"
+})
+@ActiveProfiles("test")
+@Testcontainers
+class KeyPerRecordBatchDataStorageIntegrationTest implements RedisTestContainerInitializer {
+
+    @Autowired
+    private BatchDataStorage batchDataStorage;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String TEST_BATCH_ID = "20250323151500";
+    private static final String TEST_BATCH_ID_2 = "20250323151600";
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    @BeforeEach
+    void setUp() {
+        // Очищаем Redis перед каждым тестом
+        Objects.requireNonNull(redisTemplate.getConnectionFactory())
+                .getConnection()
+                .serverCommands()
+                .flushDb();
+    }
+
+    @Test
+    @DisplayName("Должна использоваться раскладка с ключом на запись")
+    void shouldUseKeyPerRecordLayout() {
+        assertThat(batchDataStorage).isInstanceOf(KeyPerRecordBatchDataStorage.class);
+    }
+
+    @ParameterizedTest(name = "[{index}] {0} записей при MGET по 3 ключа")
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7})
+    @DisplayName("loadAll должен читать все записи батча на границах порций MGET")
+    void loadAll_shouldReadAllRecordsAroundChunkEdges(int count) {
+        // Arrange
+        Map<String, byte[]> payloads = createPayloads(count);
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, payloads, TTL, true);
+        double expiredBefore = expiredRecords();
+
+        // Act
+        List<byte[]> loaded = batchDataStorage.loadAll(TEST_BATCH_ID, BatchRecordType.EVENT);
+
+        // Assert
+        assertThat(asStrings(loaded)).containsExactlyInAnyOrderElementsOf(asStrings(payloads.values()));
+        assertThat(expiredRecords()).isEqualTo(expiredBefore);
+    }
+
+    @Test
+    @DisplayName("loadAll должен пропускать отсутствующие ключи данных и учитывать их в метрике")
+    void loadAll_shouldSkipMissingKeysAndCountThem() {
+        // Arrange
+        Map<String, byte[]> payloads = createPayloads(7);
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, payloads, TTL, true);
+        // Удаляем ключи части записей, их ID остаются в множестве батча
+        List<String> missingIds = List.of("0", "4", "6");
+        missingIds.forEach(id -> redisTemplate.delete(RedisKeysUtil.buildEventKey(TEST_BATCH_ID, Long.valueOf(id))));
+        missingIds.forEach(payloads::remove);
+        double expiredBefore = expiredRecords();
+
+        // Act
+        List<byte[]> loaded = batchDataStorage.loadAll(TEST_BATCH_ID, BatchRecordType.EVENT);
+
+        // Assert
+        assertThat(asStrings(loaded)).containsExactlyInAnyOrderElementsOf(asStrings(payloads.values()));
+        assertThat(expiredRecords()).isEqualTo(expiredBefore + missingIds.size());
+    }
+
+    @Test
+    @DisplayName("loadAll должен возвращать пустой список, если истекли все ключи данных")
+    void loadAll_shouldReturnEmptyListWhenAllKeysMissing() {
+        // Arrange
+        Map<String, byte[]> payloads = createPayloads(4);
+        batchDataStorage.save(TEST_BATCH_ID, BatchRecordType.EVENT, payloads, TTL, true);
+        payloads.keySet().forEach(id -> redisTemplate.delete(RedisKeysUtil.buildEventKey(TEST_BATCH_ID, Long.valueOf(id))));
+        double expiredBefore = expiredRecords();
+
+        // Act
+        List<byte[]> loaded = batchDataStorage.loadAll(TEST_BATCH_ID, BatchRecordType.EVENT);
+
+        // Assert
+        assertThat(loaded).isEmpty();
+        assertThat(expiredRecords()).isEqualTo(expiredBefore + payloads.size());
+    }
+
+    @Test
+    @DisplayName("expireBatches должен продлевать TTL множеств ID и ключей данных всех переданных батчей")
+    void expireBatches_shouldExtendTtlOfAllBatchKeys() {
+        // Arrange
+        List<String> batchIds = List.of(TEST_BATCH_ID, TEST_BATCH_ID_2);
+        for (String batchId : batchIds) {
+            batchDataStorage.save(batchId, BatchRecordType.EVENT, createPayloads(5), TTL, true);
+            batchDataStorage.save(batchId, BatchRecordType.MENTION, createPayloads(3), TTL, true);
+        }
+
+        // Act
+        batchDataStorage.expireBatches(batchIds, Duration.ofHours(1));
+
+        // Assert
+        for (String batchId : batchIds) {
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchEventsSetKey(batchId)))
+                    .isGreaterThan(TTL.toSeconds());
+            assertThat(redisTemplate.getExpire(RedisKeysUtil.buildBatchMentionsSetKey(batchId)))
+                    .isGreaterThan(TTL.toSeconds());
+            for (long id = 0; id < 5; id++) {
+                assertThat(redisTemplate.getExpire(RedisKeysUtil.buildEventKey(batchId, id)))
+                        .isGreaterThan(TTL.toSeconds());
+            }
+            for (int id = 0; id < 3; id++) {
+                assertThat(redisTemplate.getExpire(RedisKeysUtil.buildMentionKey(batchId, String.valueOf(id))))
+                        .isGreaterThan(TTL.toSeconds());
+            }
+        }
+    }
+
+    private double expiredRecords() {
+        return meterRegistry.counter("processor.batch.expired.records", "type", "event").count();
+    }
+
+    private List<String> asStrings(Iterable<byte[]> payloads) {
+        List<String> strings = new ArrayList<>();
+        payloads.forEach(payload -> strings.add(new String(payload, StandardCharsets.UTF_8)));
+        return strings;
+    }
+
+    private Map<String, byte[]> createPayloads(int count) {
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            payloads.put(String.valueOf(i), ("{\"globalEventId\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        return payloads;
+    }
+}
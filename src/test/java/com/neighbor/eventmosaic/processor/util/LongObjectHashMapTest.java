@@ -0,0 +1,92 @@
+package com.neighbor.eventmosaic.processor.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectHashMapTest {
+
+    @Test
+    @DisplayName("put и get должны сохранять и находить значения, в том числе по ключам 0 и отрицательным")
+    void putAndGet_shouldStoreAndFindValues() {
+        // Arrange
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        // Act
+        map.put(0L, "zero");
+        map.put(-1L, "minus one");
+        map.put(Long.MAX_VALUE, "max");
+
+        // Assert
+        assertEquals("zero", map.get(0L));
+        assertEquals("minus one", map.get(-1L));
+        assertEquals("max", map.get(Long.MAX_VALUE));
+        assertNull(map.get(1L));
+        assertTrue(map.containsKey(0L));
+        assertFalse(map.containsKey(1L));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    @DisplayName("put должен заменять значение существующего ключа и возвращать предыдущее")
+    void put_shouldReplaceExistingValue() {
+        // Arrange
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(42L, "first");
+
+        // Act
+        String previous = map.put(42L, "second");
+
+        // Assert
+        assertEquals("first", previous);
+        assertEquals("second", map.get(42L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    @DisplayName("Таблица должна расширяться и сохранять все последовательные ключи")
+    void put_shouldGrowAndKeepSequentialKeys() {
+        // Arrange
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(1);
+        long firstId = 1_234_567_890L;
+
+        // Act
+        for (long id = firstId; id < firstId + 10_000; id++) {
+            map.put(id, id);
+        }
+
+        // Assert
+        assertEquals(10_000, map.size());
+        for (long id = firstId; id < firstId + 10_000; id++) {
+            assertEquals(id, map.get(id));
+        }
+        assertNull(map.get(firstId + 10_000));
+    }
+
+    @Test
+    @DisplayName("put не должен принимать null-значения")
+    void put_shouldRejectNullValues() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+    }
+
+    @Test
+    @DisplayName("clear должен удалять все записи")
+    void clear_shouldRemoveAllEntries() {
+        // Arrange
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(1L, "one");
+
+        // Act
+        map.clear();
+
+        // Assert
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1L));
+    }
+}
@@ -51,6 +51,26 @@ class RedisKeysUtilTest {
         assertEquals("batch:mentions:" + TEST_BATCH_ID, result);
     }
 
+    @Test
+    @DisplayName("buildBatchEventsHashKey должен формировать корректный ключ для hash событий батча")
+    void buildBatchEventsHashKey_shouldCreateCorrectEventsHashKey() {
+        // Act
+        String result = RedisKeysUtil.buildBatchEventsHashKey(TEST_BATCH_ID);
+
+        // Assert
+        assertEquals("data:events:" + TEST_BATCH_ID, result);
+    }
+
+    @Test
+    @DisplayName("buildBatchMentionsHashKey должен формировать корректный ключ для hash упоминаний батча")
+    void buildBatchMentionsHashKey_shouldCreateCorrectMentionsHashKey() {
+        // Act
+        String result = RedisKeysUtil.buildBatchMentionsHashKey(TEST_BATCH_ID);
+
+        // Assert
+        assertEquals("data:mentions:" + TEST_BATCH_ID, result);
+    }
+
     @Test
     @DisplayName("buildStartTimeKey должен формировать корректный ключ для времени старта батча")
     void buildStartTimeKey_shouldCreateCorrectStartTimeKey() {
@@ -62,10 +82,20 @@ class RedisKeysUtilTest {
     }
 
     @Test
-    @DisplayName("activeBatchesSetKey должен возвращать корректный ключ для множества активных батчей")
-    void activeBatchesSetKey_shouldReturnCorrectActiveBatchesKey() {
+    @DisplayName("activeBatchWindowsKey должен возвращать корректный ключ для окон активных батчей")
+    void activeBatchWindowsKey_shouldReturnCorrectActiveBatchWindowsKey() {
         // Act
-        String result = RedisKeysUtil.activeBatchesSetKey();
+        String result = RedisKeysUtil.activeBatchWindowsKey();
+
+        // Assert
+        assertEquals("active:batch-windows", result);
+    }
+
+    @Test
+    @DisplayName("legacyActiveBatchesSetKey должен возвращать ключ множества активных батчей прежнего формата")
+    void legacyActiveBatchesSetKey_shouldReturnLegacyActiveBatchesKey() {
+        // Act
+        String result = RedisKeysUtil.legacyActiveBatchesSetKey();
 
         // Assert
         assertEquals("active:batches", result);
@@ -80,4 +110,20 @@ class RedisKeysUtilTest {
         // Assert
         assertEquals("ready:batches", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("processingLeasesKey и processingOwnersKey должны возвращать корректные ключи аренд батчей")
+    void processingKeys_shouldReturnCorrectLeaseKeys() {
+        // Act & Assert
+        assertEquals("processing:batch-leases", RedisKeysUtil.processingLeasesKey());
+        assertEquals("processing:batch-owners", RedisKeysUtil.processingOwnersKey());
+    }
+
+    @Test
+    @DisplayName("retryBatchesKey и retryAttemptsKey должны возвращать корректные ключи повторной обработки")
+    void retryKeys_shouldReturnCorrectRetryKeys() {
+        // Act & Assert
+        assertEquals("retry:batches", RedisKeysUtil.retryBatchesKey());
+        assertEquals("retry:batch-attempts", RedisKeysUtil.retryAttemptsKey());
+    }
+}